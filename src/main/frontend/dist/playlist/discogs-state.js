@@ -138,6 +138,40 @@ export function applyDiscogsResult(result, state, scheduleLibraryRefresh) {
     }
 }
 
+async function readNdjsonStream(response, onLine) {
+    if (!response.body || typeof response.body.getReader !== "function") {
+        const text = await response.text();
+        for (const line of text.split("\n")) {
+            if (line.trim()) {
+                onLine(JSON.parse(line));
+            }
+        }
+        return;
+    }
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffered = "";
+    while (true) {
+        const { value, done } = await reader.read();
+        if (done) {
+            break;
+        }
+        buffered += decoder.decode(value, { stream: true });
+        let newline;
+        while ((newline = buffered.indexOf("\n")) >= 0) {
+            const line = buffered.slice(0, newline).trim();
+            buffered = buffered.slice(newline + 1);
+            if (line) {
+                onLine(JSON.parse(line));
+            }
+        }
+    }
+    buffered += decoder.decode();
+    if (buffered.trim()) {
+        onLine(JSON.parse(buffered));
+    }
+}
+
 export async function processDiscogsQueue(state, scheduleLibraryRefresh) {
     if (discogsState.processing) {
         return;
@@ -175,7 +209,7 @@ export async function processDiscogsQueue(state, scheduleLibraryRefresh) {
             };
             let cacheOnlyBatch = false;
             try {
-                const response = await fetch("/api/discogs/batch", {
+                const response = await fetch("/api/discogs/batch/stream", {
                     method: "POST",
                     headers: { "Content-Type": "application/json" },
                     body: JSON.stringify(payload),
@@ -186,13 +220,19 @@ export async function processDiscogsQueue(state, scheduleLibraryRefresh) {
                     throw new Error(`HTTP ${response.status}`);
                 }
                 
-                const data = await response.json();
-                if (Array.isArray(data?.results)) {
-                    cacheOnlyBatch = data.results.length > 0 && data.results.every((result) => result?.cacheHit === true);
-                    for (const result of data.results) {
-                        applyDiscogsResult(result, state, scheduleLibraryRefresh);
+                let received = 0;
+                let allCacheHits = true;
+                await readNdjsonStream(response, (result) => {
+                    if (result?.done === true) {
+                        return;
                     }
-                }
+                    received++;
+                    if (result?.cacheHit !== true) {
+                        allCacheHits = false;
+                    }
+                    applyDiscogsResult(result, state, scheduleLibraryRefresh);
+                });
+                cacheOnlyBatch = received > 0 && allCacheHits;
             } catch (error) {
                 console.warn("Discogs-Batch fehlgeschlagen:", error);
                 for (const item of batch) {
@@ -4,6 +4,7 @@ import Server.auth.SpotifyOAuthService;
 import Server.cache.PlaylistCache;
 import Server.http.ApiFilters;
 import Server.http.HttpUtils;
+import Server.http.RequestExecutor;
 import Server.http.StaticFileHandler;
 import Server.routes.AlbumRoutes;
 import Server.routes.AuthRoutes;
@@ -29,7 +30,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 /**
  * Main HTTP server that wires together all routes and middleware.
@@ -44,23 +45,33 @@ public class ApiServer {
     }
 
     public static HttpServer start(int port) throws IOException {
+        return start(port, Paths.get("cache"));
+    }
+
+    /**
+     * Starts the server with its playlist snapshots and Discogs match cache under {@code cacheDir}.
+     */
+    public static HttpServer start(int port, Path cacheDir) throws IOException {
         HttpServer server = HttpServer.create(createBindAddress(port), 0);
         int actualPort = server.getAddress().getPort();
 
         // Initialize shared components
-        PlaylistCache playlistCache = new PlaylistCache(HttpUtils.getMapper());
+        RequestExecutor requestExecutor = RequestExecutor.fromConfig();
+        PlaylistCache playlistCache = new PlaylistCache(HttpUtils.getMapper(), cacheDir.resolve("playlists"));
         SpotifySessionStore spotifySessionStore = new SpotifySessionStore();
         DiscogsSessionStore discogsSessionStore = new DiscogsSessionStore();
         SpotifyOAuthService spotifyOAuthService = new SpotifyOAuthService();
 
+        Supplier<DiscogsService> discogsServices = () -> getDefaultDiscogsService(cacheDir.resolve("discogs"));
+
         // Register API routes
         AuthRoutes authRoutes = new AuthRoutes(playlistCache, spotifySessionStore, spotifyOAuthService);
         authRoutes.register(server);
 
-        PlaylistRoutes playlistRoutes = new PlaylistRoutes(playlistCache, ApiServer::getDefaultDiscogsService, authRoutes);
+        PlaylistRoutes playlistRoutes = new PlaylistRoutes(playlistCache, discogsServices, authRoutes);
         playlistRoutes.register(server);
 
-        DiscogsRoutes discogsRoutes = new DiscogsRoutes(ApiServer::getDefaultDiscogsService, discogsSessionStore, spotifySessionStore);
+        DiscogsRoutes discogsRoutes = new DiscogsRoutes(discogsServices, discogsSessionStore, spotifySessionStore);
         discogsRoutes.register(server);
 
         ConfigRoutes configRoutes = new ConfigRoutes();
@@ -71,7 +82,7 @@ public class ApiServer {
         albumRoutes.register(server);
 
         // Register health check endpoints
-        HealthRoutes healthRoutes = new HealthRoutes();
+        HealthRoutes healthRoutes = new HealthRoutes(requestExecutor, playlistCache);
         healthRoutes.register(server);
 
         // Serve static frontend files
@@ -80,7 +91,7 @@ public class ApiServer {
         server.createContext("/", staticHandler).getFilters().add(ApiFilters.securityHeaders());
 
         // Start server
-        server.setExecutor(Executors.newFixedThreadPool(5));
+        server.setExecutor(requestExecutor);
         server.start();
 
         URI redirectUri = spotifyOAuthService.getRedirectUri();
@@ -118,7 +129,7 @@ public class ApiServer {
     /**
      * Returns the default DiscogsService using environment configuration.
      */
-    private static DiscogsService getDefaultDiscogsService() {
+    private static DiscogsService getDefaultDiscogsService(Path cacheDir) {
         String tokenRaw = com.hctamlyniv.Config.getDiscogsToken();
         String token = (tokenRaw == null || tokenRaw.isBlank()) ? null : tokenRaw.trim();
         String userAgent = com.hctamlyniv.Config.getDiscogsUserAgent();
@@ -127,7 +138,7 @@ public class ApiServer {
         }
         final String tokenFinal = token;
         final String userAgentFinal = userAgent;
-        final String key = (tokenFinal == null ? "" : tokenFinal) + "|" + userAgentFinal;
-        return DISCOGS_SERVICES.computeIfAbsent(key, k -> new DiscogsService(tokenFinal, userAgentFinal));
+        final String key = (tokenFinal == null ? "" : tokenFinal) + "|" + userAgentFinal + "|" + cacheDir;
+        return DISCOGS_SERVICES.computeIfAbsent(key, k -> new DiscogsService(tokenFinal, userAgentFinal, cacheDir));
     }
 }
@@ -15,6 +15,7 @@ public class PlaylistData {
     private final int offset;
     private final int nextOffset;
     private final boolean hasMore;
+    private final boolean incomplete;
 
     public PlaylistData(String playlistName, String playlistCoverUrl, String playlistUrl, List<TrackData> tracks) {
         this(playlistName, playlistCoverUrl, playlistUrl, tracks,
@@ -24,6 +25,16 @@ public class PlaylistData {
                 false);
     }
 
+    public PlaylistData(String playlistName, String playlistCoverUrl, String playlistUrl, List<TrackData> tracks,
+                        int totalTracks, int offset, int nextOffset, boolean hasMore) {
+        this(playlistName, playlistCoverUrl, playlistUrl, tracks, totalTracks, offset, nextOffset, hasMore, false);
+    }
+
+    /**
+     * @param incomplete whether part of the load failed (typically Spotify throttling), so tracks
+     *                   or album details are missing; {@code nextOffset} points at the first
+     *                   track not loaded
+     */
     @JsonCreator
     public PlaylistData(@JsonProperty("playlistName") String playlistName,
                         @JsonProperty("playlistCoverUrl") String playlistCoverUrl,
@@ -32,7 +43,8 @@ public class PlaylistData {
                         @JsonProperty("totalTracks") int totalTracks,
                         @JsonProperty("offset") int offset,
                         @JsonProperty("nextOffset") int nextOffset,
-                        @JsonProperty("hasMore") boolean hasMore) {
+                        @JsonProperty("hasMore") boolean hasMore,
+                        @JsonProperty("incomplete") boolean incomplete) {
         this.playlistName = (playlistName != null && !playlistName.isBlank())
                 ? playlistName
                 : "Unbekannte Playlist";
@@ -43,6 +55,7 @@ public class PlaylistData {
         this.offset = Math.max(0, offset);
         this.nextOffset = Math.max(this.offset, Math.min(nextOffset, this.totalTracks));
         this.hasMore = hasMore && this.nextOffset < this.totalTracks;
+        this.incomplete = incomplete;
     }
 
     public String getPlaylistName() {
@@ -76,4 +89,8 @@ public class PlaylistData {
     public boolean isHasMore() {
         return hasMore;
     }
+
+    public boolean isIncomplete() {
+        return incomplete;
+    }
 }
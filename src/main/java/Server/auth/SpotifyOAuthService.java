@@ -2,6 +2,7 @@ package Server.auth;
 
 import Server.session.SpotifySession;
 import com.hctamlyniv.Config;
+import com.hctamlyniv.spotify.SpotifyTransport;
 import se.michaelthelin.spotify.SpotifyApi;
 import se.michaelthelin.spotify.SpotifyHttpManager;
 import se.michaelthelin.spotify.model_objects.credentials.AuthorizationCodeCredentials;
@@ -50,7 +51,7 @@ public class SpotifyOAuthService {
         }
         
         if (clientId != null && clientSecret != null) {
-            this.spotifyApi = new SpotifyApi.Builder()
+            this.spotifyApi = SpotifyTransport.shared().apiBuilder()
                     .setClientId(clientId)
                     .setClientSecret(clientSecret)
                     .setRedirectUri(redirectUri)
@@ -80,7 +81,7 @@ public class SpotifyOAuthService {
         }
 
         if (this.clientId != null && this.clientSecret != null) {
-            this.spotifyApi = new SpotifyApi.Builder()
+            this.spotifyApi = SpotifyTransport.shared().apiBuilder()
                     .setClientId(this.clientId)
                     .setClientSecret(this.clientSecret)
                     .setRedirectUri(this.redirectUri)
@@ -116,7 +117,7 @@ public class SpotifyOAuthService {
             }
 
             try {
-                SpotifyApi api = new SpotifyApi.Builder()
+                SpotifyApi api = SpotifyTransport.shared().apiBuilder()
                         .setClientId(clientId)
                         .setClientSecret(clientSecret)
                         .build();
@@ -245,7 +246,7 @@ public class SpotifyOAuthService {
             return null;
         }
         try {
-            SpotifyApi api = new SpotifyApi.Builder()
+            SpotifyApi api = SpotifyTransport.shared().apiBuilder()
                     .setAccessToken(accessToken)
                     .build();
             
@@ -274,7 +275,7 @@ public class SpotifyOAuthService {
         }
 
         try {
-            SpotifyApi api = new SpotifyApi.Builder()
+            SpotifyApi api = SpotifyTransport.shared().apiBuilder()
                     .setClientId(clientId)
                     .setClientSecret(clientSecret)
                     .setRefreshToken(refreshToken)
@@ -328,7 +329,7 @@ public class SpotifyOAuthService {
         if (spotifyApi != null && effectiveRedirectUri != null && effectiveRedirectUri.equals(redirectUri)) {
             return spotifyApi;
         }
-        return new SpotifyApi.Builder()
+        return SpotifyTransport.shared().apiBuilder()
                 .setClientId(clientId)
                 .setClientSecret(clientSecret)
                 .setRedirectUri(effectiveRedirectUri != null ? effectiveRedirectUri : redirectUri)
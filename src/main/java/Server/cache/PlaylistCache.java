@@ -1,72 +1,161 @@
 package Server.cache;
 
 import Server.PlaylistData;
+import Server.TrackData;
+import Server.http.EncodedJson;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hctamlyniv.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Two-level cache for playlist data: in-memory with TTL + disk snapshots.
+ *
+ * The memory tier is bounded by entry count and by the estimated heap size of each page and
+ * evicts with a frequency-aware policy (see {@link WeightedLfuCache}). A background sweep drops
+ * expired entries from memory and expired snapshot files from disk.
+ *
+ * Expired entries that carry a Spotify {@code snapshot_id} are retained for a while longer so the
+ * caller can revalidate them with a cheap metadata request ({@link #lookupEntry},
+ * {@link #revalidate}) instead of reloading the whole playlist. Within the stale grace window an
+ * expired entry may also be served as-is while a single background refresh runs
+ * ({@link #refreshInBackground}).
+ *
+ * Keys are indexed by {@code userSignature}, and snapshot file names start with a hash of the
+ * signature, so one user's entries can be invalidated in both tiers without touching anyone else's.
+ *
+ * Snapshot writes and deletes never run on the caller's thread; they are queued on a
+ * {@link PlaylistSnapshotWriter}, which may drop writes under pressure.
  */
 public class PlaylistCache {
 
     private static final Logger log = LoggerFactory.getLogger(PlaylistCache.class);
-    private static final Duration CACHE_TTL = Duration.ofMinutes(5);
-    private static final Path CACHE_DIR = Paths.get("cache", "playlists");
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    private static final Duration REVALIDATION_WINDOW = Duration.ofHours(1);
+    private static final Path DEFAULT_CACHE_DIR = Paths.get("cache", "playlists");
     private static final HexFormat HEX_FORMAT = HexFormat.of();
+    private static final int MAX_PENDING_SNAPSHOT_WRITES = 256;
+    private static final long MAP_THRESHOLD_BYTES = 16 * 1024;
+    private static final long SWEEP_INTERVAL_MILLIS = Duration.ofMinutes(1).toMillis();
+    private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "playlist-cache-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Set<PlaylistCache> OPEN_CACHES = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    static {
+        SWEEPER.scheduleWithFixedDelay(PlaylistCache::sweepAll, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
 
     private final ObjectMapper mapper;
-    private final ConcurrentHashMap<PlaylistCacheKey, PlaylistCacheEntry> memoryCache = new ConcurrentHashMap<>();
-    private volatile String lastAuthSignature = null;
+    private final Path cacheDir;
+    private final Duration ttl;
+    private final long staleGraceMillis;
+    private final Set<PlaylistCacheKey> refreshing = ConcurrentHashMap.newKeySet();
+    private final AtomicLong backgroundRefreshes = new AtomicLong();
+    private final WeightedLfuCache<PlaylistCacheKey, PlaylistCacheEntry> memoryCache;
+    private final Map<String, Set<PlaylistCacheKey>> keysByUser = new ConcurrentHashMap<>();
+    private final PlaylistSnapshotWriter snapshotWriter;
+    private final PlaylistPrefetcher prefetcher = new PlaylistPrefetcher(Config.getPlaylistPrefetchPerUser());
 
     public PlaylistCache(ObjectMapper mapper) {
+        this(mapper, DEFAULT_CACHE_DIR);
+    }
+
+    /**
+     * Creates a cache that keeps its snapshots in {@code cacheDir} instead of {@code cache/playlists}.
+     */
+    public PlaylistCache(ObjectMapper mapper, Path cacheDir) {
+        this(mapper, cacheDir, Config.getPlaylistCacheMaxMegabytes() * 1024L * 1024L, Config.getPlaylistCacheMaxEntries(),
+                DEFAULT_TTL, Duration.ofSeconds(Config.getPlaylistCacheStaleGraceSeconds()));
+    }
+
+    public PlaylistCache(ObjectMapper mapper, long maxMemoryBytes, int maxEntries) {
+        this(mapper, maxMemoryBytes, maxEntries, DEFAULT_TTL);
+    }
+
+    public PlaylistCache(ObjectMapper mapper, long maxMemoryBytes, int maxEntries, Duration ttl) {
+        this(mapper, maxMemoryBytes, maxEntries, ttl, Duration.ofSeconds(Config.getPlaylistCacheStaleGraceSeconds()));
+    }
+
+    public PlaylistCache(ObjectMapper mapper, long maxMemoryBytes, int maxEntries, Duration ttl, Duration staleGrace) {
+        this(mapper, DEFAULT_CACHE_DIR, maxMemoryBytes, maxEntries, ttl, staleGrace);
+    }
+
+    public PlaylistCache(ObjectMapper mapper, Path cacheDir, long maxMemoryBytes, int maxEntries, Duration ttl,
+                         Duration staleGrace) {
         this.mapper = mapper;
+        this.cacheDir = cacheDir;
+        this.ttl = ttl;
+        this.staleGraceMillis = staleGrace.toMillis();
+        this.memoryCache = new WeightedLfuCache<>(maxMemoryBytes, maxEntries);
+        this.snapshotWriter = new PlaylistSnapshotWriter(MAX_PENDING_SNAPSHOT_WRITES);
         ensureCacheDir();
+        OPEN_CACHES.add(this);
     }
 
     private void ensureCacheDir() {
         try {
-            Files.createDirectories(CACHE_DIR);
+            Files.createDirectories(cacheDir);
         } catch (IOException e) {
             log.warn("Failed to create cache directory: {}", e.getMessage());
         }
     }
 
     /**
-     * Looks up a playlist from memory or disk cache.
+     * Looks up a playlist from memory or disk cache. Returns only unexpired data.
      */
     public PlaylistData lookup(PlaylistCacheKey key) {
+        PlaylistCacheEntry entry = lookupEntry(key);
+        return (entry != null && !entry.isExpired(System.currentTimeMillis())) ? entry.playlistData() : null;
+    }
+
+    /**
+     * Looks up an entry from memory or disk cache, including expired entries still held for
+     * revalidation. Check {@link PlaylistCacheEntry#isExpired} before serving it.
+     */
+    public PlaylistCacheEntry lookupEntry(PlaylistCacheKey key) {
         long now = System.currentTimeMillis();
 
         // Check memory cache
-        PlaylistCacheEntry entry = memoryCache.get(key);
+        PlaylistCacheEntry entry = memoryCache.get(key, now);
         if (entry != null) {
-            if (entry.isExpired(now)) {
-                memoryCache.remove(key, entry);
-                deleteSnapshot(key);
-                entry = null;
-            } else {
-                return entry.playlistData();
-            }
+            return entry;
         }
 
         // Check disk cache
         PlaylistCacheEntry snapshotEntry = readSnapshot(key);
         if (snapshotEntry != null) {
-            memoryCache.put(key, snapshotEntry);
-            return snapshotEntry.playlistData();
+            return remember(key, snapshotEntry);
         }
 
         return null;
@@ -76,10 +165,30 @@ public class PlaylistCache {
      * Stores playlist data in both memory and disk cache.
      */
     public void store(PlaylistCacheKey key, PlaylistData playlistData) {
-        long expiresAt = System.currentTimeMillis() + CACHE_TTL.toMillis();
-        PlaylistCacheEntry entry = new PlaylistCacheEntry(playlistData, expiresAt);
-        memoryCache.put(key, entry);
+        store(key, playlistData, null);
+    }
+
+    /**
+     * Stores playlist data loaded at Spotify snapshot {@code snapshotId} and returns the entry,
+     * including its encoded response.
+     */
+    public PlaylistCacheEntry store(PlaylistCacheKey key, PlaylistData playlistData, String snapshotId) {
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        PlaylistCacheEntry entry = remember(key, new PlaylistCacheEntry(playlistData, expiresAt, snapshotId));
         writeSnapshot(key, entry);
+        return entry;
+    }
+
+    /**
+     * Marks an expired entry as fresh again for another TTL, after the caller confirmed that the
+     * playlist's snapshot id is unchanged.
+     */
+    public PlaylistCacheEntry revalidate(PlaylistCacheKey key, PlaylistCacheEntry entry) {
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        // Same data, so the encoded response and its ETag stay valid.
+        PlaylistCacheEntry refreshed = remember(key, new PlaylistCacheEntry(entry.playlistData(), expiresAt, entry.snapshotId(), entry.encoded()));
+        writeSnapshot(key, refreshed);
+        return refreshed;
     }
 
     /**
@@ -88,19 +197,215 @@ public class PlaylistCache {
     public void remove(PlaylistCacheKey key) {
         memoryCache.remove(key);
         deleteSnapshot(key);
+        unindex(key);
+    }
+
+    /**
+     * Whether an expired entry may still be served while it is refreshed in the background.
+     */
+    public boolean isWithinStaleGrace(PlaylistCacheEntry entry, long now) {
+        return entry != null && now < entry.expiresAtMillis() + staleGraceMillis;
+    }
+
+    /**
+     * Seconds since the entry was stored or last revalidated.
+     */
+    public long ageSeconds(PlaylistCacheEntry entry, long now) {
+        long storedAt = entry.expiresAtMillis() - ttl.toMillis();
+        return Math.max(0L, (now - storedAt) / 1000L);
     }
 
     /**
-     * Invalidates all cached data when authentication changes.
+     * Runs {@code refresh} on a virtual thread unless a refresh for {@code key} is already
+     * running. Returns whether a refresh was started.
      */
-    public void invalidateForAuthChange(String newSignature) {
-        String normalized = (newSignature == null) ? "" : newSignature;
-        String previous = lastAuthSignature;
-        if (!Objects.equals(previous, normalized)) {
-            memoryCache.clear();
-            purgeAllSnapshots();
-            lastAuthSignature = normalized;
+    public boolean refreshInBackground(PlaylistCacheKey key, Runnable refresh) {
+        if (!refreshing.add(key)) {
+            return false;
         }
+        backgroundRefreshes.incrementAndGet();
+        try {
+            Thread.ofVirtual().name("playlist-cache-refresh").start(() -> {
+                try {
+                    refresh.run();
+                } catch (RuntimeException e) {
+                    log.warn("Background playlist refresh failed: {}", e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            refreshing.remove(key);
+            throw e;
+        }
+    }
+
+    /**
+     * Loads a page the client is likely to request next on a virtual thread and passes the result
+     * to {@code store}, within {@code owner}'s prefetch budget and unless {@code key} is already
+     * being prefetched. A prefetch cancelled before its load finishes never reaches {@code store}.
+     * Returns whether a prefetch was started.
+     */
+    public <T> boolean prefetchInBackground(String owner, PlaylistCacheKey key, Supplier<T> load, Consumer<T> store) {
+        return prefetcher.prefetch(owner, key, load, store);
+    }
+
+    /**
+     * Waits up to {@code timeout} for a running prefetch of {@code key}. Returns true if there was
+     * one and it completed, so a fresh {@link #lookupEntry} is worth trying before loading.
+     */
+    public boolean awaitPrefetch(PlaylistCacheKey key, Duration timeout) {
+        return prefetcher.await(key, timeout);
+    }
+
+    /**
+     * Cancels {@code owner}'s running prefetches, except those for {@code keepPlaylistId}
+     * (null cancels all). Returns how many were cancelled.
+     */
+    public int cancelPrefetches(String owner, String keepPlaylistId) {
+        return prefetcher.cancel(owner, keepPlaylistId);
+    }
+
+    /**
+     * Returns memory tier size, hit/miss and eviction statistics.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = memoryCache.snapshot();
+        stats.put("users", keysByUser.size());
+        stats.put("backgroundRefreshes", backgroundRefreshes.get());
+        stats.put("snapshotWriter", snapshotWriter.snapshot());
+        stats.put("prefetch", prefetcher.snapshot());
+        return stats;
+    }
+
+    /**
+     * Blocks until all queued snapshot writes and deletes have reached the disk.
+     */
+    public void flushSnapshots() throws InterruptedException {
+        snapshotWriter.flush();
+    }
+
+    /**
+     * Drops expired entries from memory and expired snapshots from disk.
+     */
+    public void sweepExpired() {
+        long now = System.currentTimeMillis();
+        memoryCache.sweepExpired(now);
+        purgeExpiredSnapshots(now);
+        // Drop index entries whose data is gone from both tiers.
+        for (Set<PlaylistCacheKey> keys : keysByUser.values()) {
+            keys.removeIf(key -> !memoryCache.containsKey(key) && !hasSnapshot(key));
+        }
+        keysByUser.values().removeIf(Set::isEmpty);
+    }
+
+    private PlaylistCacheEntry remember(PlaylistCacheKey key, PlaylistCacheEntry entry) {
+        PlaylistCacheEntry encoded = withEncoding(entry);
+        keysByUser.computeIfAbsent(signatureOf(key), s -> ConcurrentHashMap.newKeySet()).add(key);
+        int weight = estimateBytes(encoded.playlistData()) + (encoded.encoded() != null ? encoded.encoded().sizeBytes() : 0);
+        memoryCache.put(key, encoded, weight, retainUntil(encoded));
+        return encoded;
+    }
+
+    /**
+     * Encodes the response bytes once per stored page. If encoding fails the entry is kept
+     * without them and callers fall back to serializing on send.
+     */
+    private PlaylistCacheEntry withEncoding(PlaylistCacheEntry entry) {
+        if (entry.encoded() != null || entry.playlistData() == null) {
+            return entry;
+        }
+        try {
+            EncodedJson encoded = EncodedJson.of(mapper, entry.playlistData());
+            return new PlaylistCacheEntry(entry.playlistData(), entry.expiresAtMillis(), entry.snapshotId(), encoded);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to encode cached playlist: {}", e.getMessage());
+            return entry;
+        }
+    }
+
+    /**
+     * Entries stay around past expiry for the stale grace window, and entries with a snapshot id
+     * for at least the revalidation window.
+     */
+    private long retainUntil(PlaylistCacheEntry entry) {
+        return retainUntil(entry.expiresAtMillis(), entry.snapshotId() != null);
+    }
+
+    private long retainUntil(long expiresAtMillis, boolean hasSnapshotId) {
+        long extra = hasSnapshotId
+                ? Math.max(staleGraceMillis, REVALIDATION_WINDOW.toMillis())
+                : staleGraceMillis;
+        return expiresAtMillis + extra;
+    }
+
+    private static void sweepAll() {
+        List<PlaylistCache> caches;
+        synchronized (OPEN_CACHES) {
+            caches = new ArrayList<>(OPEN_CACHES);
+        }
+        for (PlaylistCache cache : caches) {
+            try {
+                cache.sweepExpired();
+            } catch (RuntimeException e) {
+                log.warn("Playlist cache sweep failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rough heap footprint of a playlist page: object headers plus two bytes per string char.
+     */
+    static int estimateBytes(PlaylistData data) {
+        if (data == null) {
+            return 0;
+        }
+        long bytes = 128 + stringBytes(data.getPlaylistName()) + stringBytes(data.getPlaylistCoverUrl()) + stringBytes(data.getPlaylistUrl());
+        for (TrackData track : data.getTracks()) {
+            bytes += 80
+                    + stringBytes(track.getSpotifyTrackId())
+                    + stringBytes(track.getTrackName())
+                    + stringBytes(track.getArtist())
+                    + stringBytes(track.getAlbum())
+                    + stringBytes(track.getAlbumUrl())
+                    + stringBytes(track.getDiscogsAlbumUrl())
+                    + stringBytes(track.getBarcode())
+                    + stringBytes(track.getCoverUrl());
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0L : 40L + 2L * value.length();
+    }
+
+    /**
+     * Invalidates everything cached for one user (memory entries and their snapshot files), e.g.
+     * after that user logs in or out. Their running prefetches are cancelled. Other users'
+     * entries are left alone.
+     */
+    public void invalidateUser(String userSignature) {
+        String signature = (userSignature == null) ? "" : userSignature;
+        prefetcher.cancel(signature, null);
+        Set<PlaylistCacheKey> keys = keysByUser.remove(signature);
+        if (keys != null) {
+            for (PlaylistCacheKey key : keys) {
+                memoryCache.remove(key);
+            }
+        }
+        purgeUserSnapshots(signature);
+    }
+
+    private void unindex(PlaylistCacheKey key) {
+        Set<PlaylistCacheKey> keys = keysByUser.get(signatureOf(key));
+        if (keys != null) {
+            keys.remove(key);
+        }
+    }
+
+    private static String signatureOf(PlaylistCacheKey key) {
+        return key.userSignature() == null ? "" : key.userSignature();
     }
 
     // =========================================================================
@@ -109,65 +414,124 @@ public class PlaylistCache {
 
     private PlaylistCacheEntry readSnapshot(PlaylistCacheKey key) {
         Path path = snapshotPath(key);
-        if (!Files.exists(path)) {
+        PlaylistSnapshotWriter.Op pending = snapshotWriter.pending(path);
+        PlaylistCacheSnapshot snapshot;
+        if (pending instanceof PlaylistSnapshotWriter.Write write) {
+            snapshot = write.snapshot();
+        } else if (pending != null) {
+            // A delete or purge is queued, so the file is already logically gone.
             return null;
+        } else {
+            snapshot = readSnapshotFile(path);
+            if (snapshot == null) {
+                return null;
+            }
         }
-        try {
-            byte[] bytes = Files.readAllBytes(path);
-            PlaylistCacheSnapshot snapshot = mapper.readValue(bytes, PlaylistCacheSnapshot.class);
-            long now = System.currentTimeMillis();
-            if (snapshot.expiresAtMillis() <= now) {
-                Files.deleteIfExists(path);
+        PlaylistCacheEntry entry = new PlaylistCacheEntry(snapshot.playlistData(), snapshot.expiresAtMillis(), snapshot.snapshotId());
+        if (retainUntil(entry) <= System.currentTimeMillis()) {
+            snapshotWriter.delete(path);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Reads a snapshot file, checking the fixed header first so expired, truncated or foreign
+     * files are rejected (and queued for deletion) without reading the body. Large bodies are
+     * decoded straight from a mapped buffer.
+     */
+    private PlaylistCacheSnapshot readSnapshotFile(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer headerBuffer = ByteBuffer.allocate(PlaylistSnapshotCodec.HEADER_BYTES);
+            channel.read(headerBuffer, 0);
+            PlaylistSnapshotCodec.Header header = PlaylistSnapshotCodec.readHeader(headerBuffer.flip());
+            if (header.fileLength() != size) {
+                throw new IOException("Snapshot length mismatch");
+            }
+            if (retainUntil(header.expiresAtMillis(), header.hasSnapshotId()) <= System.currentTimeMillis()) {
+                snapshotWriter.delete(path);
                 return null;
             }
-            return new PlaylistCacheEntry(snapshot.playlistData(), snapshot.expiresAtMillis());
+            ByteBuffer file;
+            if (size >= MAP_THRESHOLD_BYTES) {
+                file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                file = ByteBuffer.allocate((int) size);
+                channel.read(file, 0);
+                file.flip();
+            }
+            return PlaylistSnapshotCodec.decode(file);
+        } catch (NoSuchFileException e) {
+            return null;
         } catch (IOException e) {
-            log.warn("Failed to read cache snapshot: {}", e.getMessage());
+            log.warn("Discarding unreadable cache snapshot: {}", e.getMessage());
+            snapshotWriter.delete(path);
             return null;
         }
     }
 
+    private boolean hasSnapshot(PlaylistCacheKey key) {
+        Path path = snapshotPath(key);
+        PlaylistSnapshotWriter.Op pending = snapshotWriter.pending(path);
+        return pending != null ? pending instanceof PlaylistSnapshotWriter.Write : Files.exists(path);
+    }
+
     private void writeSnapshot(PlaylistCacheKey key, PlaylistCacheEntry entry) {
-        try {
-            Files.createDirectories(CACHE_DIR);
-            PlaylistCacheSnapshot snapshot = new PlaylistCacheSnapshot(entry.playlistData(), entry.expiresAtMillis());
-            byte[] bytes = mapper.writeValueAsBytes(snapshot);
-            Files.write(snapshotPath(key), bytes);
-        } catch (IOException e) {
-            log.warn("Failed to write cache snapshot: {}", e.getMessage());
+        PlaylistCacheSnapshot snapshot = new PlaylistCacheSnapshot(entry.playlistData(), entry.expiresAtMillis(), entry.snapshotId());
+        if (!snapshotWriter.write(snapshotPath(key), snapshot)) {
+            log.debug("Snapshot writer queue full, skipping disk snapshot");
         }
     }
 
     private void deleteSnapshot(PlaylistCacheKey key) {
-        try {
-            Files.deleteIfExists(snapshotPath(key));
-        } catch (IOException e) {
-            log.warn("Failed to delete cache snapshot: {}", e.getMessage());
-        }
+        snapshotWriter.delete(snapshotPath(key));
     }
 
-    private void purgeAllSnapshots() {
-        try {
-            if (!Files.exists(CACHE_DIR)) {
-                return;
-            }
-            try (var stream = Files.list(CACHE_DIR)) {
-                stream.forEach(path -> {
-                    try {
+    /**
+     * Deletes every snapshot of one user, including ones written before a restart that the
+     * in-memory index no longer knows about.
+     */
+    private void purgeUserSnapshots(String userSignature) {
+        snapshotWriter.purge(cacheDir, userPrefix(userSignature) + "-");
+    }
+
+    /**
+     * Snapshots are rewritten on every store or revalidation, so anything older than the TTL plus
+     * the revalidation window has expired.
+     */
+    private void purgeExpiredSnapshots(long now) {
+        if (!Files.exists(cacheDir)) {
+            return;
+        }
+        try (var stream = Files.list(cacheDir)) {
+            stream.forEach(path -> {
+                try {
+                    if (Files.getLastModifiedTime(path).toMillis() + ttl.toMillis() + Math.max(staleGraceMillis, REVALIDATION_WINDOW.toMillis()) <= now) {
                         Files.deleteIfExists(path);
-                    } catch (IOException ignored) {}
-                });
-            }
+                    }
+                } catch (IOException ignored) {}
+            });
         } catch (IOException e) {
-            log.warn("Failed to purge cache directory: {}", e.getMessage());
+            log.warn("Failed to sweep cache directory: {}", e.getMessage());
         }
     }
 
     private Path snapshotPath(PlaylistCacheKey key) {
-        return CACHE_DIR.resolve(hashCacheKey(key) + ".json");
+        return cacheDir.resolve(userPrefix(signatureOf(key)) + "-" + hashCacheKey(key) + PlaylistSnapshotCodec.FILE_EXTENSION);
+    }
+
+    private static String userPrefix(String userSignature) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(userSignature.getBytes(StandardCharsets.UTF_8));
+            return HEX_FORMAT.formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
-    private String hashCacheKey(PlaylistCacheKey key) {
+    private static String hashCacheKey(PlaylistCacheKey key) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             digest.update((key.playlistId() == null ? "" : key.playlistId()).getBytes(StandardCharsets.UTF_8));
@@ -1,14 +1,24 @@
 package Server.cache;
 
 import Server.PlaylistData;
+import Server.http.EncodedJson;
 
 /**
- * Cache entry holding playlist data with expiration.
+ * Cache entry holding playlist data with expiration and the Spotify {@code snapshot_id} it was
+ * loaded at (null if unknown), which allows revalidating it once it expires. Entries held in
+ * memory also carry the encoded response ({@code encoded}, null until encoded), so hits are
+ * served without serializing the page again.
  */
 public record PlaylistCacheEntry(
     PlaylistData playlistData,
-    long expiresAtMillis
+    long expiresAtMillis,
+    String snapshotId,
+    EncodedJson encoded
 ) {
+    public PlaylistCacheEntry(PlaylistData playlistData, long expiresAtMillis, String snapshotId) {
+        this(playlistData, expiresAtMillis, snapshotId, null);
+    }
+
     public boolean isExpired(long now) {
         return now >= expiresAtMillis;
     }
@@ -2,10 +2,22 @@ package Server.cache;
 
 /**
  * Cache key for playlist data, combining playlist ID with user context.
+ * Public playlists use {@link #shared} keys so every user hits the same entry.
  */
 public record PlaylistCacheKey(
     String playlistId,
     String userSignature,
     int offset,
     int limit
-) {}
+) {
+    /** Signature of the user-independent tier; not a valid session id. */
+    public static final String SHARED_SIGNATURE = "~shared";
+
+    public static PlaylistCacheKey shared(String playlistId, int offset, int limit) {
+        return new PlaylistCacheKey(playlistId, SHARED_SIGNATURE, offset, limit);
+    }
+
+    public boolean isShared() {
+        return SHARED_SIGNATURE.equals(userSignature);
+    }
+}
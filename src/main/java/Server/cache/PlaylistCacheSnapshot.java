@@ -7,5 +7,6 @@ import Server.PlaylistData;
  */
 public record PlaylistCacheSnapshot(
     PlaylistData playlistData,
-    long expiresAtMillis
+    long expiresAtMillis,
+    String snapshotId
 ) {}
@@ -0,0 +1,188 @@
+package Server.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Speculative background loads of playlist pages the client is likely to ask for next.
+ *
+ * Each owner (a session, or an anonymous client) may have at most {@code maxPerOwner} prefetches
+ * in flight; further ones are skipped rather than queued, and a page that is already being
+ * prefetched is not started twice. A request for a page that is still being prefetched can
+ * {@link #await} it instead of loading the same page again. Prefetches are cancelled when their
+ * owner moves on: cancelling interrupts the load, and a cancelled load never stores its result.
+ */
+final class PlaylistPrefetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaylistPrefetcher.class);
+
+    private final int maxPerOwner;
+    private final Map<PlaylistCacheKey, Prefetch> inFlight = new LinkedHashMap<>();
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+
+    PlaylistPrefetcher(int maxPerOwner) {
+        this.maxPerOwner = maxPerOwner;
+    }
+
+    private final class Prefetch {
+        final String owner;
+        final PlaylistCacheKey key;
+        final FutureTask<Void> task;
+        boolean claimed;
+
+        <T> Prefetch(String owner, PlaylistCacheKey key, Supplier<T> load, Consumer<T> store) {
+            this.owner = owner;
+            this.key = key;
+            this.task = new FutureTask<>(() -> {
+                T loaded = load.get();
+                if (claim(this)) {
+                    store.accept(loaded);
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Runs {@code load} on a virtual thread and hands its result to {@code store}, unless
+     * {@code key} is already being prefetched or {@code owner} has no budget left. Returns whether
+     * a prefetch was started.
+     */
+    <T> boolean prefetch(String owner, PlaylistCacheKey key, Supplier<T> load, Consumer<T> store) {
+        Prefetch prefetch;
+        synchronized (this) {
+            if (inFlight.containsKey(key)) {
+                return false;
+            }
+            if (countFor(owner) >= maxPerOwner) {
+                skipped.incrementAndGet();
+                return false;
+            }
+            prefetch = new Prefetch(owner, key, load, store);
+            inFlight.put(key, prefetch);
+        }
+        started.incrementAndGet();
+        try {
+            Thread.ofVirtual().name("playlist-prefetch").start(() -> {
+                prefetch.task.run();
+                try {
+                    prefetch.task.get();
+                } catch (ExecutionException e) {
+                    log.debug("Playlist prefetch failed: {}", e.getCause().getMessage());
+                } catch (CancellationException | InterruptedException ignored) {
+                    // Cancelled: nothing was stored.
+                } finally {
+                    release(prefetch);
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            release(prefetch);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits up to {@code timeout} for a prefetch of {@code key} to finish. Returns true if one was
+     * running and completed normally, i.e. its result has been handed to its store callback.
+     */
+    boolean await(PlaylistCacheKey key, Duration timeout) {
+        Prefetch prefetch;
+        synchronized (this) {
+            prefetch = inFlight.get(key);
+        }
+        if (prefetch == null) {
+            return false;
+        }
+        try {
+            prefetch.task.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            joined.incrementAndGet();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | CancellationException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Cancels {@code owner}'s prefetches, except those for {@code keepPlaylistId} (null cancels
+     * all of them). Returns how many were cancelled.
+     */
+    int cancel(String owner, String keepPlaylistId) {
+        int count = 0;
+        synchronized (this) {
+            Iterator<Prefetch> it = inFlight.values().iterator();
+            while (it.hasNext()) {
+                Prefetch prefetch = it.next();
+                if (prefetch.owner.equals(owner) && !prefetch.claimed
+                        && !prefetch.key.playlistId().equals(keepPlaylistId)) {
+                    it.remove();
+                    prefetch.task.cancel(true);
+                    count++;
+                }
+            }
+        }
+        cancelled.addAndGet(count);
+        return count;
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("inFlight", inFlight.size());
+        }
+        stats.put("started", started.get());
+        stats.put("skipped", skipped.get());
+        stats.put("completed", completed.get());
+        stats.put("cancelled", cancelled.get());
+        stats.put("joined", joined.get());
+        return stats;
+    }
+
+    /**
+     * Commits a finished load unless it was cancelled first. Once claimed, a prefetch can no
+     * longer be cancelled; it stays in flight (for {@link #await}) until it has been stored.
+     */
+    private synchronized boolean claim(Prefetch prefetch) {
+        if (inFlight.get(prefetch.key) != prefetch) {
+            return false;
+        }
+        prefetch.claimed = true;
+        completed.incrementAndGet();
+        return true;
+    }
+
+    private synchronized void release(Prefetch prefetch) {
+        inFlight.remove(prefetch.key, prefetch);
+    }
+
+    private int countFor(String owner) {
+        int count = 0;
+        for (Prefetch prefetch : inFlight.values()) {
+            if (prefetch.owner.equals(owner)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
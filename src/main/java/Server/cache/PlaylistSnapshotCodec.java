@@ -0,0 +1,205 @@
+package Server.cache;
+
+import Server.PlaylistData;
+import Server.TrackData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary on-disk format for {@link PlaylistCacheSnapshot}s.
+ *
+ * <pre>
+ * header (24 bytes): int magic, short version, short flags, long expiresAtMillis, int bodyLength, int crc32(body)
+ * body:              int stringCount, stringCount x (int byteLength, UTF-8 bytes),
+ *                    int snapshotId, int name, int coverUrl, int url,
+ *                    int totalTracks, int offset, int nextOffset, byte hasMore,
+ *                    int trackCount, trackCount x (8 string refs, int releaseYear)
+ * </pre>
+ *
+ * Strings are stored once in a table and referenced by index ({@code -1} for null), so the
+ * artist, album and cover values repeated across a page cost four bytes each. Expiry and the
+ * snapshot-id flag live in the fixed header, so stale or foreign files can be rejected without
+ * touching the body.
+ */
+final class PlaylistSnapshotCodec {
+
+    static final int HEADER_BYTES = 24;
+    static final String FILE_EXTENSION = ".snap";
+
+    private static final int MAGIC = 0x564D5053; // "VMPS"
+    private static final short VERSION = 1;
+    private static final short FLAG_SNAPSHOT_ID = 0x1;
+    private static final int NULL_REF = -1;
+    private static final int NULL_YEAR = Integer.MIN_VALUE;
+
+    record Header(long expiresAtMillis, boolean hasSnapshotId, int bodyLength, int checksum) {
+        long fileLength() {
+            return (long) HEADER_BYTES + bodyLength;
+        }
+    }
+
+    private PlaylistSnapshotCodec() {}
+
+    static byte[] encode(PlaylistCacheSnapshot snapshot) {
+        PlaylistData data = snapshot.playlistData();
+        List<TrackData> tracks = data.getTracks();
+        StringTable strings = new StringTable();
+        int snapshotIdRef = strings.ref(snapshot.snapshotId());
+        int nameRef = strings.ref(data.getPlaylistName());
+        int coverRef = strings.ref(data.getPlaylistCoverUrl());
+        int urlRef = strings.ref(data.getPlaylistUrl());
+        int[] trackRefs = new int[tracks.size() * 8];
+        for (int i = 0; i < tracks.size(); i++) {
+            TrackData track = tracks.get(i);
+            int base = i * 8;
+            trackRefs[base] = strings.ref(track.getSpotifyTrackId());
+            trackRefs[base + 1] = strings.ref(track.getTrackName());
+            trackRefs[base + 2] = strings.ref(track.getArtist());
+            trackRefs[base + 3] = strings.ref(track.getAlbum());
+            trackRefs[base + 4] = strings.ref(track.getAlbumUrl());
+            trackRefs[base + 5] = strings.ref(track.getDiscogsAlbumUrl());
+            trackRefs[base + 6] = strings.ref(track.getBarcode());
+            trackRefs[base + 7] = strings.ref(track.getCoverUrl());
+        }
+
+        int bodyLength = 4 + strings.encodedBytes() + 16 + 13 + 4 + tracks.size() * (8 * 4 + 4);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        buffer.position(HEADER_BYTES);
+        buffer.putInt(strings.values.size());
+        for (byte[] value : strings.values) {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+        buffer.putInt(snapshotIdRef).putInt(nameRef).putInt(coverRef).putInt(urlRef);
+        buffer.putInt(data.getTotalTracks()).putInt(data.getOffset()).putInt(data.getNextOffset());
+        buffer.put((byte) (data.isHasMore() ? 1 : 0));
+        buffer.putInt(tracks.size());
+        for (int i = 0; i < tracks.size(); i++) {
+            for (int j = 0; j < 8; j++) {
+                buffer.putInt(trackRefs[i * 8 + j]);
+            }
+            Integer year = tracks.get(i).getReleaseYear();
+            buffer.putInt(year != null ? year : NULL_YEAR);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, bodyLength);
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, VERSION);
+        buffer.putShort(6, snapshot.snapshotId() != null ? FLAG_SNAPSHOT_ID : 0);
+        buffer.putLong(8, snapshot.expiresAtMillis());
+        buffer.putInt(16, bodyLength);
+        buffer.putInt(20, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * Parses the fixed header at the buffer's position. Fails on a foreign or newer-version file.
+     */
+    static Header readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES) {
+            throw new IOException("Snapshot header truncated");
+        }
+        int start = buffer.position();
+        if (buffer.getInt(start) != MAGIC) {
+            throw new IOException("Not a playlist snapshot");
+        }
+        short version = buffer.getShort(start + 4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        short flags = buffer.getShort(start + 6);
+        int bodyLength = buffer.getInt(start + 16);
+        if (bodyLength < 0) {
+            throw new IOException("Corrupt snapshot header");
+        }
+        return new Header(buffer.getLong(start + 8), (flags & FLAG_SNAPSHOT_ID) != 0, bodyLength, buffer.getInt(start + 20));
+    }
+
+    /**
+     * Decodes a whole snapshot file (header included), verifying its length and checksum.
+     */
+    static PlaylistCacheSnapshot decode(ByteBuffer file) throws IOException {
+        Header header = readHeader(file);
+        if (file.remaining() != header.fileLength()) {
+            throw new IOException("Snapshot length mismatch");
+        }
+        ByteBuffer body = file.slice(file.position() + HEADER_BYTES, header.bodyLength());
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != header.checksum()) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        try {
+            return decodeBody(body, header.expiresAtMillis());
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt snapshot body", e);
+        }
+    }
+
+    private static PlaylistCacheSnapshot decodeBody(ByteBuffer body, long expiresAtMillis) {
+        String[] strings = new String[body.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[body.getInt()];
+            body.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        String snapshotId = deref(strings, body.getInt());
+        String name = deref(strings, body.getInt());
+        String coverUrl = deref(strings, body.getInt());
+        String url = deref(strings, body.getInt());
+        int totalTracks = body.getInt();
+        int offset = body.getInt();
+        int nextOffset = body.getInt();
+        boolean hasMore = body.get() != 0;
+        int trackCount = body.getInt();
+        List<TrackData> tracks = new ArrayList<>(trackCount);
+        for (int i = 0; i < trackCount; i++) {
+            String id = deref(strings, body.getInt());
+            String trackName = deref(strings, body.getInt());
+            String artist = deref(strings, body.getInt());
+            String album = deref(strings, body.getInt());
+            String albumUrl = deref(strings, body.getInt());
+            String discogsUrl = deref(strings, body.getInt());
+            String barcode = deref(strings, body.getInt());
+            String cover = deref(strings, body.getInt());
+            int year = body.getInt();
+            tracks.add(new TrackData(id, trackName, artist, album, year == NULL_YEAR ? null : year, albumUrl, discogsUrl, barcode, cover));
+        }
+        PlaylistData data = new PlaylistData(name, coverUrl, url, tracks, totalTracks, offset, nextOffset, hasMore);
+        return new PlaylistCacheSnapshot(data, expiresAtMillis, snapshotId);
+    }
+
+    private static String deref(String[] strings, int ref) {
+        return ref == NULL_REF ? null : strings[ref];
+    }
+
+    private static final class StringTable {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<byte[]> values = new ArrayList<>();
+        private int bytes;
+
+        int ref(String value) {
+            if (value == null) {
+                return NULL_REF;
+            }
+            return refs.computeIfAbsent(value, v -> {
+                byte[] encoded = v.getBytes(StandardCharsets.UTF_8);
+                values.add(encoded);
+                bytes += 4 + encoded.length;
+                return values.size() - 1;
+            });
+        }
+
+        int encodedBytes() {
+            return bytes;
+        }
+    }
+}
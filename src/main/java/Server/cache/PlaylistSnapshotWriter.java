@@ -0,0 +1,260 @@
+package Server.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves {@link PlaylistCache} disk I/O off the request path.
+ *
+ * Snapshot writes, deletes and per-user purges are queued and applied by one shared background
+ * thread. The queue holds at most one pending operation per file (a newer write or delete replaces
+ * the older one and moves to the back), and is bounded: when full, new writes are dropped, since
+ * the memory tier still has the data. Deletes and purges are never dropped, because skipping them
+ * could resurrect invalidated data. Until applied, pending operations are visible to readers via
+ * {@link #pending(Path)}.
+ */
+final class PlaylistSnapshotWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaylistSnapshotWriter.class);
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "playlist-snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    sealed interface Op permits Write, Delete, Purge {}
+
+    record Write(Path path, PlaylistCacheSnapshot snapshot) implements Op {}
+
+    record Delete(Path path) implements Op {}
+
+    record Purge(Path dir, String filePrefix) implements Op {}
+
+    private final int maxPendingWrites;
+    private final Executor executor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+    private final LinkedHashMap<Object, Op> pending = new LinkedHashMap<>();
+    private int pendingWrites;
+    private boolean draining;
+    private Op inProgress;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    PlaylistSnapshotWriter(int maxPendingWrites) {
+        this(maxPendingWrites, WORKER);
+    }
+
+    PlaylistSnapshotWriter(int maxPendingWrites, Executor executor) {
+        this.maxPendingWrites = Math.max(1, maxPendingWrites);
+        this.executor = executor;
+    }
+
+    /**
+     * Queues a snapshot write. Returns false if it was dropped because the queue is full.
+     */
+    boolean write(Path path, PlaylistCacheSnapshot snapshot) {
+        lock.lock();
+        try {
+            Op previous = pending.get(path);
+            if (previous == null && pendingWrites >= maxPendingWrites) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            enqueue(path, new Write(path, snapshot));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void delete(Path path) {
+        lock.lock();
+        try {
+            enqueue(path, new Delete(path));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues deletion of every file in {@code dir} whose name starts with {@code filePrefix}.
+     */
+    void purge(Path dir, String filePrefix) {
+        lock.lock();
+        try {
+            // Queued writes and deletes for the user's files are superseded by the purge.
+            Iterator<Map.Entry<Object, Op>> it = pending.entrySet().iterator();
+            while (it.hasNext()) {
+                Op op = it.next().getValue();
+                Path target = op instanceof Write write ? write.path() : op instanceof Delete delete ? delete.path() : null;
+                if (target != null && target.getFileName().toString().startsWith(filePrefix)) {
+                    it.remove();
+                    coalesced.incrementAndGet();
+                    if (op instanceof Write) {
+                        pendingWrites--;
+                    }
+                }
+            }
+            enqueue("purge:" + filePrefix, new Purge(dir, filePrefix));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the operation that will next change {@code path}: a pending or in-progress write or
+     * delete, or a purge covering it. Null if the file on disk is current.
+     */
+    Op pending(Path path) {
+        lock.lock();
+        try {
+            Op op = pending.get(path);
+            if (op != null) {
+                return op;
+            }
+            String name = path.getFileName().toString();
+            for (Op queued : pending.values()) {
+                if (queued instanceof Purge purge && name.startsWith(purge.filePrefix())) {
+                    return purge;
+                }
+            }
+            // The op being applied still counts until it is done: a purge or delete that is halfway
+            // through must not let readers pick up the file it is about to remove.
+            return switch (inProgress) {
+                case Write write when write.path().equals(path) -> write;
+                case Delete delete when delete.path().equals(path) -> delete;
+                case Purge purge when name.startsWith(purge.filePrefix()) -> purge;
+                case null, default -> null;
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until everything queued so far has been applied.
+     */
+    void flush() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!pending.isEmpty() || draining) {
+                drained.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Map<String, Object> snapshot() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("queued", pending.size());
+            stats.put("written", written.get());
+            stats.put("coalesced", coalesced.get());
+            stats.put("dropped", dropped.get());
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock.
+    private void enqueue(Object key, Op op) {
+        Op previous = pending.remove(key);
+        if (previous != null) {
+            coalesced.incrementAndGet();
+            if (previous instanceof Write) {
+                pendingWrites--;
+            }
+        }
+        // Re-inserting moves the key to the back, so it is applied after anything queued earlier.
+        pending.put(key, op);
+        if (op instanceof Write) {
+            pendingWrites++;
+        }
+        if (!draining) {
+            draining = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Op op;
+            lock.lock();
+            try {
+                Iterator<Op> it = pending.values().iterator();
+                if (!it.hasNext()) {
+                    draining = false;
+                    inProgress = null;
+                    drained.signalAll();
+                    return;
+                }
+                op = it.next();
+                it.remove();
+                if (op instanceof Write) {
+                    pendingWrites--;
+                }
+                inProgress = op;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                apply(op);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Playlist snapshot {} failed: {}", op.getClass().getSimpleName().toLowerCase(), e.getMessage());
+            }
+        }
+    }
+
+    private void apply(Op op) throws IOException {
+        switch (op) {
+            case Write write -> {
+                Path dir = write.path().getParent();
+                Files.createDirectories(dir);
+                Path temp = Files.createTempFile(dir, write.path().getFileName().toString(), ".tmp");
+                try {
+                    Files.write(temp, PlaylistSnapshotCodec.encode(write.snapshot()));
+                    try {
+                        Files.move(temp, write.path(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(temp, write.path(), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                written.incrementAndGet();
+            }
+            case Delete delete -> Files.deleteIfExists(delete.path());
+            case Purge purge -> {
+                if (!Files.exists(purge.dir())) {
+                    return;
+                }
+                try (var stream = Files.list(purge.dir())) {
+                    for (Path path : stream.filter(p -> p.getFileName().toString().startsWith(purge.filePrefix())).toList()) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package Server.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size- and weight-bounded in-memory cache with a W-TinyLFU style policy.
+ *
+ * New entries land in a small LRU admission window. Entries leaving the window compete with the
+ * oldest entry of the main space's probation segment, and only the one with the higher estimated
+ * access frequency (from a count-min sketch that is periodically halved) stays. Entries hit again
+ * in probation are promoted to the protected segment. This keeps one-off lookups from flushing
+ * popular entries. Entries also carry an expiry time and are dropped on access or by
+ * {@link #sweepExpired(long)}.
+ */
+public final class WeightedLfuCache<K, V> {
+
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+
+    private enum Segment { WINDOW, PROBATION, PROTECTED }
+
+    private final long maxWeight;
+    private final int maxEntries;
+    private final long windowMaxWeight;
+    private final int windowMaxEntries;
+    private final long protectedMaxWeight;
+    private final int protectedMaxEntries;
+    private final FrequencySketch sketch;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<K, Node<K, V>> data = new HashMap<>();
+    private final LinkedHashMap<K, Node<K, V>> window = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node<K, V>> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node<K, V>> protectedSegment = new LinkedHashMap<>();
+    private long windowWeight;
+    private long protectedWeight;
+    private long totalWeight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public WeightedLfuCache(long maxWeight, int maxEntries) {
+        this.maxWeight = Math.max(1L, maxWeight);
+        this.maxEntries = Math.max(1, maxEntries);
+        this.windowMaxWeight = Math.max(1L, (long) (this.maxWeight * WINDOW_SHARE));
+        this.windowMaxEntries = Math.max(1, (int) (this.maxEntries * WINDOW_SHARE));
+        this.protectedMaxWeight = (long) ((this.maxWeight - windowMaxWeight) * PROTECTED_SHARE);
+        this.protectedMaxEntries = (int) ((this.maxEntries - windowMaxEntries) * PROTECTED_SHARE);
+        this.sketch = new FrequencySketch(this.maxEntries);
+    }
+
+    /**
+     * Returns the live value for {@code key}, or null if it is absent or expired.
+     */
+    public V get(K key, long now) {
+        lock.lock();
+        try {
+            sketch.increment(key);
+            Node<K, V> node = data.get(key);
+            if (node == null) {
+                misses++;
+                return null;
+            }
+            if (node.expiresAtMillis <= now) {
+                unlink(node);
+                expirations++;
+                misses++;
+                return null;
+            }
+            hits++;
+            onAccess(node);
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts or replaces {@code key}. Entries heavier than the whole cache are not stored.
+     */
+    public void put(K key, V value, int weight, long expiresAtMillis) {
+        lock.lock();
+        try {
+            sketch.increment(key);
+            Node<K, V> existing = data.get(key);
+            if (existing != null) {
+                unlink(existing);
+            }
+            if (weight > maxWeight) {
+                return;
+            }
+            Node<K, V> node = new Node<>(key, value, Math.max(1, weight), expiresAtMillis);
+            data.put(key, node);
+            totalWeight += node.weight;
+            link(node, Segment.WINDOW);
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether {@code key} is held, without counting as an access.
+     */
+    public boolean containsKey(K key) {
+        lock.lock();
+        try {
+            return data.containsKey(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public V remove(K key) {
+        lock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every expired entry and returns how many were removed.
+     */
+    public int sweepExpired(long now) {
+        lock.lock();
+        try {
+            int removed = 0;
+            for (Node<K, V> node : new ArrayList<>(data.values())) {
+                if (node.expiresAtMillis <= now) {
+                    unlink(node);
+                    removed++;
+                }
+            }
+            expirations += removed;
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return data.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long weightedSize() {
+        lock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns size, hit/miss and eviction metrics.
+     */
+    public Map<String, Object> snapshot() {
+        lock.lock();
+        try {
+            long lookups = hits + misses;
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("entries", data.size());
+            stats.put("maxEntries", maxEntries);
+            stats.put("weightedBytes", totalWeight);
+            stats.put("maxBytes", maxWeight);
+            stats.put("hits", hits);
+            stats.put("misses", misses);
+            stats.put("hitRate", lookups > 0 ? Math.round(hits * 1000.0 / lookups) / 1000.0 : 0.0);
+            stats.put("evictions", evictions);
+            stats.put("expirations", expirations);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // =========================================================================
+    // Policy
+    // =========================================================================
+
+    private void onAccess(Node<K, V> node) {
+        switch (node.segment) {
+            case WINDOW -> {
+                window.remove(node.key);
+                window.put(node.key, node);
+            }
+            case PROBATION -> {
+                probation.remove(node.key);
+                link(node, Segment.PROTECTED);
+                // Demote the coldest protected entries back to probation once protected is full.
+                Iterator<Node<K, V>> it = protectedSegment.values().iterator();
+                while ((protectedWeight > protectedMaxWeight || protectedSegment.size() > protectedMaxEntries) && it.hasNext()) {
+                    Node<K, V> demoted = it.next();
+                    if (demoted == node) {
+                        break;
+                    }
+                    it.remove();
+                    protectedWeight -= demoted.weight;
+                    demoted.segment = Segment.PROBATION;
+                    probation.put(demoted.key, demoted);
+                }
+            }
+            case PROTECTED -> {
+                protectedSegment.remove(node.key);
+                protectedSegment.put(node.key, node);
+            }
+        }
+    }
+
+    private void evict() {
+        // Entries overflowing the window become admission candidates at the tail of probation.
+        List<Node<K, V>> candidates = new ArrayList<>();
+        Iterator<Node<K, V>> windowIt = window.values().iterator();
+        while ((windowWeight > windowMaxWeight || window.size() > windowMaxEntries) && windowIt.hasNext()) {
+            Node<K, V> candidate = windowIt.next();
+            windowIt.remove();
+            windowWeight -= candidate.weight;
+            candidate.segment = Segment.PROBATION;
+            probation.put(candidate.key, candidate);
+            candidates.add(candidate);
+        }
+
+        int next = 0;
+        while (overBudget()) {
+            Node<K, V> candidate = null;
+            while (candidate == null && next < candidates.size()) {
+                Node<K, V> c = candidates.get(next++);
+                if (data.get(c.key) == c && c.segment == Segment.PROBATION) {
+                    candidate = c;
+                }
+            }
+            Node<K, V> victim = firstOf(probation);
+            if (candidate != null && victim != null && victim != candidate) {
+                // Admit the candidate only if it is accessed more often than the victim.
+                evictNode(sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate);
+            } else if (victim != null) {
+                evictNode(victim);
+            } else {
+                Node<K, V> fallback = firstOf(protectedSegment) != null ? firstOf(protectedSegment) : firstOf(window);
+                if (fallback == null) {
+                    return;
+                }
+                evictNode(fallback);
+            }
+        }
+    }
+
+    private boolean overBudget() {
+        return totalWeight > maxWeight || data.size() > maxEntries;
+    }
+
+    private void evictNode(Node<K, V> node) {
+        unlink(node);
+        evictions++;
+    }
+
+    private static <K, V> Node<K, V> firstOf(LinkedHashMap<K, Node<K, V>> segment) {
+        return segment.isEmpty() ? null : segment.values().iterator().next();
+    }
+
+    private void link(Node<K, V> node, Segment segment) {
+        node.segment = segment;
+        switch (segment) {
+            case WINDOW -> {
+                window.put(node.key, node);
+                windowWeight += node.weight;
+            }
+            case PROBATION -> probation.put(node.key, node);
+            case PROTECTED -> {
+                protectedSegment.put(node.key, node);
+                protectedWeight += node.weight;
+            }
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (data.get(node.key) != node) {
+            return;
+        }
+        data.remove(node.key);
+        switch (node.segment) {
+            case WINDOW -> {
+                window.remove(node.key);
+                windowWeight -= node.weight;
+            }
+            case PROBATION -> probation.remove(node.key);
+            case PROTECTED -> {
+                protectedSegment.remove(node.key);
+                protectedWeight -= node.weight;
+            }
+        }
+        totalWeight -= node.weight;
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final int weight;
+        private final long expiresAtMillis;
+        private Segment segment;
+
+        private Node(K key, V value, int weight, long expiresAtMillis) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    /**
+     * Count-min sketch with 4-bit counters; all counters are halved after every
+     * {@code 10 * capacity} increments so old popularity fades.
+     */
+    static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int[] SEEDS = {0x97cb3127, 0x1b873593, 0x85ebca6b, 0xc2b2ae35};
+
+        private final byte[][] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+            this.table = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(16, capacity);
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int index = indexOf(hash, i);
+                if (table[i][index] < 15) {
+                    table[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < DEPTH; i++) {
+                min = Math.min(min, table[i][indexOf(hash, i)]);
+            }
+            return min;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : table) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (byte) (row[i] >>> 1);
+                }
+            }
+            additions /= 2;
+        }
+
+        private static int spread(int hash) {
+            int h = hash * 0x85ebca6b;
+            return h ^ (h >>> 15);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package Server.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A JSON response encoded once and reusable across requests: the UTF-8 body, a gzip variant
+ * (null for bodies too small to benefit) and a strong ETag derived from the body. The gzip
+ * variant has its own tag, since it is a different representation.
+ */
+public record EncodedJson(byte[] body, byte[] gzipBody, String etag) {
+
+    private static final int MIN_GZIP_BYTES = 1024;
+
+    public static EncodedJson of(ObjectMapper mapper, Object payload) throws JsonProcessingException {
+        byte[] body = mapper.writeValueAsBytes(payload);
+        byte[] gzipBody = body.length >= MIN_GZIP_BYTES ? gzip(body) : null;
+        if (gzipBody != null && gzipBody.length >= body.length) {
+            gzipBody = null;
+        }
+        return new EncodedJson(body, gzipBody, etagOf(body));
+    }
+
+    public String gzipEtag() {
+        return etag.substring(0, etag.length() - 1) + "-gz\"";
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header value matches either representation.
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag) || (gzipBody != null && tag.equals(gzipEtag()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bytes held by both representations, for cache weighing.
+     */
+    public int sizeBytes() {
+        return body.length + (gzipBody != null ? gzipBody.length : 0);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etagOf(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
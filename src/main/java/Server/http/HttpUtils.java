@@ -122,6 +122,44 @@ public final class HttpUtils {
         }
     }
 
+    /**
+     * Sends a pre-encoded JSON body: 304 if the client already holds it, the gzip variant if the
+     * client accepts it, otherwise the plain bytes. Nothing is serialized here.
+     */
+    public static void sendJson(HttpExchange exchange, int statusCode, EncodedJson payload) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        boolean gzip = payload.gzipBody() != null && acceptsGzip(exchange);
+        headers.set("ETag", gzip ? payload.gzipEtag() : payload.etag());
+        headers.add("Vary", "Accept-Encoding");
+        if (statusCode == 200 && payload.matches(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        byte[] body = gzip ? payload.gzipBody() : payload.body();
+        if (gzip) {
+            headers.set("Content-Encoding", "gzip");
+        }
+        headers.add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (accept == null) {
+            return false;
+        }
+        for (String part : accept.split(",")) {
+            String[] coding = part.trim().split(";");
+            if (coding[0].trim().equalsIgnoreCase("gzip")) {
+                return coding.length < 2 || !coding[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
     public static void sendApiError(HttpExchange exchange, int statusCode, String code, String message) throws IOException {
         String safeCode = (code == null || code.isBlank()) ? "error" : code.trim();
         String safeMessage = (message == null || message.isBlank()) ? "Request failed" : message;
@@ -0,0 +1,72 @@
+package Server.http;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streams a response as newline-delimited JSON ({@code application/x-ndjson}), one event per
+ * line: {@code {"type": ..., "data": ...}}. Events are written with Jackson's streaming generator
+ * straight to the response body; nothing is buffered beyond the generator's own buffer, and
+ * {@link #flush()} pushes what was written so far to the client.
+ *
+ * The response (200, chunked) starts with the first event, so until then the caller can still
+ * send a regular error response instead.
+ */
+public final class NdjsonWriter implements Closeable {
+
+    private final HttpExchange exchange;
+    private JsonGenerator generator;
+
+    public NdjsonWriter(HttpExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    public boolean isStarted() {
+        return generator != null;
+    }
+
+    public void write(String type, Object data) throws IOException {
+        JsonGenerator gen = start();
+        gen.writeStartObject();
+        gen.writeStringField("type", type);
+        gen.writeFieldName("data");
+        gen.writeObject(data);
+        gen.writeEndObject();
+        gen.writeRaw('\n');
+    }
+
+    public void flush() throws IOException {
+        if (generator != null) {
+            generator.flush();
+        }
+    }
+
+    /**
+     * Ends the response if it was started.
+     */
+    @Override
+    public void close() throws IOException {
+        if (generator != null) {
+            generator.close();
+        }
+    }
+
+    private JsonGenerator start() throws IOException {
+        if (generator == null) {
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("Content-Type", "application/x-ndjson; charset=utf-8");
+            headers.set("Cache-Control", "no-cache");
+            // Keeps reverse proxies (nginx) from buffering the stream.
+            headers.set("X-Accel-Buffering", "no");
+            exchange.sendResponseHeaders(200, 0);
+            generator = HttpUtils.getMapper().getFactory().createGenerator(exchange.getResponseBody(), JsonEncoding.UTF8);
+            generator.setRootValueSeparator(null);
+        }
+        return generator;
+    }
+}
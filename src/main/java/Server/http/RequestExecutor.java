@@ -0,0 +1,141 @@
+package Server.http;
+
+import com.hctamlyniv.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for HTTP exchanges with a configurable threading mode and a global concurrency cap.
+ *
+ * In {@link Mode#VIRTUAL} mode every exchange runs on its own virtual thread, so requests that
+ * block on Spotify/Discogs I/O or retry backoff don't pin a scarce platform thread. In
+ * {@link Mode#PLATFORM} mode a bounded pool of platform threads is used instead. In both modes
+ * at most {@code maxConcurrent} exchanges execute at once; the rest wait in the queue and are
+ * reported through {@link #snapshot()}.
+ */
+public final class RequestExecutor implements Executor {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestExecutor.class);
+
+    public enum Mode {
+        VIRTUAL,
+        PLATFORM;
+
+        public static Mode parse(String value) {
+            if (value != null && "platform".equalsIgnoreCase(value.trim())) {
+                return PLATFORM;
+            }
+            return VIRTUAL;
+        }
+    }
+
+    private final Mode mode;
+    private final int maxConcurrent;
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong totalQueueWaitMillis = new AtomicLong();
+
+    public RequestExecutor(Mode mode, int maxConcurrent, int platformThreads) {
+        this.mode = mode == null ? Mode.VIRTUAL : mode;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.permits = new Semaphore(this.maxConcurrent, true);
+        this.delegate = (this.mode == Mode.PLATFORM)
+                ? Executors.newFixedThreadPool(Math.max(1, Math.min(platformThreads, this.maxConcurrent)), platformThreadFactory())
+                : Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-vt-", 0).factory());
+    }
+
+    public static RequestExecutor fromConfig() {
+        Mode mode = Mode.parse(Config.getHttpExecutorMode());
+        RequestExecutor executor = new RequestExecutor(mode, Config.getHttpMaxConcurrentRequests(), Config.getHttpPlatformThreads());
+        log.info("HTTP executor mode={} maxConcurrent={}", executor.mode, executor.maxConcurrent);
+        return executor;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        long enqueuedAt = System.currentTimeMillis();
+        peakQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+        try {
+            delegate.execute(() -> runWithPermit(command, enqueuedAt));
+        } catch (RuntimeException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void runWithPermit(Runnable command, long enqueuedAt) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            queued.decrementAndGet();
+            Thread.currentThread().interrupt();
+            return;
+        }
+        queued.decrementAndGet();
+        active.incrementAndGet();
+        totalQueueWaitMillis.addAndGet(Math.max(0, System.currentTimeMillis() - enqueuedAt));
+        try {
+            command.run();
+        } finally {
+            active.decrementAndGet();
+            completed.incrementAndGet();
+            permits.release();
+        }
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public int queueDepth() {
+        return queued.get();
+    }
+
+    public int activeCount() {
+        return active.get();
+    }
+
+    /**
+     * Returns current executor metrics for health/diagnostic endpoints.
+     */
+    public Map<String, Object> snapshot() {
+        long done = completed.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode.name().toLowerCase());
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("active", active.get());
+        stats.put("queued", queued.get());
+        stats.put("peakQueued", peakQueued.get());
+        stats.put("completed", done);
+        stats.put("avgQueueWaitMs", done > 0 ? totalQueueWaitMillis.get() / done : 0L);
+        return stats;
+    }
+
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "http-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -208,7 +208,7 @@ public class AuthRoutes {
                     sessionStore.storeSession(session);
                 } catch (Exception ignored) {}
 
-                playlistCache.invalidateForAuthChange(session.getSessionId());
+                playlistCache.invalidateUser(session.getSessionId());
                 sendCallbackHtml(exchange, true, "Login successful! You can close this window.");
             } else {
                 sendCallbackHtml(exchange, false, "Token exchange failed. Please try again.");
@@ -228,10 +228,10 @@ public class AuthRoutes {
                 return;
             }
 
-            // Destroy session
+            // Drop only this user's cached playlists, then destroy the session
+            playlistCache.invalidateUser(getUserSignature(exchange));
             sessionStore.destroySession(exchange);
 
-            playlistCache.invalidateForAuthChange(null);
             HttpUtils.sendNoContent(exchange);
         } catch (Exception e) {
             log.warn("Logout failed: {}", e.getMessage());
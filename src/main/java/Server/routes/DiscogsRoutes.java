@@ -7,15 +7,19 @@ import Server.http.filters.AdminOnlyFilter;
 import Server.session.DiscogsSession;
 import Server.session.DiscogsSessionStore;
 import Server.session.SpotifySessionStore;
+import com.hctamlyniv.DiscogsBatchMatcher;
 import com.hctamlyniv.DiscogsService;
 import com.hctamlyniv.curation.CuratedLinkStore;
 import com.hctamlyniv.curation.RedisCuratedLinkStore;
+import com.hctamlyniv.discogs.DiscogsRequestContext;
+import com.hctamlyniv.discogs.DiscogsRequestScheduler.Priority;
 import com.hctamlyniv.discogs.model.CurationCandidate;
 import com.hctamlyniv.discogs.model.CuratedLink;
 import com.hctamlyniv.discogs.model.DiscogsProfile;
 import com.hctamlyniv.discogs.model.LibraryFlags;
 import com.hctamlyniv.discogs.model.WishlistResult;
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,6 +50,7 @@ public class DiscogsRoutes {
     private final SpotifySessionStore spotifySessionStore;
     private final DiscogsOAuthService oauthService;
     private final CuratedLinkStore curatedLinkStore;
+    private final DiscogsBatchMatcher batchMatcher;
     private final Map<String, DiscogsService> serviceCache = new ConcurrentHashMap<>();
 
     public DiscogsRoutes(Supplier<DiscogsService> defaultDiscogsSupplier, DiscogsSessionStore sessionStore, SpotifySessionStore spotifySessionStore) {
@@ -54,19 +59,23 @@ public class DiscogsRoutes {
         this.spotifySessionStore = spotifySessionStore;
         this.oauthService = new DiscogsOAuthService();
         this.curatedLinkStore = new RedisCuratedLinkStore(new com.fasterxml.jackson.databind.ObjectMapper());
+        this.batchMatcher = DiscogsBatchMatcher.fromConfig();
     }
 
     public void register(HttpServer server) {
-        server.createContext("/api/discogs/batch", this::handleBatch).getFilters().addAll(
+        server.createContext("/api/discogs/batch", withPriority(Priority.BATCH, this::handleBatch)).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
         );
-        server.createContext("/api/discogs/search", this::handleSearch).getFilters().addAll(
+        server.createContext("/api/discogs/batch/stream", withPriority(Priority.BATCH, this::handleBatchStream)).getFilters().addAll(
+            java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
+        );
+        server.createContext("/api/discogs/search", withPriority(Priority.INTERACTIVE, this::handleSearch)).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
         );
         server.createContext("/api/discogs/status", this::handleStatus).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
         );
-        server.createContext("/api/discogs/login", this::handleLogin).getFilters().addAll(
+        server.createContext("/api/discogs/login", withPriority(Priority.INTERACTIVE, this::handleLogin)).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
         );
         server.createContext("/api/discogs/oauth/status", this::handleOAuthStatus).getFilters().addAll(
@@ -75,30 +84,52 @@ public class DiscogsRoutes {
         server.createContext("/api/discogs/oauth/start", this::handleOAuthStart).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
         );
-        server.createContext("/api/discogs/oauth/callback", this::handleOAuthCallback).getFilters().addAll(
+        server.createContext("/api/discogs/oauth/callback", withPriority(Priority.INTERACTIVE, this::handleOAuthCallback)).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
         );
         server.createContext("/api/discogs/logout", this::handleLogout).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
         );
-        server.createContext("/api/discogs/wishlist/add", this::handleWishlistAdd).getFilters().addAll(
+        server.createContext("/api/discogs/wishlist/add", withPriority(Priority.INTERACTIVE, this::handleWishlistAdd)).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
         );
-        server.createContext("/api/discogs/wishlist", this::handleWishlist).getFilters().addAll(
+        server.createContext("/api/discogs/wishlist", withPriority(Priority.INTERACTIVE, this::handleWishlist)).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
         );
-        server.createContext("/api/discogs/library-status", this::handleLibraryStatus).getFilters().addAll(
+        server.createContext("/api/discogs/library-status", withPriority(Priority.INTERACTIVE, this::handleLibraryStatus)).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
         );
         AdminOnlyFilter adminFilter = new AdminOnlyFilter(spotifySessionStore);
-        server.createContext("/api/discogs/curation/candidates", this::handleCurationCandidates).getFilters().addAll(
+        server.createContext("/api/discogs/curation/candidates", withPriority(Priority.INTERACTIVE, this::handleCurationCandidates)).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting(), adminFilter)
         );
-        server.createContext("/api/discogs/curation/save", this::handleCurationSave).getFilters().addAll(
+        server.createContext("/api/discogs/curation/save", withPriority(Priority.INTERACTIVE, this::handleCurationSave)).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting(), adminFilter)
         );
     }
 
+    /**
+     * Runs the handler with a Discogs scheduling context, so its API calls are queued under the
+     * given priority and shared fairly with other sessions of the same priority.
+     */
+    private HttpHandler withPriority(Priority priority, HttpHandler handler) {
+        return exchange -> {
+            try (DiscogsRequestContext.Scope ignored = DiscogsRequestContext.open(priority, schedulingSession(exchange))) {
+                handler.handle(exchange);
+            }
+        };
+    }
+
+    private String schedulingSession(HttpExchange exchange) {
+        String sessionId = sessionStore.getSessionId(exchange);
+        if (sessionId != null) {
+            return sessionId;
+        }
+        return exchange.getRemoteAddress() != null && exchange.getRemoteAddress().getAddress() != null
+                ? exchange.getRemoteAddress().getAddress().getHostAddress()
+                : "";
+    }
+
     // =========================================================================
     // Batch Search
     // =========================================================================
@@ -113,8 +144,8 @@ public class DiscogsRoutes {
 
             String body = HttpUtils.readRequestBody(exchange);
             Map<?, ?> payload = HttpUtils.getMapper().readValue(body, Map.class);
-            Object tracksObj = payload.get("tracks");
-            if (!(tracksObj instanceof List<?> tracksList) || tracksList.isEmpty()) {
+            List<DiscogsBatchMatcher.BatchTrack> batchTracks = parseBatchTracks(payload);
+            if (batchTracks == null) {
                 HttpUtils.sendApiError(exchange, 400, "invalid_payload", "Payload must contain a non-empty 'tracks' array");
                 return;
             }
@@ -122,50 +153,8 @@ public class DiscogsRoutes {
             DiscogsService discogs = resolveDiscogsService(exchange);
 
             List<Map<String, Object>> results = new ArrayList<>();
-            Map<String, Optional<String>> requestLookupCache = new HashMap<>();
-            for (Object entry : tracksList) {
-                if (!(entry instanceof Map<?, ?> track)) {
-                    continue;
-                }
-                String key = HttpUtils.stringValue(track.get("key"));
-                Integer index = HttpUtils.intValue(track.get("index"));
-                String artist = HttpUtils.stringValue(track.get("artist"));
-                String album = HttpUtils.stringValue(track.get("album"));
-                Integer year = HttpUtils.intValue(track.get("releaseYear"));
-                String trackTitle = HttpUtils.stringValue(track.get("track"));
-                String barcode = HttpUtils.stringValue(track.get("barcode"));
-
-                Map<String, Object> resultEntry = new HashMap<>();
-                if (key != null) resultEntry.put("key", key);
-                if (index != null) resultEntry.put("index", index);
-
-                if (artist == null || album == null) {
-                    resultEntry.put("url", null);
-                    resultEntry.put("cacheHit", false);
-                    results.add(resultEntry);
-                    continue;
-                }
-
-                String lookupKey = buildBatchLookupKey(artist, album, year, barcode);
-                Optional<String> urlOpt;
-                boolean cacheHit;
-                if (lookupKey != null && requestLookupCache.containsKey(lookupKey)) {
-                    urlOpt = requestLookupCache.get(lookupKey);
-                    cacheHit = true;
-                } else {
-                    Optional<String> cached = discogs.peekCachedUri(artist, album, year, barcode);
-                    urlOpt = discogs.findAlbumUri(artist, album, year, trackTitle, barcode);
-                    cacheHit = cached.isPresent()
-                            && urlOpt.isPresent()
-                            && cached.get().equals(urlOpt.get());
-                    if (lookupKey != null) {
-                        requestLookupCache.put(lookupKey, urlOpt);
-                    }
-                }
-
-                resultEntry.put("cacheHit", cacheHit);
-                resultEntry.put("url", urlOpt.orElse(null));
-                results.add(resultEntry);
+            for (DiscogsBatchMatcher.BatchResult match : batchMatcher.match(discogs, batchTracks)) {
+                results.add(toBatchResultEntry(match));
             }
 
             HttpUtils.sendJson(exchange, 200, Map.of("results", results));
@@ -177,6 +166,100 @@ public class DiscogsRoutes {
         }
     }
 
+    /**
+     * Streaming variant of the batch endpoint: writes one NDJSON line per track as soon as it is
+     * resolved (cache hits first), followed by a final {@code {"done":true}} line.
+     */
+    private void handleBatchStream(HttpExchange exchange) throws IOException {
+        List<DiscogsBatchMatcher.BatchTrack> batchTracks;
+        DiscogsService discogs;
+        try {
+            if (HttpUtils.handleCorsPreflightIfNeeded(exchange)) return;
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                HttpUtils.sendApiError(exchange, 405, "method_not_allowed", "Only POST is supported");
+                return;
+            }
+
+            String body = HttpUtils.readRequestBody(exchange);
+            Map<?, ?> payload = HttpUtils.getMapper().readValue(body, Map.class);
+            batchTracks = parseBatchTracks(payload);
+            if (batchTracks == null) {
+                HttpUtils.sendApiError(exchange, 400, "invalid_payload", "Payload must contain a non-empty 'tracks' array");
+                return;
+            }
+            discogs = resolveDiscogsService(exchange);
+        } catch (HttpUtils.RequestTooLargeException e) {
+            HttpUtils.sendApiError(exchange, 413, "payload_too_large", "Request body too large");
+            return;
+        } catch (Exception e) {
+            log.warn("Discogs batch stream failed: {}", e.getMessage());
+            HttpUtils.sendApiError(exchange, 500, "discogs_batch_failed", "Discogs batch search failed");
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().set("X-Accel-Buffering", "no");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream os = exchange.getResponseBody()) {
+            boolean[] clientGone = {false};
+            batchMatcher.matchStreaming(discogs, batchTracks, (position, match) -> {
+                if (clientGone[0]) {
+                    return;
+                }
+                try {
+                    writeNdjsonLine(os, toBatchResultEntry(match));
+                } catch (IOException e) {
+                    // Keep resolving so the cache still warms up, but stop writing.
+                    clientGone[0] = true;
+                }
+            });
+            if (!clientGone[0]) {
+                writeNdjsonLine(os, Map.of("done", true));
+            }
+        } catch (IOException e) {
+            log.debug("Discogs batch stream closed early: {}", e.getMessage());
+        }
+    }
+
+    private static void writeNdjsonLine(OutputStream os, Object value) throws IOException {
+        os.write(HttpUtils.getMapper().writeValueAsBytes(value));
+        os.write('\n');
+        os.flush();
+    }
+
+    private static List<DiscogsBatchMatcher.BatchTrack> parseBatchTracks(Map<?, ?> payload) {
+        Object tracksObj = payload.get("tracks");
+        if (!(tracksObj instanceof List<?> tracksList) || tracksList.isEmpty()) {
+            return null;
+        }
+        List<DiscogsBatchMatcher.BatchTrack> batchTracks = new ArrayList<>();
+        for (Object entry : tracksList) {
+            if (!(entry instanceof Map<?, ?> track)) {
+                continue;
+            }
+            batchTracks.add(new DiscogsBatchMatcher.BatchTrack(
+                    HttpUtils.stringValue(track.get("key")),
+                    HttpUtils.intValue(track.get("index")),
+                    HttpUtils.stringValue(track.get("artist")),
+                    HttpUtils.stringValue(track.get("album")),
+                    HttpUtils.intValue(track.get("releaseYear")),
+                    HttpUtils.stringValue(track.get("track")),
+                    HttpUtils.stringValue(track.get("barcode"))
+            ));
+        }
+        return batchTracks;
+    }
+
+    private static Map<String, Object> toBatchResultEntry(DiscogsBatchMatcher.BatchResult match) {
+        Map<String, Object> resultEntry = new HashMap<>();
+        if (match.key() != null) resultEntry.put("key", match.key());
+        if (match.index() != null) resultEntry.put("index", match.index());
+        resultEntry.put("cacheHit", match.cacheHit());
+        resultEntry.put("url", match.url());
+        return resultEntry;
+    }
+
     // =========================================================================
     // Single Search
     // =========================================================================
@@ -826,21 +909,4 @@ public class DiscogsRoutes {
         }
         return null;
     }
-
-    private static String buildBatchLookupKey(String artist, String album, Integer year, String barcode) {
-        if (artist == null || album == null) {
-            return null;
-        }
-        String normalizedArtist = normalizeLookupPart(artist);
-        String normalizedAlbum = normalizeLookupPart(album);
-        if (normalizedArtist.isBlank() || normalizedAlbum.isBlank()) {
-            return null;
-        }
-        String yearPart = (year != null) ? String.valueOf(year) : "";
-        return normalizedArtist + "|" + normalizedAlbum + "|" + yearPart + "|" + normalizeLookupPart(barcode);
-    }
-
-    private static String normalizeLookupPart(String value) {
-        return (value == null) ? "" : value.trim().toLowerCase();
-    }
 }
@@ -1,10 +1,18 @@
 package Server.routes;
 
+import Server.cache.PlaylistCache;
 import Server.http.ApiFilters;
 import Server.http.HttpUtils;
+import Server.http.RequestExecutor;
 import Server.session.RedisConfig;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hctamlyniv.Config;
+import com.hctamlyniv.DiscogsService;
+import com.hctamlyniv.discogs.DiscogsRateLimiter;
+import com.hctamlyniv.discogs.DiscogsRequestScheduler;
+import com.hctamlyniv.spotify.SpotifyAlbumBatchLoader;
+import com.hctamlyniv.spotify.SpotifyAlbumCache;
+import com.hctamlyniv.spotify.SpotifyTransport;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import org.slf4j.Logger;
@@ -42,10 +50,22 @@ public class HealthRoutes {
     
     private final String spotifyClientId;
     private final String discogsToken;
+    private final RequestExecutor requestExecutor;
+    private final PlaylistCache playlistCache;
     
     public HealthRoutes() {
+        this(null);
+    }
+    
+    public HealthRoutes(RequestExecutor requestExecutor) {
+        this(requestExecutor, null);
+    }
+    
+    public HealthRoutes(RequestExecutor requestExecutor, PlaylistCache playlistCache) {
         this.spotifyClientId = Config.getSpotifyClientId();
         this.discogsToken = Config.getDiscogsToken();
+        this.requestExecutor = requestExecutor;
+        this.playlistCache = playlistCache;
     }
     
     public void register(HttpServer server) {
@@ -102,6 +122,17 @@ public class HealthRoutes {
         checks.put("system", systemCheck);
         allHealthy &= (Boolean) systemCheck.get("healthy");
         
+        // Request executor metrics (informational, does not affect overall status)
+        if (requestExecutor != null) {
+            checks.put("executor", requestExecutor.snapshot());
+        }
+        if (playlistCache != null) {
+            checks.put("playlistCache", playlistCache.stats());
+        }
+        checks.put("spotifyAlbumBatches", SpotifyAlbumBatchLoader.stats());
+        checks.put("spotifyAlbumCache", SpotifyAlbumCache.shared().stats());
+        checks.put("spotifyTransport", SpotifyTransport.shared().stats());
+        
         // Build response
         health.put("status", allHealthy ? "UP" : "DEGRADED");
         health.put("timestamp", Instant.now().toString());
@@ -189,6 +220,9 @@ public class HealthRoutes {
             result.put("status", "error");
             result.put("message", e.getMessage());
         }
+        result.put("rateLimit", DiscogsRateLimiter.shared().snapshot());
+        result.put("scheduler", DiscogsRequestScheduler.shared().snapshot());
+        result.put("lookupCoalescing", DiscogsService.lookupCoalescingStats());
         return result;
     }
     
@@ -2,14 +2,20 @@ package Server.routes;
 
 import Server.PlaylistData;
 import Server.PlaylistSummary;
+import Server.TrackData;
 import Server.SpotifyPlaylistAccessClassifier;
 import Server.UserPlaylistsResponse;
 import Server.cache.PlaylistCache;
+import Server.cache.PlaylistCacheEntry;
 import Server.cache.PlaylistCacheKey;
+import Server.http.ApiErrorResponse;
 import Server.http.ApiFilters;
 import Server.http.HttpUtils;
+import Server.http.NdjsonWriter;
 import com.hctamlyniv.DiscogsService;
 import com.hctamlyniv.ReceivingData;
+import com.hctamlyniv.spotify.PlaylistAssembler;
+import com.hctamlyniv.spotify.SpotifyTransport;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import org.slf4j.Logger;
@@ -20,6 +26,7 @@ import se.michaelthelin.spotify.model_objects.specification.Paging;
 import se.michaelthelin.spotify.model_objects.specification.PlaylistSimplified;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +38,11 @@ import java.util.function.Supplier;
 public class PlaylistRoutes {
 
     private static final Logger log = LoggerFactory.getLogger(PlaylistRoutes.class);
+    /**
+     * How long a request waits for a running prefetch of its page before loading it itself; about
+     * one page load, so a stuck prefetch costs a user at most that much extra.
+     */
+    private static final Duration PREFETCH_JOIN_TIMEOUT = Duration.ofSeconds(5);
 
     private final PlaylistCache playlistCache;
     private final Supplier<DiscogsService> discogsServiceSupplier;
@@ -46,6 +58,9 @@ public class PlaylistRoutes {
         server.createContext("/api/playlist", this::handleGetPlaylist).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
         );
+        server.createContext("/api/playlist/stream", this::handleStreamPlaylist).getFilters().addAll(
+            java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
+        );
         server.createContext("/api/user/playlists", this::handleGetUserPlaylists).getFilters().addAll(
             java.util.List.of(ApiFilters.securityHeaders(), ApiFilters.rateLimiting())
         );
@@ -64,86 +79,65 @@ public class PlaylistRoutes {
                 return;
             }
 
-            Map<String, String> params = HttpUtils.parseQueryParams(exchange.getRequestURI().getRawQuery());
-            String id = params.get("id");
-            if (id == null || id.isBlank()) {
-                HttpUtils.sendApiError(exchange, 400, "missing_playlist_id", "Missing or invalid 'id' query parameter");
+            PlaylistRequest request = parsePlaylistRequest(exchange, "/api/playlist");
+            if (request == null) {
                 return;
             }
+            int offset = request.offset();
+            int limit = request.limit();
+            boolean userAuthenticated = request.userAuthenticated();
+            PlaylistCacheKey sharedKey = request.sharedKey();
+            cacheKey = request.userKey();
+            // Moving to another playlist abandons prefetches for the previous one.
+            playlistCache.cancelPrefetches(request.prefetchOwner(), request.id());
 
-            int offset = 0;
-            String offsetParam = params.get("offset");
-            if (offsetParam != null && !offsetParam.isBlank()) {
-                try {
-                    offset = Math.max(0, Integer.parseInt(offsetParam));
-                } catch (NumberFormatException e) {
-                    HttpUtils.sendApiError(exchange, 400, "invalid_offset", "Invalid 'offset' query parameter");
-                    return;
-                }
-            }
-
-            int limit = -1;
-            String limitParam = params.get("limit");
-            if (limitParam != null && !limitParam.isBlank()) {
-                try {
-                    int parsedLimit = Integer.parseInt(limitParam);
-                    if (parsedLimit > 0) {
-                        limit = Math.min(parsedLimit, 500);
-                    } else {
-                        limit = -1;
-                    }
-                } catch (NumberFormatException e) {
-                    HttpUtils.sendApiError(exchange, 400, "invalid_limit", "Invalid 'limit' query parameter");
-                    return;
-                }
-            }
-            // Safety default: don't accidentally fetch huge playlists in one request if limit is omitted.
-            // The frontend uses paging and passes an explicit limit.
-            if (limit <= 0) {
-                limit = 50;
-            }
-
-            String limitLog = String.valueOf(limit);
-            log.info("GET /api/playlist id={} offset={} limit={}", id, offset, limitLog);
-
-            // Resolve best available token (user token first, app token fallback for public playlists)
-            AuthRoutes.AccessTokenResolution tokenResolution = authRoutes.resolvePlaylistAccessToken(exchange);
-            String token = tokenResolution.token();
-            if (token == null || token.isBlank()) {
-                HttpUtils.sendApiError(exchange, 401, "spotify_login_required", "Spotify login required");
-                return;
+            ReceivingData rd = new ReceivingData(request.token(), request.id(), discogsServiceSupplier.get());
+            long now = System.currentTimeMillis();
+            CachedPage cachedPage = lookupCachedPage(request, rd, now);
+            PlaylistData playlistData = null;
+            PlaylistCacheEntry served = null;
+            String cacheStatus = "miss";
+            boolean sharedPage = false;
+            if (cachedPage != null) {
+                served = cachedPage.entry();
+                playlistData = served.playlistData();
+                cacheStatus = cachedPage.status();
+                sharedPage = cachedPage.shared();
             }
-            boolean userAuthenticated = tokenResolution.userAuthenticated();
-
-            String userSignature = authRoutes.getUserSignature(exchange);
-            cacheKey = new PlaylistCacheKey(id, userSignature, offset, limit);
-            DiscogsService discogsService = discogsServiceSupplier.get();
-
-            PlaylistData playlistData = playlistCache.lookup(cacheKey);
             if (playlistData == null) {
-                ReceivingData rd = new ReceivingData(token, id, discogsService);
                 ReceivingData.PlaylistLoadResult loadResult = rd.loadPlaylistDataResult(offset, limit);
                 playlistData = loadResult.playlistData();
                 if (playlistData == null) {
                     playlistCache.remove(cacheKey);
-                    var classifiedError = SpotifyPlaylistAccessClassifier.classify(loadResult.error(), userAuthenticated);
-                    if (classifiedError.isPresent()) {
-                        var apiError = classifiedError.get();
-                        HttpUtils.sendApiError(exchange, apiError.status(), apiError.code(), apiError.message());
-                        return;
-                    }
-                    if (!userAuthenticated) {
-                        HttpUtils.sendApiError(exchange, 401, "spotify_login_required",
-                                "Playlist unavailable without Spotify login (private or collaborative)");
-                        return;
-                    }
-                    HttpUtils.sendApiError(exchange, 500, "playlist_load_failed", "Failed to load playlist data");
+                    forgetIfInaccessible(request, loadResult);
+                    sendLoadError(exchange, loadResult, userAuthenticated);
                     return;
                 }
-                playlistCache.store(cacheKey, playlistData);
+                if (playlistData.isIncomplete()) {
+                    // Throttled partial page: send it, but let the next request load it properly.
+                    cacheStatus = "partial";
+                } else {
+                    served = storeLoaded(loadResult, sharedKey, cacheKey, userAuthenticated);
+                }
+                sharedPage = !userAuthenticated || loadResult.publicPlaylist();
             }
 
-            HttpUtils.sendJson(exchange, 200, playlistData);
+            // Freshness metadata so the UI can flag data served from an expired entry.
+            exchange.getResponseHeaders().set("X-Cache-Status", cacheStatus);
+            exchange.getResponseHeaders().set("Access-Control-Expose-Headers", "X-Cache-Status, Age, ETag");
+            exchange.getResponseHeaders().set("Cache-Control", "private, no-cache");
+            if (!"miss".equals(cacheStatus) && !"partial".equals(cacheStatus)) {
+                exchange.getResponseHeaders().set("Age", Long.toString(playlistCache.ageSeconds(served, now)));
+            }
+            if (served != null && served.encoded() != null) {
+                // Hot path: bytes encoded when the page was cached, 304 if the client has them.
+                HttpUtils.sendJson(exchange, 200, served.encoded());
+            } else {
+                HttpUtils.sendJson(exchange, 200, playlistData);
+            }
+            if (playlistData.isHasMore() && !playlistData.isIncomplete()) {
+                prefetchNextPage(rd, request, playlistData.getNextOffset(), sharedPage);
+            }
         } catch (Exception e) {
             if (cacheKey != null) {
                 playlistCache.remove(cacheKey);
@@ -153,6 +147,318 @@ public class PlaylistRoutes {
         }
     }
 
+    /**
+     * Streams a playlist page as NDJSON: a {@code playlist} event (the page's {@link PlaylistData}
+     * without tracks), one {@code track} event per track as each Spotify page is assembled, and a
+     * final {@code end} event with {@code nextOffset}, {@code hasMore} and {@code incomplete}. A
+     * failure after the stream started is reported as an {@code error} event. Takes the same
+     * parameters as {@code /api/playlist} and shares its cache tiers (see {@link #lookupCachedPage}).
+     */
+    private void handleStreamPlaylist(HttpExchange exchange) throws IOException {
+        NdjsonWriter writer = new NdjsonWriter(exchange);
+        try {
+            HttpUtils.addCorsHeaders(exchange);
+            if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                HttpUtils.sendApiError(exchange, 405, "method_not_allowed", "Only GET is supported");
+                return;
+            }
+
+            PlaylistRequest request = parsePlaylistRequest(exchange, "/api/playlist/stream");
+            if (request == null) {
+                return;
+            }
+            PlaylistCacheKey cacheKey = request.userKey();
+            playlistCache.cancelPrefetches(request.prefetchOwner(), request.id());
+            exchange.getResponseHeaders().set("Access-Control-Expose-Headers", "X-Cache-Status");
+
+            ReceivingData rd = new ReceivingData(request.token(), request.id(), discogsServiceSupplier.get());
+            CachedPage cachedPage = lookupCachedPage(request, rd, System.currentTimeMillis());
+            if (cachedPage != null) {
+                exchange.getResponseHeaders().set("X-Cache-Status", cachedPage.status());
+                PlaylistData data = cachedPage.entry().playlistData();
+                writer.write("playlist", withoutTracks(data, data.getOffset(), false, false));
+                for (TrackData track : data.getTracks()) {
+                    writer.write("track", track);
+                }
+                writer.write("end", withoutTracks(data, data.getNextOffset(), data.isHasMore(), data.isIncomplete()));
+                return;
+            }
+
+            exchange.getResponseHeaders().set("X-Cache-Status", "miss");
+            ReceivingData.PlaylistLoadResult loadResult = rd.loadPlaylistDataResult(request.offset(), request.limit(),
+                    new ReceivingData.PlaylistStreamSink() {
+                        @Override
+                        public void start(PlaylistAssembler.PlaylistMetadata metadata, int totalTracks, int offset) throws IOException {
+                            writer.write("playlist", new PlaylistData(metadata.name(), metadata.coverUrl(), metadata.url(),
+                                    List.of(), totalTracks, offset, offset, false));
+                            writer.flush();
+                        }
+
+                        @Override
+                        public void tracks(List<TrackData> tracks) throws IOException {
+                            for (TrackData track : tracks) {
+                                writer.write("track", track);
+                            }
+                            writer.flush();
+                        }
+                    });
+            PlaylistData data = loadResult.playlistData();
+            if (data == null) {
+                forgetIfInaccessible(request, loadResult);
+                if (writer.isStarted()) {
+                    writer.write("error", new ApiErrorResponse.ApiError("playlist_load_failed", 500, "Failed to load playlist data"));
+                } else {
+                    sendLoadError(exchange, loadResult, request.userAuthenticated());
+                }
+                return;
+            }
+            if (!data.isIncomplete()) {
+                storeLoaded(loadResult, request.sharedKey(), cacheKey, request.userAuthenticated());
+            }
+            writer.write("end", withoutTracks(data, data.getNextOffset(), data.isHasMore(), data.isIncomplete()));
+        } catch (Exception e) {
+            log.warn("Playlist stream failed: {}", e.getMessage());
+            if (writer.isStarted()) {
+                try {
+                    writer.write("error", new ApiErrorResponse.ApiError("playlist_load_failed", 500, "Failed to load playlist"));
+                } catch (IOException ignored) {
+                    // Client is gone
+                }
+            } else {
+                HttpUtils.sendApiError(exchange, 500, "playlist_load_failed", "Failed to load playlist");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Looks a page up in the cache tiers shared by {@code /api/playlist} and its streaming variant:
+     * the shared tier, then the user's; if neither has it but it is being prefetched, that prefetch
+     * is joined. A fresh entry is served as-is, an expired one within the stale grace window is
+     * served while one background refresh runs, and an older one is revalidated by snapshot id.
+     * Returns null if the page has to be loaded.
+     */
+    private CachedPage lookupCachedPage(PlaylistRequest request, ReceivingData rd, long now) {
+        PlaylistCacheKey sharedKey = request.sharedKey();
+        PlaylistCacheKey userKey = request.userKey();
+        PlaylistCacheKey hitKey = sharedKey;
+        PlaylistCacheEntry cached = playlistCache.lookupEntry(sharedKey);
+        if (cached == null) {
+            hitKey = userKey;
+            cached = playlistCache.lookupEntry(userKey);
+        }
+        if (cached == null && (playlistCache.awaitPrefetch(sharedKey, PREFETCH_JOIN_TIMEOUT)
+                || playlistCache.awaitPrefetch(userKey, PREFETCH_JOIN_TIMEOUT))) {
+            // The page was being prefetched: use that load instead of starting a second one.
+            hitKey = sharedKey;
+            cached = playlistCache.lookupEntry(sharedKey);
+            if (cached == null) {
+                hitKey = userKey;
+                cached = playlistCache.lookupEntry(userKey);
+            }
+        }
+        if (cached == null) {
+            return null;
+        }
+        if (!cached.isExpired(now)) {
+            return new CachedPage(cached, "fresh", hitKey.isShared());
+        }
+        if (playlistCache.isWithinStaleGrace(cached, now)) {
+            // Serve the stale copy right away and refresh it once in the background.
+            PlaylistCacheKey staleKey = hitKey;
+            PlaylistCacheEntry stale = cached;
+            playlistCache.refreshInBackground(staleKey, () -> refreshStaleEntry(rd, staleKey, stale, sharedKey, userKey,
+                    request.offset(), request.limit(), request.userAuthenticated()));
+            return new CachedPage(cached, "stale", hitKey.isShared());
+        }
+        if (cached.snapshotId() != null && cached.snapshotId().equals(rd.fetchSnapshotId())) {
+            // Unchanged since it was cached: one tiny metadata call instead of a full reload.
+            return new CachedPage(playlistCache.revalidate(hitKey, cached), "revalidated", hitKey.isShared());
+        }
+        return null;
+    }
+
+    /**
+     * @param status value of the {@code X-Cache-Status} header: fresh, stale or revalidated
+     * @param shared whether the entry lives in the user-independent tier
+     */
+    private record CachedPage(PlaylistCacheEntry entry, String status, boolean shared) {}
+
+    private static PlaylistData withoutTracks(PlaylistData data, int nextOffset, boolean hasMore, boolean incomplete) {
+        return new PlaylistData(data.getPlaylistName(), data.getPlaylistCoverUrl(), data.getPlaylistUrl(), List.of(),
+                data.getTotalTracks(), data.getOffset(), nextOffset, hasMore, incomplete);
+    }
+
+    /**
+     * Parses the id/offset/limit query parameters and resolves the Spotify token for a playlist
+     * page request. Sends the error response and returns null if the request cannot be served.
+     */
+    private PlaylistRequest parsePlaylistRequest(HttpExchange exchange, String path) throws IOException {
+        Map<String, String> params = HttpUtils.parseQueryParams(exchange.getRequestURI().getRawQuery());
+        String id = params.get("id");
+        if (id == null || id.isBlank()) {
+            HttpUtils.sendApiError(exchange, 400, "missing_playlist_id", "Missing or invalid 'id' query parameter");
+            return null;
+        }
+
+        int offset = 0;
+        String offsetParam = params.get("offset");
+        if (offsetParam != null && !offsetParam.isBlank()) {
+            try {
+                offset = Math.max(0, Integer.parseInt(offsetParam));
+            } catch (NumberFormatException e) {
+                HttpUtils.sendApiError(exchange, 400, "invalid_offset", "Invalid 'offset' query parameter");
+                return null;
+            }
+        }
+
+        int limit = -1;
+        String limitParam = params.get("limit");
+        if (limitParam != null && !limitParam.isBlank()) {
+            try {
+                int parsedLimit = Integer.parseInt(limitParam);
+                if (parsedLimit > 0) {
+                    limit = Math.min(parsedLimit, 500);
+                } else {
+                    limit = -1;
+                }
+            } catch (NumberFormatException e) {
+                HttpUtils.sendApiError(exchange, 400, "invalid_limit", "Invalid 'limit' query parameter");
+                return null;
+            }
+        }
+        // Safety default: don't accidentally fetch huge playlists in one request if limit is omitted.
+        // The frontend uses paging and passes an explicit limit.
+        if (limit <= 0) {
+            limit = 50;
+        }
+
+        String limitLog = String.valueOf(limit);
+        log.info("GET {} id={} offset={} limit={}", path, id, offset, limitLog);
+
+        // Resolve best available token (user token first, app token fallback for public playlists)
+        AuthRoutes.AccessTokenResolution tokenResolution = authRoutes.resolvePlaylistAccessToken(exchange);
+        String token = tokenResolution.token();
+        if (token == null || token.isBlank()) {
+            HttpUtils.sendApiError(exchange, 401, "spotify_login_required", "Spotify login required");
+            return null;
+        }
+        boolean userAuthenticated = tokenResolution.userAuthenticated();
+
+        // Public playlists live in a user-independent tier; per-user keys are only for
+        // private and collaborative playlists.
+        String userSignature = authRoutes.getUserSignature(exchange);
+        PlaylistCacheKey sharedKey = PlaylistCacheKey.shared(id, offset, limit);
+        PlaylistCacheKey userKey = new PlaylistCacheKey(id, userSignature, offset, limit);
+        return new PlaylistRequest(id, offset, limit, token, userAuthenticated, sharedKey, userKey,
+                prefetchOwner(exchange, userSignature));
+    }
+
+    /**
+     * @param sharedKey     cache key of the user-independent tier
+     * @param userKey       cache key of the per-user tier
+     * @param prefetchOwner whose prefetch budget this request draws on: the session, else the client address
+     */
+    private record PlaylistRequest(String id, int offset, int limit, String token, boolean userAuthenticated,
+                                   PlaylistCacheKey sharedKey, PlaylistCacheKey userKey, String prefetchOwner) {}
+
+    private static String prefetchOwner(HttpExchange exchange, String userSignature) {
+        if (userSignature != null && !userSignature.isEmpty()) {
+            return userSignature;
+        }
+        return exchange.getRemoteAddress() != null && exchange.getRemoteAddress().getAddress() != null
+                ? exchange.getRemoteAddress().getAddress().getHostAddress()
+                : "";
+    }
+
+    private static void sendLoadError(HttpExchange exchange, ReceivingData.PlaylistLoadResult loadResult,
+                                      boolean userAuthenticated) throws IOException {
+        var classifiedError = SpotifyPlaylistAccessClassifier.classify(loadResult.error(), userAuthenticated);
+        if (classifiedError.isPresent()) {
+            var apiError = classifiedError.get();
+            HttpUtils.sendApiError(exchange, apiError.status(), apiError.code(), apiError.message());
+            return;
+        }
+        if (!userAuthenticated) {
+            HttpUtils.sendApiError(exchange, 401, "spotify_login_required",
+                    "Playlist unavailable without Spotify login (private or collaborative)");
+            return;
+        }
+        HttpUtils.sendApiError(exchange, 500, "playlist_load_failed", "Failed to load playlist data");
+    }
+
+    /**
+     * Drops the shared copy of a page once Spotify says the playlist is gone or no longer
+     * accessible, so other users stop being served it.
+     */
+    private void forgetIfInaccessible(PlaylistRequest request, ReceivingData.PlaylistLoadResult loadResult) {
+        if (SpotifyPlaylistAccessClassifier.classify(loadResult.error(), request.userAuthenticated()).isPresent()) {
+            playlistCache.remove(request.sharedKey());
+        }
+    }
+
+    private PlaylistCacheEntry storeLoaded(ReceivingData.PlaylistLoadResult loadResult, PlaylistCacheKey sharedKey, PlaylistCacheKey userKey, boolean userAuthenticated) {
+        // App tokens can only read playlists anyone with the link can read.
+        boolean shareable = !userAuthenticated || loadResult.publicPlaylist();
+        return playlistCache.store(shareable ? sharedKey : userKey, loadResult.playlistData(), loadResult.snapshotId());
+    }
+
+    /**
+     * Starts loading the page after the one just served, so scrolling on hits a warm cache. Skipped
+     * if that page is already cached fresh, already being prefetched, or the user's prefetch budget
+     * is used up. Partial (throttled) loads are dropped like on the request path. A prefetch for a
+     * page of a shared (public) playlist is registered under the shared key, so other users asking
+     * for that page join it too.
+     */
+    private void prefetchNextPage(ReceivingData rd, PlaylistRequest request, int nextOffset, boolean sharedPage) {
+        PlaylistCacheKey sharedKey = PlaylistCacheKey.shared(request.id(), nextOffset, request.limit());
+        PlaylistCacheKey userKey = new PlaylistCacheKey(request.id(), request.userKey().userSignature(), nextOffset, request.limit());
+        if (playlistCache.lookup(sharedKey) != null || playlistCache.lookup(userKey) != null) {
+            return;
+        }
+        playlistCache.prefetchInBackground(request.prefetchOwner(), sharedPage ? sharedKey : userKey,
+                () -> rd.loadPlaylistDataResult(nextOffset, request.limit()),
+                loadResult -> {
+                    if (loadResult.playlistData() != null && !loadResult.playlistData().isIncomplete()) {
+                        storeLoaded(loadResult, sharedKey, userKey, request.userAuthenticated());
+                    }
+                });
+    }
+
+    /**
+     * Background refresh of a stale page: revalidates by snapshot id when possible, otherwise
+     * reloads it. On failure or a partial reload the stale copy stays until its grace window
+     * ends, unless Spotify says the playlist is gone or no longer accessible.
+     */
+    private void refreshStaleEntry(ReceivingData rd, PlaylistCacheKey staleKey, PlaylistCacheEntry stale,
+                                   PlaylistCacheKey sharedKey, PlaylistCacheKey userKey,
+                                   int offset, int limit, boolean userAuthenticated) {
+        if (stale.snapshotId() != null && stale.snapshotId().equals(rd.fetchSnapshotId())) {
+            playlistCache.revalidate(staleKey, stale);
+            return;
+        }
+        ReceivingData.PlaylistLoadResult loadResult = rd.loadPlaylistDataResult(offset, limit);
+        if (loadResult.playlistData() == null) {
+            if (SpotifyPlaylistAccessClassifier.classify(loadResult.error(), userAuthenticated).isPresent()) {
+                playlistCache.remove(staleKey);
+            }
+            return;
+        }
+        if (loadResult.playlistData().isIncomplete()) {
+            return;
+        }
+        boolean shareable = !userAuthenticated || loadResult.publicPlaylist();
+        if (!staleKey.equals(shareable ? sharedKey : userKey)) {
+            playlistCache.remove(staleKey);
+        }
+        storeLoaded(loadResult, sharedKey, userKey, userAuthenticated);
+    }
+
     private void handleGetUserPlaylists(HttpExchange exchange) throws IOException {
         try {
             HttpUtils.addCorsHeaders(exchange);
@@ -197,7 +503,7 @@ public class PlaylistRoutes {
                 }
             }
 
-            SpotifyApi spotifyApi = new SpotifyApi.Builder().setAccessToken(token).build();
+            SpotifyApi spotifyApi = SpotifyTransport.shared().apiBuilder().setAccessToken(token).build();
             Paging<PlaylistSimplified> page = spotifyApi.getListOfCurrentUsersPlaylists()
                     .offset(offset)
                     .limit(limit)
@@ -142,6 +142,14 @@ public class DiscogsSessionStore {
         return new DiscogsSession(sessionId, token, tokenSecret, userAgent, username, displayName);
     }
     
+    /**
+     * Returns the session id carried by the request's cookie without loading the session.
+     */
+    public String getSessionId(HttpExchange exchange) {
+        String sessionId = CookieUtils.getCookie(exchange, COOKIE_NAME);
+        return (sessionId == null || sessionId.isBlank()) ? null : sessionId;
+    }
+    
     /**
      * Destroys the current session.
      */
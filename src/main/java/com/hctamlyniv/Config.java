@@ -30,11 +30,31 @@ import org.slf4j.LoggerFactory;
  *
  * Optional keys:
  * - SPOTIFY_REDIRECT_URI
+ * - SPOTIFY_PAGE_FETCH_CONCURRENCY
+ * - SPOTIFY_ALBUM_BATCH_CONCURRENCY
+ * - SPOTIFY_ALBUM_CACHE_MAX_ENTRIES
+ * - SPOTIFY_ALBUM_CACHE_TTL_HOURS
+ * - SPOTIFY_MAX_REQUESTS_PER_TOKEN
+ * - SPOTIFY_HTTP_TIMEOUT_SECONDS
  * - DISCOGS_TOKEN
  * - DISCOGS_USER_AGENT
+ * - DISCOGS_BATCH_PARALLELISM
+ * - DISCOGS_MAX_CONCURRENT_LOOKUPS
+ * - DISCOGS_RATE_LIMIT_PER_MINUTE
+ * - DISCOGS_PROCESS_RATE_LIMIT_PER_MINUTE
+ * - DISCOGS_CACHE_FLUSH_INTERVAL_MS
+ * - DISCOGS_CACHE_FLUSH_THRESHOLD
  * - PUBLIC_BASE_URL
  * - PORT
  * - CORS_ALLOWED_ORIGINS
+ * - HTTP_EXECUTOR_MODE (virtual|platform)
+ * - HTTP_MAX_CONCURRENT_REQUESTS
+ * - HTTP_PLATFORM_THREADS
+ * - PLAYLIST_CACHE_MAX_MB
+ * - PLAYLIST_CACHE_MAX_ENTRIES
+ * - PLAYLIST_CACHE_STALE_GRACE_SECONDS
+ * - PLAYLIST_PREFETCH_PER_USER
+ * - DISCOGS_FALLBACK_STALE_GRACE_MINUTES
  *
  * Template: see "config/env.example"
  */
@@ -46,14 +66,34 @@ public final class Config {
             "SPOTIFY_CLIENT_ID",
             "SPOTIFY_CLIENT_SECRET",
             "SPOTIFY_REDIRECT_URI",
+            "SPOTIFY_PAGE_FETCH_CONCURRENCY",
+            "SPOTIFY_ALBUM_BATCH_CONCURRENCY",
+            "SPOTIFY_ALBUM_CACHE_MAX_ENTRIES",
+            "SPOTIFY_ALBUM_CACHE_TTL_HOURS",
+            "SPOTIFY_MAX_REQUESTS_PER_TOKEN",
+            "SPOTIFY_HTTP_TIMEOUT_SECONDS",
             "DISCOGS_TOKEN",
             "DISCOGS_USER_AGENT",
             "DISCOGS_CONSUMER_KEY",
             "DISCOGS_CONSUMER_SECRET",
             "DISCOGS_REDIRECT_URI",
+            "DISCOGS_BATCH_PARALLELISM",
+            "DISCOGS_MAX_CONCURRENT_LOOKUPS",
+            "DISCOGS_RATE_LIMIT_PER_MINUTE",
+            "DISCOGS_PROCESS_RATE_LIMIT_PER_MINUTE",
+            "DISCOGS_CACHE_FLUSH_INTERVAL_MS",
+            "DISCOGS_CACHE_FLUSH_THRESHOLD",
             "PUBLIC_BASE_URL",
             "PORT",
             "CORS_ALLOWED_ORIGINS",
+            "HTTP_EXECUTOR_MODE",
+            "HTTP_MAX_CONCURRENT_REQUESTS",
+            "HTTP_PLATFORM_THREADS",
+            "PLAYLIST_CACHE_MAX_MB",
+            "PLAYLIST_CACHE_MAX_ENTRIES",
+            "PLAYLIST_CACHE_STALE_GRACE_SECONDS",
+            "PLAYLIST_PREFETCH_PER_USER",
+            "DISCOGS_FALLBACK_STALE_GRACE_MINUTES",
             "VINYLMATCH_CONFIG",
             "REDIS_HOST",
             "REDIS_PORT",
@@ -207,6 +247,19 @@ public final class Config {
         return cache.get(key);
     }
 
+    private static int getPositiveInt(String key, int defaultValue) {
+        String value = get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     // =========================================================================
     // Spotify Configuration
     // =========================================================================
@@ -223,6 +276,48 @@ public final class Config {
         return get("SPOTIFY_REDIRECT_URI");
     }
 
+    /**
+     * Playlist item pages fetched concurrently per playlist load.
+     */
+    public static int getSpotifyPageFetchConcurrency() {
+        return getPositiveInt("SPOTIFY_PAGE_FETCH_CONCURRENCY", 4);
+    }
+
+    /**
+     * Album detail batches (20 albums each) requested concurrently per playlist load.
+     */
+    public static int getSpotifyAlbumBatchConcurrency() {
+        return getPositiveInt("SPOTIFY_ALBUM_BATCH_CONCURRENCY", 4);
+    }
+
+    /**
+     * Albums held in the process-wide Spotify album cache.
+     */
+    public static int getSpotifyAlbumCacheMaxEntries() {
+        return getPositiveInt("SPOTIFY_ALBUM_CACHE_MAX_ENTRIES", 20_000);
+    }
+
+    /**
+     * How long cached Spotify album details (cover, release date, UPC) are reused.
+     */
+    public static int getSpotifyAlbumCacheTtlHours() {
+        return getPositiveInt("SPOTIFY_ALBUM_CACHE_TTL_HOURS", 24);
+    }
+
+    /**
+     * Spotify API requests in flight at once per access token, across all loads.
+     */
+    public static int getSpotifyMaxRequestsPerToken() {
+        return getPositiveInt("SPOTIFY_MAX_REQUESTS_PER_TOKEN", 8);
+    }
+
+    /**
+     * Connect and response timeout for Spotify API requests.
+     */
+    public static int getSpotifyHttpTimeoutSeconds() {
+        return getPositiveInt("SPOTIFY_HTTP_TIMEOUT_SECONDS", 15);
+    }
+
     // =========================================================================
     // Discogs Configuration
     // =========================================================================
@@ -247,6 +342,57 @@ public final class Config {
         return get("DISCOGS_REDIRECT_URI");
     }
 
+    /**
+     * Distinct albums resolved concurrently within a single batch request.
+     */
+    public static int getDiscogsBatchParallelism() {
+        return getPositiveInt("DISCOGS_BATCH_PARALLELISM", 4);
+    }
+
+    /**
+     * Process-wide cap on concurrent Discogs album lookups, shared by all batch requests.
+     */
+    public static int getDiscogsMaxConcurrentLookups() {
+        return getPositiveInt("DISCOGS_MAX_CONCURRENT_LOOKUPS", 8);
+    }
+
+    /**
+     * Discogs API calls per minute allowed for a single credential (Discogs default: 60).
+     */
+    public static int getDiscogsRateLimitPerMinute() {
+        return getPositiveInt("DISCOGS_RATE_LIMIT_PER_MINUTE", 60);
+    }
+
+    /**
+     * Discogs API calls per minute allowed for the whole process, across all credentials.
+     * Discogs also throttles by source IP, so this defaults to the same quota.
+     */
+    public static int getDiscogsProcessRateLimitPerMinute() {
+        return getPositiveInt("DISCOGS_PROCESS_RATE_LIMIT_PER_MINUTE", 60);
+    }
+
+    /**
+     * Maximum delay before newly remembered Discogs matches are written to disk.
+     */
+    public static long getDiscogsCacheFlushIntervalMillis() {
+        return getPositiveInt("DISCOGS_CACHE_FLUSH_INTERVAL_MS", 5_000);
+    }
+
+    /**
+     * Number of pending Discogs matches that triggers an immediate flush.
+     */
+    public static int getDiscogsCacheFlushThreshold() {
+        return getPositiveInt("DISCOGS_CACHE_FLUSH_THRESHOLD", 100);
+    }
+
+    /**
+     * How long a cached Discogs search-fallback URL may be served while a better match is looked
+     * up in the background. Older fallbacks are re-searched before responding.
+     */
+    public static int getDiscogsFallbackStaleGraceMinutes() {
+        return getPositiveInt("DISCOGS_FALLBACK_STALE_GRACE_MINUTES", 1_440);
+    }
+
     // =========================================================================
     // Server Configuration
     // =========================================================================
@@ -271,6 +417,55 @@ public final class Config {
         return get("CORS_ALLOWED_ORIGINS");
     }
 
+    /**
+     * Request execution mode for the HTTP server: "virtual" (default) or "platform".
+     */
+    public static String getHttpExecutorMode() {
+        String mode = get("HTTP_EXECUTOR_MODE");
+        return mode != null && !mode.isBlank() ? mode.trim().toLowerCase() : "virtual";
+    }
+
+    public static int getHttpMaxConcurrentRequests() {
+        return getPositiveInt("HTTP_MAX_CONCURRENT_REQUESTS", 256);
+    }
+
+    public static int getHttpPlatformThreads() {
+        return getPositiveInt("HTTP_PLATFORM_THREADS", 32);
+    }
+
+    // =========================================================================
+    // Playlist Cache Configuration
+    // =========================================================================
+
+    /**
+     * Estimated heap budget of the in-memory playlist cache tier, in megabytes.
+     */
+    public static int getPlaylistCacheMaxMegabytes() {
+        return getPositiveInt("PLAYLIST_CACHE_MAX_MB", 64);
+    }
+
+    /**
+     * Maximum number of playlist pages held in memory.
+     */
+    public static int getPlaylistCacheMaxEntries() {
+        return getPositiveInt("PLAYLIST_CACHE_MAX_ENTRIES", 2_000);
+    }
+
+    /**
+     * How long after expiry a cached playlist page may still be served while it is refreshed
+     * in the background.
+     */
+    public static int getPlaylistCacheStaleGraceSeconds() {
+        return getPositiveInt("PLAYLIST_CACHE_STALE_GRACE_SECONDS", 600);
+    }
+
+    /**
+     * Maximum number of next-page prefetches one user (or anonymous client) may have in flight.
+     */
+    public static int getPlaylistPrefetchPerUser() {
+        return getPositiveInt("PLAYLIST_PREFETCH_PER_USER", 2);
+    }
+
     // =========================================================================
     // Redis Configuration
     // =========================================================================
@@ -377,6 +572,7 @@ public final class Config {
         log.info("  DISCOGS_REDIRECT_URI: {}", (getDiscogsRedirectUri() != null ? getDiscogsRedirectUri() : "[using default]"));
         log.info("  PUBLIC_BASE_URL: {}", (getPublicBaseUrl() != null ? getPublicBaseUrl() : "[not set]"));
         log.info("  PORT: {}", getPort());
+        log.info("  HTTP_EXECUTOR_MODE: {} (max concurrent: {})", getHttpExecutorMode(), getHttpMaxConcurrentRequests());
 
         if (!hasSpotifyCredentials()) {
             log.warn("[Config] WARNING: Spotify credentials not configured!");
@@ -0,0 +1,226 @@
+package com.hctamlyniv;
+
+import com.hctamlyniv.discogs.DiscogsRequestContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Resolves a batch of tracks against Discogs.
+ *
+ * Tracks are grouped by album (artist/album/year/barcode), each distinct album is resolved once,
+ * and the groups run concurrently. Concurrency is bounded twice: per batch, so one large request
+ * cannot take every slot, and by a process-wide budget shared by all batches, so parallel batch
+ * requests don't multiply the load on the Discogs API. Albums that are already cached are answered
+ * up front without taking a slot. Results come back in input order from {@link #match}, or in
+ * completion order from {@link #matchStreaming}.
+ */
+public class DiscogsBatchMatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(DiscogsBatchMatcher.class);
+    private static final ExecutorService LOOKUP_EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("discogs-batch-", 0).factory());
+    private static volatile Semaphore sharedBudget;
+
+    private final int batchParallelism;
+    private final Semaphore processBudget;
+
+    public DiscogsBatchMatcher(int batchParallelism, Semaphore processBudget) {
+        this.batchParallelism = Math.max(1, batchParallelism);
+        this.processBudget = processBudget;
+    }
+
+    public static DiscogsBatchMatcher fromConfig() {
+        return new DiscogsBatchMatcher(Config.getDiscogsBatchParallelism(), sharedBudget());
+    }
+
+    private static Semaphore sharedBudget() {
+        Semaphore budget = sharedBudget;
+        if (budget == null) {
+            synchronized (DiscogsBatchMatcher.class) {
+                budget = sharedBudget;
+                if (budget == null) {
+                    budget = new Semaphore(Config.getDiscogsMaxConcurrentLookups(), true);
+                    sharedBudget = budget;
+                }
+            }
+        }
+        return budget;
+    }
+
+    /**
+     * Matches all tracks and returns one result per track, in the same order.
+     */
+    public List<BatchResult> match(DiscogsService discogs, List<BatchTrack> tracks) {
+        if (tracks == null || tracks.isEmpty()) {
+            return List.of();
+        }
+        BatchResult[] results = new BatchResult[tracks.size()];
+        matchStreaming(discogs, tracks, (position, result) -> results[position] = result);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Matches all tracks and hands each result to {@code sink} as soon as it is known.
+     *
+     * Albums already in the local cache are emitted first, before any Discogs request is made;
+     * the remaining albums are emitted group by group as their lookups complete. The sink is
+     * called with the track's position in {@code tracks}, one call at a time, and this method
+     * returns once every track has been emitted.
+     */
+    public void matchStreaming(DiscogsService discogs, List<BatchTrack> tracks, ResultSink sink) {
+        if (tracks == null || tracks.isEmpty()) {
+            return;
+        }
+
+        Map<String, AlbumGroup> groups = new LinkedHashMap<>();
+        for (int i = 0; i < tracks.size(); i++) {
+            BatchTrack track = tracks.get(i);
+            if (track.artist() == null || track.album() == null) {
+                sink.accept(i, new BatchResult(track.key(), track.index(), null, false));
+                continue;
+            }
+            String lookupKey = buildLookupKey(track.artist(), track.album(), track.releaseYear(), track.barcode());
+            if (lookupKey == null) {
+                // Not groupable: resolve on its own.
+                lookupKey = "#" + i;
+            }
+            groups.computeIfAbsent(lookupKey, k -> new AlbumGroup(track)).positions.add(i);
+        }
+
+        List<AlbumGroup> pending = new ArrayList<>();
+        for (AlbumGroup group : groups.values()) {
+            Optional<String> cached = findCached(discogs, group.representative);
+            if (cached.isPresent()) {
+                emit(group, new Resolution(cached.get(), true), tracks, sink);
+            } else {
+                pending.add(group);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Semaphore batchPermits = new Semaphore(batchParallelism);
+        DiscogsRequestContext context = DiscogsRequestContext.current();
+        Object sinkLock = new Object();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[pending.size()];
+        for (int g = 0; g < pending.size(); g++) {
+            AlbumGroup group = pending.get(g);
+            futures[g] = CompletableFuture
+                    .supplyAsync(() -> {
+                        try (DiscogsRequestContext.Scope ignored = context.open()) {
+                            return resolve(discogs, group.representative, batchPermits);
+                        }
+                    }, LOOKUP_EXECUTOR)
+                    .thenAccept(resolution -> {
+                        synchronized (sinkLock) {
+                            emit(group, resolution, tracks, sink);
+                        }
+                    });
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private static void emit(AlbumGroup group, Resolution resolution, List<BatchTrack> tracks, ResultSink sink) {
+        boolean first = true;
+        for (int position : group.positions) {
+            BatchTrack track = tracks.get(position);
+            // Repeats of an album within the same batch are served from the first lookup.
+            boolean cacheHit = !first || resolution.cacheHit();
+            first = false;
+            sink.accept(position, new BatchResult(track.key(), track.index(), resolution.url(), cacheHit));
+        }
+    }
+
+    private static Optional<String> findCached(DiscogsService discogs, BatchTrack track) {
+        try {
+            return discogs.findCachedAlbumUri(track.artist(), track.album(), track.releaseYear(), track.barcode());
+        } catch (Exception e) {
+            log.debug("Discogs cache lookup failed for {} - {}: {}", track.artist(), track.album(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Resolution resolve(DiscogsService discogs, BatchTrack track, Semaphore batchPermits) {
+        boolean batchAcquired = false;
+        boolean budgetAcquired = false;
+        try {
+            batchPermits.acquire();
+            batchAcquired = true;
+            if (processBudget != null) {
+                processBudget.acquire();
+                budgetAcquired = true;
+            }
+            Optional<String> cached = discogs.peekCachedUri(track.artist(), track.album(), track.releaseYear(), track.barcode());
+            Optional<String> url = discogs.findAlbumUri(track.artist(), track.album(), track.releaseYear(), track.trackTitle(), track.barcode());
+            boolean cacheHit = cached.isPresent() && url.isPresent() && cached.get().equals(url.get());
+            return new Resolution(url.orElse(null), cacheHit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Resolution(null, false);
+        } catch (Exception e) {
+            log.debug("Discogs batch lookup failed for {} - {}: {}", track.artist(), track.album(), e.getMessage());
+            return new Resolution(null, false);
+        } finally {
+            if (budgetAcquired) processBudget.release();
+            if (batchAcquired) batchPermits.release();
+        }
+    }
+
+    static String buildLookupKey(String artist, String album, Integer year, String barcode) {
+        if (artist == null || album == null) {
+            return null;
+        }
+        String normalizedArtist = normalizeLookupPart(artist);
+        String normalizedAlbum = normalizeLookupPart(album);
+        if (normalizedArtist.isBlank() || normalizedAlbum.isBlank()) {
+            return null;
+        }
+        String yearPart = (year != null) ? String.valueOf(year) : "";
+        return normalizedArtist + "|" + normalizedAlbum + "|" + yearPart + "|" + normalizeLookupPart(barcode);
+    }
+
+    private static String normalizeLookupPart(String value) {
+        return (value == null) ? "" : value.trim().toLowerCase();
+    }
+
+    /**
+     * A single track entry of a batch request.
+     */
+    public record BatchTrack(String key, Integer index, String artist, String album, Integer releaseYear, String trackTitle, String barcode) {}
+
+    /**
+     * Match result for one track of a batch request.
+     */
+    public record BatchResult(String key, Integer index, String url, boolean cacheHit) {}
+
+    /**
+     * Receives batch results together with the position of the track in the request.
+     */
+    @FunctionalInterface
+    public interface ResultSink {
+        void accept(int position, BatchResult result);
+    }
+
+    private record Resolution(String url, boolean cacheHit) {}
+
+    private static final class AlbumGroup {
+        private final BatchTrack representative;
+        private final List<Integer> positions = new ArrayList<>();
+
+        private AlbumGroup(BatchTrack representative) {
+            this.representative = representative;
+        }
+    }
+}
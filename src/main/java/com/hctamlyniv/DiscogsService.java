@@ -6,6 +6,8 @@ import com.hctamlyniv.curation.RedisCuratedLinkStore;
 import com.hctamlyniv.discogs.DiscogsApiClient;
 import com.hctamlyniv.discogs.DiscogsCacheStore;
 import com.hctamlyniv.discogs.DiscogsNormalizer;
+import com.hctamlyniv.discogs.DiscogsRequestContext;
+import com.hctamlyniv.discogs.DiscogsRequestScheduler;
 import com.hctamlyniv.discogs.DiscogsUrlUtils;
 import com.hctamlyniv.discogs.model.CurationCandidate;
 import com.hctamlyniv.discogs.model.CuratedLink;
@@ -19,9 +21,15 @@ import java.net.http.HttpClient;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Discogs service facade: caching + progressive matching + optional API features (profile/wishlist).
@@ -31,6 +39,10 @@ public class DiscogsService {
     private static final Logger log = LoggerFactory.getLogger(DiscogsService.class);
     private static final int TRANSIENT_RETRY_LIMIT = 3;
     private static final long TRANSIENT_RETRY_BASE_DELAY_MS = 450L;
+    private static final SingleFlight<String, Optional<String>> LOOKUPS = new SingleFlight<>();
+    // A search-fallback URL is served as-is for up to this long before a background search retries it.
+    private static final long FALLBACK_MAX_AGE_MILLIS = Duration.ofHours(1).toMillis();
+    private static final Set<String> FALLBACK_REFRESHES = ConcurrentHashMap.newKeySet();
 
     private final ObjectMapper mapper;
     private final DiscogsCacheStore cacheStore;
@@ -38,6 +50,8 @@ public class DiscogsService {
 
     private final String userAgent;
     private final DiscogsApiClient apiClient;
+    private final long fallbackStaleGraceMillis;
+    private final long fallbackRefreshAfterMillis;
 
     public DiscogsService(String token, String userAgent) {
         this(token, null, userAgent, null, null, null);
@@ -62,6 +76,8 @@ public class DiscogsService {
                 .connectTimeout(Duration.ofSeconds(10))
                 .build();
         this.apiClient = new DiscogsApiClient(http, mapper, token, this.userAgent, null, consumerKey, consumerSecret, tokenSecret);
+        this.fallbackStaleGraceMillis = Duration.ofMinutes(Config.getDiscogsFallbackStaleGraceMinutes()).toMillis();
+        this.fallbackRefreshAfterMillis = fallbackRefreshAfterMillis(fallbackStaleGraceMillis);
 
         cacheStore.load();
     }
@@ -79,126 +95,269 @@ public class DiscogsService {
     }
 
     public Optional<String> findAlbumUri(String artist, String album, Integer releaseYear, String trackTitle, String barcode) {
+        return findAlbumUriAsync(artist, album, releaseYear, trackTitle, barcode).join();
+    }
+
+    /**
+     * Non-blocking variant of {@link #findAlbumUri}: cache steps run inline, the Discogs passes are
+     * chained on the API client's async calls, so a pending lookup holds no thread while it waits
+     * for a rate limit slot or a response. Concurrent lookups of the same album (same cache key)
+     * and priority class share one pass chain process-wide.
+     */
+    public CompletableFuture<Optional<String>> findAlbumUriAsync(String artist, String album, Integer releaseYear, String trackTitle, String barcode) {
+        String cacheKey = cacheStore.buildCacheKey(DiscogsNormalizer.extractPrimaryArtist(artist), album == null ? null : album.trim(), releaseYear);
+        String flightKey = flightKey(apiClient.isConfigured(), cacheKey, barcode, DiscogsRequestContext.current().priority());
+        return LOOKUPS.execute(flightKey, () -> resolveAlbumUriAsync(artist, album, releaseYear, trackTitle, barcode));
+    }
+
+    /**
+     * Single-flight key of an album lookup. Token and token-less lookups resolve differently (API
+     * match vs. web search fallback). The priority class is part of the key because a joiner waits
+     * on the leader's scheduler tickets: an interactive lookup must not queue behind batch work.
+     */
+    static String flightKey(boolean apiConfigured, String cacheKey, String barcode, DiscogsRequestScheduler.Priority priority) {
+        String normalizedBarcode = (barcode == null) ? "" : barcode.trim();
+        return (apiConfigured ? "api|" : "web|") + priority + "|" + cacheKey + "|" + normalizedBarcode;
+    }
+
+    /**
+     * Returns single-flight metrics for album lookups across all Discogs services.
+     */
+    public static Map<String, Object> lookupCoalescingStats() {
+        return LOOKUPS.snapshot();
+    }
+
+    private CompletableFuture<Optional<String>> resolveAlbumUriAsync(String artist, String album, Integer releaseYear, String trackTitle, String barcode) {
         final String origArtist = DiscogsNormalizer.extractPrimaryArtist(artist);
         final String origAlbum = album == null ? null : album.trim();
         final String origTrack = trackTitle == null ? null : trackTitle.trim();
         final Integer year = releaseYear;
         final String cacheKey = cacheStore.buildCacheKey(origArtist, origAlbum, year);
-        final String normalizedKey = CuratedLinkStore.normalizeKey(origArtist, origAlbum, year);
+        final DiscogsRequestContext context = DiscogsRequestContext.current();
 
-        Optional<CuratedLink> curatedLink = curatedLinkStore.find(normalizedKey);
-        if (curatedLink.isPresent() && curatedLink.get().url() != null) {
-            return Optional.of(curatedLink.get().url());
-        }
-        
-        if (barcode != null && !barcode.isBlank()) {
-            curatedLink = curatedLinkStore.findByBarcode(barcode);
-            if (curatedLink.isPresent() && curatedLink.get().url() != null) {
-                return Optional.of(curatedLink.get().url());
-            }
+        Optional<String> curated = findCuratedOrBarcodeCached(origArtist, origAlbum, year, cacheKey, barcode);
+        if (curated.isPresent()) {
+            return CompletableFuture.completedFuture(curated);
         }
 
-        Optional<String> curated = cacheStore.findCuratedLink(cacheKey, barcode);
-        if (curated.isPresent() && isCacheFinalResult(curated.get())) {
-            return curated;
+        CompletableFuture<Optional<String>> byBarcode = CompletableFuture.completedFuture(Optional.empty());
+        if (barcode != null && !barcode.isBlank() && apiClient.isConfigured()) {
+            byBarcode = inContext(context, () -> apiClient.searchByBarcodeAsync(barcode))
+                    .exceptionally(e -> {
+                        log.debug("Discogs barcode lookup failed: {}", e.getMessage());
+                        return Optional.empty();
+                    });
         }
 
-        if (barcode != null && !barcode.isBlank()) {
-            Optional<String> cachedByBarcode = cacheStore.peekCachedUri(null, null, null, barcode);
-            if (cachedByBarcode.isPresent() && isCacheFinalResult(cachedByBarcode.get())) {
-                return cachedByBarcode;
+        return byBarcode.thenCompose(byCode -> {
+            if (byCode.isPresent()) {
+                cacheStore.rememberResult(cacheKey, byCode.get(), barcode);
+                return CompletableFuture.completedFuture(byCode);
+            }
+
+            SearchRequest request = new SearchRequest(artist, album, releaseYear, origArtist, origAlbum, origTrack, year, cacheKey, barcode, context);
+            Optional<String> cached = servableCachedMatch(cacheStore.peekCachedMatch(origArtist, origAlbum, year, null), request);
+            if (cached.isPresent()) {
+                return CompletableFuture.completedFuture(cached);
             }
-            if (apiClient.isConfigured()) {
-                try {
-                    Optional<String> byCode = apiClient.searchByBarcode(barcode);
-                    if (byCode.isPresent()) {
-                        cacheStore.rememberResult(cacheKey, byCode.get(), barcode);
-                        return byCode;
-                    }
-                } catch (Exception e) {
-                    log.debug("Discogs barcode lookup failed: {}", e.getMessage());
-                }
+
+            // No token: provide a safe Discogs web search URL as fallback.
+            if (!apiClient.isConfigured()) {
+                String fallback = DiscogsUrlUtils.buildWebSearchUrl(
+                        DiscogsNormalizer.normalizeArtistLevel(origArtist, DiscogsNormalizer.NormLevel.HEAVY),
+                        origAlbum,
+                        year
+                );
+                cacheStore.rememberResult(cacheKey, fallback, barcode);
+                return CompletableFuture.completedFuture(Optional.of(fallback));
             }
+
+            return searchPassesAsync(request, 0);
+        });
+    }
+
+    /**
+     * Returns a cached album match if it may be served: real matches always, search-fallback URLs
+     * until the stale grace window ends. Fallbacks older than {@link #fallbackRefreshAfterMillis}
+     * are served stale while a single background search looks for a real match.
+     */
+    private Optional<String> servableCachedMatch(Optional<DiscogsCacheStore.CachedMatch> cached, SearchRequest request) {
+        if (cached.isEmpty()) {
+            return Optional.empty();
+        }
+        String url = cached.get().url();
+        if (isCacheFinalResult(url)) {
+            return Optional.of(url);
         }
+        long age = cached.get().ageMillis(System.currentTimeMillis());
+        if (age >= fallbackStaleGraceMillis) {
+            return Optional.empty();
+        }
+        if (age >= fallbackRefreshAfterMillis) {
+            refreshFallbackInBackground(request);
+        }
+        return Optional.of(url);
+    }
+
+    /**
+     * Age after which a cached fallback is refreshed in the background: an hour, but never more
+     * than half the grace window, so the refresh always gets a chance before the grace ends.
+     */
+    static long fallbackRefreshAfterMillis(long staleGraceMillis) {
+        return Math.min(FALLBACK_MAX_AGE_MILLIS, staleGraceMillis / 2);
+    }
 
-        Optional<String> cached = cacheStore.peekCachedUri(origArtist, origAlbum, year, null);
-        if (cached.isPresent() && isCacheFinalResult(cached.get())) {
-            return cached;
+    private void refreshFallbackInBackground(SearchRequest request) {
+        String key = request.cacheKey() + "|" + (request.barcode() == null ? "" : request.barcode().trim());
+        if (!FALLBACK_REFRESHES.add(key)) {
+            return;
         }
+        DiscogsRequestContext background = new DiscogsRequestContext(DiscogsRequestScheduler.Priority.BACKGROUND, request.context().session());
+        SearchRequest backgroundRequest = new SearchRequest(request.artist(), request.album(), request.releaseYear(),
+                request.origArtist(), request.origAlbum(), request.origTrack(), request.year(),
+                request.cacheKey(), request.barcode(), background);
+        // The passes remember whatever they find, which also resets the fallback's age.
+        searchPassesAsync(backgroundRequest, 0).whenComplete((result, error) -> FALLBACK_REFRESHES.remove(key));
+    }
+
+    /**
+     * Runs the progressive search passes; the first hit wins and is cached. Transient Discogs
+     * errors restart the chain up to {@link #TRANSIENT_RETRY_LIMIT} times.
+     */
+    private CompletableFuture<Optional<String>> searchPassesAsync(SearchRequest request, int attempt) {
+        String origAlbum = request.origAlbum();
+        Integer year = request.year();
+        String origTrack = request.origTrack();
+        String artistStrict = DiscogsNormalizer.normalizeArtistLevel(request.origArtist(), DiscogsNormalizer.NormLevel.HEAVY);
+
+        // Pass A: free-text q search (raw album)
+        String q1 = ((artistStrict != null) ? artistStrict : "") + " " + ((origAlbum != null) ? origAlbum : "");
+        // Pass B: free-text q search (lightly normalized album)
+        String lightAlbum = DiscogsNormalizer.normalizeTitleLevel(origAlbum, DiscogsNormalizer.NormLevel.LIGHT);
+        String q2 = ((artistStrict != null) ? artistStrict : "") + " " + ((lightAlbum != null) ? lightAlbum : "");
+
+        List<Supplier<CompletableFuture<Optional<String>>>> passes = List.of(
+                () -> apiClient.searchOnceQAsync(q1, year, artistStrict, origAlbum),
+                () -> apiClient.searchOnceQAsync(q2, year, artistStrict, origAlbum),
+                // Structured fallbacks (master preferred)
+                () -> apiClient.searchOnceAsync(artistStrict, origAlbum, year, origTrack, true),
+                () -> apiClient.searchOnceAsync(artistStrict, origAlbum, year, origTrack, false),
+                () -> apiClient.searchOnceAsync(artistStrict, origAlbum, null, origTrack, true),
+                () -> apiClient.searchOnceAsync(artistStrict, origAlbum, null, origTrack, false)
+        );
+
+        return firstMatchAsync(passes, 0, request.context()).handle((result, error) -> {
+            if (error == null) {
+                String url = result.orElseGet(() -> DiscogsUrlUtils.buildWebSearchUrl(artistStrict, origAlbum, year));
+                cacheStore.rememberResult(request.cacheKey(), url, request.barcode());
+                return CompletableFuture.completedFuture(Optional.of(url));
+            }
+
+            boolean transientError = isTransientDiscogsError(error);
+            if (transientError && attempt < TRANSIENT_RETRY_LIMIT) {
+                int nextAttempt = attempt + 1;
+                // 429s are paced by the API client's rate limiter, which already holds back
+                // the next call until a slot frees up; only server errors need a backoff here.
+                long delay = isRateLimitedDiscogsError(error) ? 0L : backoffDelay(nextAttempt);
+                return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                        .thenCompose(ignored -> searchPassesAsync(request, nextAttempt));
+            }
 
-        // No token: provide a safe Discogs web search URL as fallback.
-        if (!apiClient.isConfigured()) {
             String fallback = DiscogsUrlUtils.buildWebSearchUrl(
-                    DiscogsNormalizer.normalizeArtistLevel(origArtist, DiscogsNormalizer.NormLevel.HEAVY),
-                    origAlbum,
-                    year
+                    DiscogsNormalizer.normalizeArtistLevel(request.artist(), DiscogsNormalizer.NormLevel.HEAVY),
+                    request.album(),
+                    request.releaseYear()
             );
-            cacheStore.rememberResult(cacheKey, fallback, barcode);
-            return Optional.of(fallback);
+
+            if (!transientError) {
+                cacheStore.rememberResult(request.cacheKey(), fallback, request.barcode());
+            } else {
+                log.debug("Discogs transient error for {} after {} retries; returning uncached fallback", request.cacheKey(), attempt);
+            }
+            return CompletableFuture.completedFuture(Optional.of(fallback));
+        }).thenCompose(Function.identity());
+    }
+
+    private static CompletableFuture<Optional<String>> firstMatchAsync(
+            List<Supplier<CompletableFuture<Optional<String>>>> passes, int index, DiscogsRequestContext context) {
+        if (index >= passes.size()) {
+            return CompletableFuture.completedFuture(Optional.empty());
         }
+        return inContext(context, passes.get(index)).thenCompose(result -> result.isPresent()
+                ? CompletableFuture.completedFuture(result)
+                : firstMatchAsync(passes, index + 1, context));
+    }
 
-        int attempt = 0;
-        while (true) {
-            try {
-                Optional<String> result;
-
-                String artistStrict = DiscogsNormalizer.normalizeArtistLevel(origArtist, DiscogsNormalizer.NormLevel.HEAVY);
-
-                // Pass A: free-text q search (raw album)
-                String q1 = ((artistStrict != null) ? artistStrict : "") + " " + ((origAlbum != null) ? origAlbum : "");
-                result = apiClient.searchOnceQ(q1, year, artistStrict, origAlbum);
-                if (result.isPresent()) {
-                    cacheStore.rememberResult(cacheKey, result.get(), barcode);
-                    return result;
-                }
-
-                // Pass B: free-text q search (lightly normalized album)
-                String lightAlbum = DiscogsNormalizer.normalizeTitleLevel(origAlbum, DiscogsNormalizer.NormLevel.LIGHT);
-                String q2 = ((artistStrict != null) ? artistStrict : "") + " " + ((lightAlbum != null) ? lightAlbum : "");
-                result = apiClient.searchOnceQ(q2, year, artistStrict, origAlbum);
-                if (result.isPresent()) {
-                    cacheStore.rememberResult(cacheKey, result.get(), barcode);
-                    return result;
-                }
+    /**
+     * Starts an async call under the caller's scheduling context; later passes are started from
+     * whichever thread completed the previous one.
+     */
+    private static <T> CompletableFuture<T> inContext(DiscogsRequestContext context, Supplier<CompletableFuture<T>> call) {
+        try (DiscogsRequestContext.Scope ignored = context.open()) {
+            return call.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
-                // Structured fallbacks (master preferred)
-                result = apiClient.searchOnce(artistStrict, origAlbum, year, origTrack, true);
-                if (result.isPresent()) { cacheStore.rememberResult(cacheKey, result.get(), barcode); return result; }
+    private record SearchRequest(
+            String artist,
+            String album,
+            Integer releaseYear,
+            String origArtist,
+            String origAlbum,
+            String origTrack,
+            Integer year,
+            String cacheKey,
+            String barcode,
+            DiscogsRequestContext context
+    ) {}
+
+    /**
+     * Resolves an album from curated links and the local match cache only, without calling the
+     * Discogs API. Only results {@link #findAlbumUri} would also return from cache are reported.
+     */
+    public Optional<String> findCachedAlbumUri(String artist, String album, Integer releaseYear, String barcode) {
+        final String origArtist = DiscogsNormalizer.extractPrimaryArtist(artist);
+        final String origAlbum = album == null ? null : album.trim();
+        final String cacheKey = cacheStore.buildCacheKey(origArtist, origAlbum, releaseYear);
 
-                result = apiClient.searchOnce(artistStrict, origAlbum, year, origTrack, false);
-                if (result.isPresent()) { cacheStore.rememberResult(cacheKey, result.get(), barcode); return result; }
+        Optional<String> curated = findCuratedOrBarcodeCached(origArtist, origAlbum, releaseYear, cacheKey, barcode);
+        if (curated.isPresent()) {
+            return curated;
+        }
+        SearchRequest request = new SearchRequest(artist, album, releaseYear, origArtist, origAlbum,
+                null, releaseYear, cacheKey, barcode, DiscogsRequestContext.current());
+        return servableCachedMatch(cacheStore.peekCachedMatch(origArtist, origAlbum, releaseYear, null), request);
+    }
 
-                result = apiClient.searchOnce(artistStrict, origAlbum, null, origTrack, true);
-                if (result.isPresent()) { cacheStore.rememberResult(cacheKey, result.get(), barcode); return result; }
+    private Optional<String> findCuratedOrBarcodeCached(String origArtist, String origAlbum, Integer year, String cacheKey, String barcode) {
+        final String normalizedKey = CuratedLinkStore.normalizeKey(origArtist, origAlbum, year);
 
-                result = apiClient.searchOnce(artistStrict, origAlbum, null, origTrack, false);
-                if (result.isPresent()) { cacheStore.rememberResult(cacheKey, result.get(), barcode); return result; }
+        Optional<CuratedLink> curatedLink = curatedLinkStore.find(normalizedKey);
+        if (curatedLink.isPresent() && curatedLink.get().url() != null) {
+            return Optional.of(curatedLink.get().url());
+        }
 
-                String fallback = DiscogsUrlUtils.buildWebSearchUrl(artistStrict, origAlbum, year);
-                cacheStore.rememberResult(cacheKey, fallback, barcode);
-                return Optional.of(fallback);
-            } catch (Exception e) {
-                boolean transientError = isTransientDiscogsError(e);
-                if (transientError && attempt < TRANSIENT_RETRY_LIMIT) {
-                    attempt++;
-                    sleepBackoff(attempt);
-                    continue;
-                }
+        if (barcode != null && !barcode.isBlank()) {
+            curatedLink = curatedLinkStore.findByBarcode(barcode);
+            if (curatedLink.isPresent() && curatedLink.get().url() != null) {
+                return Optional.of(curatedLink.get().url());
+            }
+        }
 
-                String fallback = DiscogsUrlUtils.buildWebSearchUrl(
-                        DiscogsNormalizer.normalizeArtistLevel(artist, DiscogsNormalizer.NormLevel.HEAVY),
-                        album,
-                        releaseYear
-                );
+        Optional<String> curated = cacheStore.findCuratedLink(cacheKey, barcode);
+        if (curated.isPresent() && isCacheFinalResult(curated.get())) {
+            return curated;
+        }
 
-                if (!transientError) {
-                    cacheStore.rememberResult(cacheKey, fallback, barcode);
-                } else {
-                    log.debug("Discogs transient error for {} after {} retries; returning uncached fallback", cacheKey, attempt);
-                }
-                return Optional.of(fallback);
+        if (barcode != null && !barcode.isBlank()) {
+            Optional<String> cachedByBarcode = cacheStore.peekCachedUri(null, null, null, barcode);
+            if (cachedByBarcode.isPresent() && isCacheFinalResult(cachedByBarcode.get())) {
+                return cachedByBarcode;
             }
         }
+        return Optional.empty();
     }
 
     public Optional<DiscogsProfile> fetchProfile() {
@@ -276,13 +435,19 @@ public class DiscogsService {
         return false;
     }
 
-    private static void sleepBackoff(int attempt) {
-        long delay = TRANSIENT_RETRY_BASE_DELAY_MS * Math.max(1, attempt);
-        try {
-            Thread.sleep(delay);
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
+    private static boolean isRateLimitedDiscogsError(Throwable throwable) {
+        Throwable current = throwable;
+        while (current != null) {
+            if ("discogs_transient_status:429".equals(current.getMessage())) {
+                return true;
+            }
+            current = current.getCause();
         }
+        return false;
+    }
+
+    private static long backoffDelay(int attempt) {
+        return TRANSIENT_RETRY_BASE_DELAY_MS * Math.max(1, attempt);
     }
 
     private boolean isCacheFinalResult(String url) {
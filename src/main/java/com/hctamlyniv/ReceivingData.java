@@ -4,14 +4,21 @@ import Server.PlaylistData;
 import Server.TrackData;
 import com.hctamlyniv.spotify.PlaylistAssembler;
 import com.hctamlyniv.spotify.SpotifyAlbumBatchLoader;
+import com.hctamlyniv.spotify.SpotifyAlbumInfo;
 import com.hctamlyniv.spotify.SpotifyPlaylistReader;
+import com.hctamlyniv.spotify.SpotifyTransport;
 import se.michaelthelin.spotify.SpotifyApi;
-import se.michaelthelin.spotify.model_objects.specification.Album;
+import se.michaelthelin.spotify.model_objects.specification.Paging;
 import se.michaelthelin.spotify.model_objects.specification.Playlist;
 import se.michaelthelin.spotify.model_objects.specification.PlaylistTrack;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,7 +42,7 @@ public class ReceivingData {
         this.playlistId = playlistId;
         this.discogsService = discogsService;
         
-        this.spotifyApi = new SpotifyApi.Builder()
+        this.spotifyApi = SpotifyTransport.shared().apiBuilder()
                 .setAccessToken(accessToken)
                 .build();
 
@@ -64,22 +71,66 @@ public class ReceivingData {
     }
 
     public PlaylistLoadResult loadPlaylistDataResult(int requestedOffset, int requestedLimit) {
+        return loadPlaylistDataResult(requestedOffset, requestedLimit, null);
+    }
+
+    /**
+     * Like {@link #loadPlaylistDataResult(int, int)}, additionally streaming the page to
+     * {@code sink} while it loads: the metadata first, then the tracks of each Spotify page in
+     * playlist order as soon as that page and its album details are in. The complete result is
+     * still returned, e.g. for caching.
+     */
+    public PlaylistLoadResult loadPlaylistDataResult(int requestedOffset, int requestedLimit, PlaylistStreamSink sink) {
         try {
-            // 1. Get playlist metadata
-            Playlist playlist = playlistReader.getPlaylist(playlistId);
+            Playlist playlist;
+            SpotifyPlaylistReader.PlaylistItemsResult itemsResult;
+            SpotifyAlbumBatchLoader.AlbumDetailsResult albumDetails;
+            List<TrackData> tracks;
+            try (SpotifyAlbumBatchLoader.AlbumLoad albumLoad = albumBatchLoader.startLoad()) {
+                // 1+2. Metadata and items; album batches start as each page arrives
+                Callable<Playlist> metadataSource;
+                Paging<PlaylistTrack> firstPage;
+                if (requestedOffset <= 0) {
+                    // The metadata response embeds the first page, so it is not requested twice.
+                    Playlist withFirstPage = playlistReader.getPlaylistWithFirstPage(playlistId);
+                    metadataSource = () -> withFirstPage;
+                    firstPage = withFirstPage.getTracks();
+                } else {
+                    FutureTask<Playlist> metadataTask = new FutureTask<>(() -> playlistReader.getPlaylistMetadata(playlistId));
+                    Thread.ofVirtual().start(metadataTask);
+                    metadataSource = () -> awaitMetadata(metadataTask);
+                    firstPage = null;
+                }
+                StreamingAssembly streaming = null;
+                if (sink != null) {
+                    streaming = new StreamingAssembly(sink, albumLoad, metadataSource, requestedOffset);
+                    itemsResult = playlistReader.getAllPlaylistItems(playlistId, requestedOffset, requestedLimit, streaming, firstPage);
+                } else {
+                    itemsResult = playlistReader.getAllPlaylistItems(playlistId, requestedOffset, requestedLimit,
+                            albumLoad::addTracks, firstPage);
+                }
+                playlist = metadataSource.call();
+
+                // 3. Wait for the album details
+                albumDetails = albumLoad.finish();
+
+                // 4. Assemble track data (already done page by page when streaming)
+                if (streaming != null) {
+                    streaming.start(itemsResult.total());
+                    tracks = streaming.tracks;
+                } else {
+                    tracks = playlistAssembler.assembleTrackData(itemsResult.items(), albumDetails.albums());
+                }
+            }
             PlaylistAssembler.PlaylistMetadata metadata = playlistAssembler.extractMetadata(playlist);
-
-            // 2. Fetch playlist items with pagination
-            SpotifyPlaylistReader.PlaylistItemsResult itemsResult = 
-                    playlistReader.getAllPlaylistItems(playlistId, requestedOffset, requestedLimit);
-
-            List<PlaylistTrack> playlistTracks = itemsResult.items();
-
-            // 3. Batch load album details
-            Map<String, Album> albumDetailsMap = albumBatchLoader.loadAlbumDetailsForTracks(playlistTracks);
-
-            // 4. Assemble track data
-            List<TrackData> tracks = playlistAssembler.assembleTrackData(playlistTracks, albumDetailsMap);
+            if (itemsResult.incomplete()) {
+                log.warn("Playlist {} loaded partially: Spotify throttled it after {} of {} tracks",
+                        playlistId, itemsResult.nextOffset(), itemsResult.total());
+            }
+            if (albumDetails.failedBatches() > 0) {
+                log.warn("Playlist {} loaded without details for {} albums ({} failed batches)",
+                        playlistId, albumDetails.failedAlbums(), albumDetails.failedBatches());
+            }
 
             // 5. Build final result
             return PlaylistLoadResult.success(playlistAssembler.assemblePlaylistData(
@@ -88,8 +139,9 @@ public class ReceivingData {
                     itemsResult.total(),
                     itemsResult.offset(),
                     itemsResult.nextOffset(),
-                    itemsResult.hasMore()
-            ));
+                    itemsResult.hasMore(),
+                    itemsResult.incomplete() || albumDetails.failedBatches() > 0
+            ), metadata.sameForAllUsers(), playlist.getSnapshotId());
 
         } catch (Exception e) {
             log.warn("Failed to load playlist data: {}", e.getMessage(), e);
@@ -97,13 +149,100 @@ public class ReceivingData {
         }
     }
 
-    public record PlaylistLoadResult(PlaylistData playlistData, Exception error) {
-        static PlaylistLoadResult success(PlaylistData playlistData) {
-            return new PlaylistLoadResult(playlistData, null);
+    private static Playlist awaitMetadata(FutureTask<Playlist> metadataTask) throws Exception {
+        try {
+            return metadataTask.get();
+        } catch (ExecutionException e) {
+            // Keep Spotify's own exception so access errors are still classified correctly.
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Fetches the playlist's current Spotify snapshot id, or null if it cannot be read.
+     */
+    public String fetchSnapshotId() {
+        try {
+            return playlistReader.getSnapshotId(playlistId);
+        } catch (Exception e) {
+            log.debug("Failed to fetch playlist snapshot id: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Receives a playlist page while it loads; see
+     * {@link #loadPlaylistDataResult(int, int, PlaylistStreamSink)}.
+     */
+    public interface PlaylistStreamSink {
+
+        /**
+         * Called once, before any tracks.
+         */
+        void start(PlaylistAssembler.PlaylistMetadata metadata, int totalTracks, int offset) throws IOException;
+
+        /**
+         * Called with the tracks of each Spotify page, in playlist order.
+         */
+        void tracks(List<TrackData> tracks) throws IOException;
+    }
+
+    /**
+     * Assembles and streams each page once it and its album details are loaded.
+     */
+    private final class StreamingAssembly implements SpotifyPlaylistReader.PageListener {
+        private final PlaylistStreamSink sink;
+        private final SpotifyAlbumBatchLoader.AlbumLoad albumLoad;
+        private final Callable<Playlist> metadataSource;
+        private final int offset;
+        private final List<TrackData> tracks = new ArrayList<>();
+        private boolean started;
+
+        private StreamingAssembly(PlaylistStreamSink sink, SpotifyAlbumBatchLoader.AlbumLoad albumLoad,
+                                  Callable<Playlist> metadataSource, int offset) {
+            this.sink = sink;
+            this.albumLoad = albumLoad;
+            this.metadataSource = metadataSource;
+            this.offset = Math.max(0, offset);
+        }
+
+        @Override
+        public void onPageArrived(List<PlaylistTrack> items) {
+            albumLoad.addTracks(items);
+        }
+
+        @Override
+        public void onPageInOrder(List<PlaylistTrack> items, int total) throws Exception {
+            start(total);
+            Map<String, SpotifyAlbumInfo> albums = albumLoad.albumsFor(items).join();
+            List<TrackData> pageTracks = playlistAssembler.assembleTrackData(items, albums);
+            tracks.addAll(pageTracks);
+            sink.tracks(pageTracks);
+        }
+
+        void start(int total) throws Exception {
+            if (!started) {
+                started = true;
+                sink.start(playlistAssembler.extractMetadata(metadataSource.call()), total, offset);
+            }
+        }
+    }
+
+    /**
+     * @param publicPlaylist whether the playlist is public and not collaborative, i.e. its
+     *                       content does not depend on who loads it
+     * @param snapshotId     Spotify's version id of the playlist at load time
+     */
+    public record PlaylistLoadResult(PlaylistData playlistData, Exception error, boolean publicPlaylist, String snapshotId) {
+        static PlaylistLoadResult success(PlaylistData playlistData, boolean publicPlaylist, String snapshotId) {
+            return new PlaylistLoadResult(playlistData, null, publicPlaylist, snapshotId);
         }
 
         static PlaylistLoadResult failure(Exception error) {
-            return new PlaylistLoadResult(null, error);
+            return new PlaylistLoadResult(null, error, false, null);
         }
     }
 }
@@ -0,0 +1,69 @@
+package com.hctamlyniv;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical async calls: while a call for a key is in flight, further callers
+ * for the same key get the same result instead of starting their own call. The key is released as
+ * soon as the call completes, so later callers start fresh (and typically hit a cache).
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong joins = new AtomicLong();
+
+    /**
+     * Returns the in-flight result for {@code key}, or starts {@code call} if there is none.
+     * Each caller gets its own dependent future, so cancelling one doesn't affect the others.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> leader = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            joins.incrementAndGet();
+            return existing.thenApply(value -> value);
+        }
+        calls.incrementAndGet();
+        CompletableFuture<V> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((value, error) -> {
+            inFlight.remove(key, leader);
+            if (error != null) {
+                leader.completeExceptionally(error);
+            } else {
+                leader.complete(value);
+            }
+        });
+        return leader.thenApply(value -> value);
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Returns coalescing metrics: calls actually started, callers that joined one, and the
+     * share of callers served by joining.
+     */
+    public Map<String, Object> snapshot() {
+        long started = calls.get();
+        long joined = joins.get();
+        long total = started + joined;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("calls", started);
+        stats.put("joins", joined);
+        stats.put("joinRate", total > 0 ? Math.round(joined * 1000.0 / total) / 1000.0 : 0.0);
+        return stats;
+    }
+}
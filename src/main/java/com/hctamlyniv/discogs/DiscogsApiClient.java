@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -22,6 +23,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class DiscogsApiClient {
 
@@ -36,6 +39,7 @@ public class DiscogsApiClient {
     private final String consumerSecret;
     private final String userAgent;
     private final String apiBase;
+    private final DiscogsRequestScheduler scheduler;
 
     // Library-status caching: these endpoints are expensive and often called repeatedly
     // (playlist load, focus events, drawer refreshes). Keep a short TTL to reduce API load.
@@ -70,6 +74,20 @@ public class DiscogsApiClient {
             String consumerKey,
             String consumerSecret,
             String tokenSecret
+    ) {
+        this(http, mapper, token, userAgent, apiBase, consumerKey, consumerSecret, tokenSecret, DiscogsRequestScheduler.shared());
+    }
+
+    public DiscogsApiClient(
+            HttpClient http,
+            ObjectMapper mapper,
+            String token,
+            String userAgent,
+            String apiBase,
+            String consumerKey,
+            String consumerSecret,
+            String tokenSecret,
+            DiscogsRequestScheduler scheduler
     ) {
         this.http = http;
         this.mapper = mapper;
@@ -79,6 +97,7 @@ public class DiscogsApiClient {
         this.consumerSecret = consumerSecret;
         this.userAgent = userAgent;
         this.apiBase = (apiBase == null || apiBase.isBlank()) ? DEFAULT_API_BASE : apiBase.trim();
+        this.scheduler = scheduler;
     }
 
     public boolean isConfigured() {
@@ -105,7 +124,7 @@ public class DiscogsApiClient {
                     .timeout(Duration.ofSeconds(8))
                     .GET()
                     .build();
-            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            HttpResponse<String> resp = send(req);
             if (resp.statusCode() != 200) {
                 return Optional.empty();
             }
@@ -134,7 +153,7 @@ public class DiscogsApiClient {
                     .timeout(Duration.ofSeconds(12))
                     .GET()
                     .build();
-            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            HttpResponse<String> resp = send(req);
             if (resp.statusCode() != 200) {
                 return new WishlistResult(entries, 0);
             }
@@ -191,7 +210,7 @@ public class DiscogsApiClient {
                     .header("Content-Type", "application/x-www-form-urlencoded")
                     .POST(HttpRequest.BodyPublishers.ofString(body))
                     .build();
-            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            HttpResponse<String> resp = send(req);
             int statusCode = resp.statusCode();
             if (statusCode >= 200 && statusCode < 300) {
                 invalidateWishlistIdsCache();
@@ -247,7 +266,7 @@ public class DiscogsApiClient {
                 .timeout(Duration.ofSeconds(12))
                 .GET()
                 .build();
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        HttpResponse<String> resp = send(req);
         if (resp.statusCode() != 200) {
             return List.of();
         }
@@ -283,52 +302,63 @@ public class DiscogsApiClient {
         if (!isConfigured() || code == null || code.isBlank()) {
             return Optional.empty();
         }
+        HttpResponse<JsonNode> resp = sendJson(barcodeRequest(code));
+        if (!isSearchStatusSuccessful(resp.statusCode())) {
+            throwTransientIfNeeded(resp.statusCode());
+            return Optional.empty();
+        }
+        return firstResultUri(resp.body());
+    }
+
+    public CompletableFuture<Optional<String>> searchByBarcodeAsync(String code) {
+        if (!isConfigured() || code == null || code.isBlank()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return sendJsonAsync(barcodeRequest(code)).thenApply(resp -> {
+            requireSearchSuccess(resp.statusCode());
+            return isSearchStatusSuccessful(resp.statusCode()) ? firstResultUri(resp.body()) : Optional.<String>empty();
+        });
+    }
+
+    private HttpRequest barcodeRequest(String code) {
         StringBuilder qs = new StringBuilder();
         qs.append("barcode=").append(DiscogsUrlUtils.urlEncode(code));
         qs.append("&type=release");
         qs.append("&per_page=5&sort=relevance");
         URI uri = URI.create(apiBase + "/database/search?" + qs);
-        HttpRequest req = baseRequest(uri)
+        return baseRequest(uri)
                 .timeout(Duration.ofSeconds(10))
                 .GET()
                 .build();
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-        if (!isSearchStatusSuccessful(resp.statusCode())) {
-            throwTransientIfNeeded(resp.statusCode());
-            return Optional.empty();
-        }
-        JsonNode root = mapper.readTree(resp.body());
-        JsonNode results = root.get("results");
-        if (results == null || !results.isArray() || results.size() == 0) {
-            return Optional.empty();
-        }
-        for (JsonNode item : results) {
-            JsonNode uriNode = item.get("uri");
-            if (uriNode != null && !uriNode.isNull()) {
-                String uriStr = uriNode.asText();
-                if (uriStr != null && !uriStr.isBlank()) {
-                    if (uriStr.startsWith("/")) uriStr = "https://www.discogs.com" + uriStr;
-                    return Optional.ofNullable(DiscogsUrlUtils.sanitizeDiscogsWebUrl(uriStr));
-                }
-            }
-        }
-        return Optional.empty();
     }
 
     public Optional<Integer> fetchMainReleaseId(int masterId) throws IOException, InterruptedException {
         if (!isConfigured()) {
             return Optional.empty();
         }
+        HttpResponse<JsonNode> resp = sendJson(masterRequest(masterId));
+        return parseMainReleaseId(resp.statusCode(), resp.body());
+    }
+
+    public CompletableFuture<Optional<Integer>> fetchMainReleaseIdAsync(int masterId) {
+        if (!isConfigured()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return sendJsonAsync(masterRequest(masterId)).thenApply(resp -> parseMainReleaseId(resp.statusCode(), resp.body()));
+    }
+
+    private HttpRequest masterRequest(int masterId) {
         URI uri = URI.create(apiBase + "/masters/" + masterId);
-        HttpRequest req = baseRequest(uri)
+        return baseRequest(uri)
                 .timeout(Duration.ofSeconds(8))
                 .GET()
                 .build();
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-        if (resp.statusCode() != 200) {
+    }
+
+    private static Optional<Integer> parseMainReleaseId(int statusCode, JsonNode root) {
+        if (statusCode != 200 || root == null) {
             return Optional.empty();
         }
-        JsonNode root = mapper.readTree(resp.body());
         if (root.hasNonNull("main_release")) {
             return Optional.of(root.get("main_release").asInt());
         }
@@ -447,14 +477,17 @@ public class DiscogsApiClient {
                     .timeout(Duration.ofSeconds(12))
                     .GET()
                     .build();
-            HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            HttpResponse<JsonNode> resp = sendJson(req);
             int status = resp.statusCode();
             if (status != 200) {
                 throwTransientIfNeeded(status);
                 break;
             }
 
-            JsonNode root = mapper.readTree(resp.body());
+            JsonNode root = resp.body();
+            if (root == null) {
+                break;
+            }
             if (page == 1) {
                 pagesToFetch = Math.max(1, Math.min(LIBRARY_IDS_MAX_PAGES, root.path("pagination").path("pages").asInt(1)));
             }
@@ -497,6 +530,25 @@ public class DiscogsApiClient {
         if (!isConfigured()) {
             return Optional.empty();
         }
+        HttpResponse<JsonNode> resp = sendJson(searchOnceRequest(artist, album, year, trackTitle, master));
+        if (!isSearchStatusSuccessful(resp.statusCode())) {
+            throwTransientIfNeeded(resp.statusCode());
+            return Optional.empty();
+        }
+        return firstResultUri(resp.body());
+    }
+
+    public CompletableFuture<Optional<String>> searchOnceAsync(String artist, String album, Integer year, String trackTitle, boolean master) {
+        if (!isConfigured()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return sendJsonAsync(searchOnceRequest(artist, album, year, trackTitle, master)).thenApply(resp -> {
+            requireSearchSuccess(resp.statusCode());
+            return isSearchStatusSuccessful(resp.statusCode()) ? firstResultUri(resp.body()) : Optional.<String>empty();
+        });
+    }
+
+    private HttpRequest searchOnceRequest(String artist, String album, Integer year, String trackTitle, boolean master) {
         StringBuilder qs = new StringBuilder();
         qs.append("type=").append(master ? "master" : "release");
         qs.append("&per_page=5&sort=relevance");
@@ -515,19 +567,14 @@ public class DiscogsApiClient {
 
         URI uri = URI.create(apiBase + "/database/search?" + qs);
 
-        HttpRequest req = baseRequest(uri)
+        return baseRequest(uri)
                 .timeout(Duration.ofSeconds(15))
                 .GET()
                 .build();
+    }
 
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-        if (!isSearchStatusSuccessful(resp.statusCode())) {
-            throwTransientIfNeeded(resp.statusCode());
-            return Optional.empty();
-        }
-
-        JsonNode root = mapper.readTree(resp.body());
-        JsonNode results = root.get("results");
+    private static Optional<String> firstResultUri(JsonNode root) {
+        JsonNode results = root == null ? null : root.get("results");
         if (results == null || !results.isArray() || results.size() == 0) {
             return Optional.empty();
         }
@@ -555,6 +602,30 @@ public class DiscogsApiClient {
         if ((q == null || q.isBlank()) && (expectedArtist == null || expectedAlbum == null)) {
             return Optional.empty();
         }
+        HttpResponse<JsonNode> resp = sendJson(searchOnceQRequest(q, year, expectedArtist, expectedAlbum));
+        if (!isSearchStatusSuccessful(resp.statusCode())) {
+            throwTransientIfNeeded(resp.statusCode());
+            return Optional.empty();
+        }
+        return bestQResult(resp.body(), expectedArtist, expectedAlbum);
+    }
+
+    public CompletableFuture<Optional<String>> searchOnceQAsync(String q, Integer year, String expectedArtist, String expectedAlbum) {
+        if (!isConfigured()) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        if ((q == null || q.isBlank()) && (expectedArtist == null || expectedAlbum == null)) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return sendJsonAsync(searchOnceQRequest(q, year, expectedArtist, expectedAlbum)).thenApply(resp -> {
+            requireSearchSuccess(resp.statusCode());
+            return isSearchStatusSuccessful(resp.statusCode())
+                    ? bestQResult(resp.body(), expectedArtist, expectedAlbum)
+                    : Optional.<String>empty();
+        });
+    }
+
+    private HttpRequest searchOnceQRequest(String q, Integer year, String expectedArtist, String expectedAlbum) {
         StringBuilder qs = new StringBuilder();
         if (q != null && !q.isBlank()) {
             qs.append("q=").append(DiscogsUrlUtils.urlEncode(q));
@@ -567,18 +638,14 @@ public class DiscogsApiClient {
         }
 
         URI uri = URI.create(apiBase + "/database/search?" + qs);
-        HttpRequest req = baseRequest(uri)
+        return baseRequest(uri)
                 .timeout(Duration.ofSeconds(12))
                 .GET()
                 .build();
-        HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-        if (!isSearchStatusSuccessful(resp.statusCode())) {
-            throwTransientIfNeeded(resp.statusCode());
-            return Optional.empty();
-        }
+    }
 
-        JsonNode root = mapper.readTree(resp.body());
-        JsonNode results = root.get("results");
+    private static Optional<String> bestQResult(JsonNode root, String expectedArtist, String expectedAlbum) {
+        JsonNode results = root == null ? null : root.get("results");
         if (results == null || !results.isArray() || results.size() == 0) {
             return Optional.empty();
         }
@@ -633,6 +700,67 @@ public class DiscogsApiClient {
         return Optional.empty();
     }
 
+    /**
+     * Sends a request once the scheduler grants it a slot of the Discogs quota, and feeds the
+     * response's rate limit headers back into the shared budget.
+     */
+    private HttpResponse<String> send(HttpRequest req) throws IOException, InterruptedException {
+        return send(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private HttpResponse<JsonNode> sendJson(HttpRequest req) throws IOException, InterruptedException {
+        return send(req, jsonBodyHandler());
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest req, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        if (scheduler != null) {
+            scheduler.acquire(token);
+        }
+        HttpResponse<T> resp = http.send(req, bodyHandler);
+        if (scheduler != null) {
+            scheduler.limiter().observe(token, resp.statusCode(), resp.headers());
+        }
+        return resp;
+    }
+
+    /**
+     * Non-blocking variant of {@link #sendJson}: waits for a scheduler slot and the response
+     * without holding a thread.
+     */
+    private CompletableFuture<HttpResponse<JsonNode>> sendJsonAsync(HttpRequest req) {
+        CompletableFuture<Long> slot = (scheduler != null)
+                ? scheduler.acquireAsync(token)
+                : CompletableFuture.completedFuture(0L);
+        return slot.thenCompose(waited -> http.sendAsync(req, jsonBodyHandler()))
+                .thenApply(resp -> {
+                    if (scheduler != null) {
+                        scheduler.limiter().observe(token, resp.statusCode(), resp.headers());
+                    }
+                    return resp;
+                });
+    }
+
+    /**
+     * Parses the received bytes into a JSON tree. Non-JSON error pages map to {@code null}; a 2xx
+     * body that does not parse (e.g. cut off mid-transfer) fails the request as transient, so it is
+     * retried like a 5xx instead of being read as "no results".
+     */
+    private HttpResponse.BodyHandler<JsonNode> jsonBodyHandler() {
+        return responseInfo -> HttpResponse.BodySubscribers.mapping(
+                HttpResponse.BodySubscribers.ofByteArray(),
+                bytes -> {
+                    try {
+                        return bytes.length == 0 ? null : mapper.readTree(bytes);
+                    } catch (IOException e) {
+                        int status = responseInfo.statusCode();
+                        if (status >= 200 && status < 300) {
+                            throw new UncheckedIOException(new IOException("discogs_transient_status:" + status, e));
+                        }
+                        return null;
+                    }
+                });
+    }
+
     private HttpRequest.Builder baseRequest(URI uri) {
         return baseRequest(uri, "GET", null);
     }
@@ -670,6 +798,14 @@ public class DiscogsApiClient {
         }
     }
 
+    private static void requireSearchSuccess(int statusCode) {
+        try {
+            throwTransientIfNeeded(statusCode);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
     private static String parseFormats(JsonNode formatsNode) {
         if (formatsNode == null || !formatsNode.isArray()) {
             return null;
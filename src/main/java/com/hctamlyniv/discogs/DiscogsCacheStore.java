@@ -6,41 +6,92 @@ import com.hctamlyniv.discogs.model.CuratedLink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.hctamlyniv.Config;
+
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Local Discogs match cache (album key and barcode to URL) plus manually curated links.
+ *
+ * Matches live in an append-only {@link DiscogsMatchLog} under {@code matches/}, so they are
+ * served from disk instead of the heap. New entries are appended right away and synced behind: a
+ * background writer forces the log to disk (and compacts it when needed) once the flush interval
+ * has passed or enough entries have piled up, and pending entries are synced on JVM shutdown.
+ * Each mapping records when it was stored, so callers can tell how stale a cached search-fallback
+ * URL is ({@link #peekCachedMatch}). A legacy {@code albums.json} is imported once on load.
+ *
+ * Curated links are few and stay in memory, written via temp file and atomic rename.
+ */
 public class DiscogsCacheStore {
 
     private static final Logger log = LoggerFactory.getLogger(DiscogsCacheStore.class);
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "discogs-cache-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Set<DiscogsCacheStore> OPEN_STORES = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DiscogsCacheStore::flushAll, "discogs-cache-shutdown-flush"));
+    }
 
     private final Path cacheDir;
     private final Path cacheFile;
     private final Path curatedLinksFile;
     private final ObjectMapper mapper;
 
-    private final Map<String, String> albumCache = new ConcurrentHashMap<>();
-    private final Map<String, String> barcodeCache = new ConcurrentHashMap<>();
+    private static final String ALBUM_KEY_PREFIX = "a:";
+    private static final String BARCODE_KEY_PREFIX = "b:";
+
+    private final DiscogsMatchLog matchLog;
     private final Map<String, CuratedLink> curatedLinks = new ConcurrentHashMap<>();
     private final ReentrantLock persistenceLock = new ReentrantLock();
 
+    private final long flushIntervalMillis;
+    private final int flushThreshold;
+    private final AtomicInteger dirtyEntries = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
     public DiscogsCacheStore(ObjectMapper mapper) {
         this(Paths.get("cache", "discogs"), mapper);
     }
 
     public DiscogsCacheStore(Path cacheDir, ObjectMapper mapper) {
+        this(cacheDir, mapper, Config.getDiscogsCacheFlushIntervalMillis(), Config.getDiscogsCacheFlushThreshold());
+    }
+
+    public DiscogsCacheStore(Path cacheDir, ObjectMapper mapper, long flushIntervalMillis, int flushThreshold) {
         this.cacheDir = cacheDir;
         this.cacheFile = cacheDir.resolve("albums.json");
         this.curatedLinksFile = cacheDir.resolve("curated-links.json");
         this.mapper = mapper;
+        this.flushIntervalMillis = Math.max(1L, flushIntervalMillis);
+        this.flushThreshold = Math.max(1, flushThreshold);
+        this.matchLog = openMatchLog(cacheDir.resolve("matches"));
+        OPEN_STORES.add(this);
     }
 
     public void load() {
@@ -53,22 +104,37 @@ public class DiscogsCacheStore {
     }
 
     public Optional<String> peekCachedUri(String artist, String album, Integer releaseYear, String barcode) {
+        return peekCachedMatch(artist, album, releaseYear, barcode).map(CachedMatch::url);
+    }
+
+    /**
+     * Like {@link #peekCachedUri}, but also reports when the mapping was stored.
+     */
+    public Optional<CachedMatch> peekCachedMatch(String artist, String album, Integer releaseYear, String barcode) {
         if (barcode != null && !barcode.isBlank()) {
-            String byBarcode = barcodeCache.get(barcode);
-            if (byBarcode != null) {
-                return Optional.of(byBarcode);
+            Optional<CachedMatch> byBarcode = lookup(BARCODE_KEY_PREFIX + barcode);
+            if (byBarcode.isPresent()) {
+                return byBarcode;
             }
         }
         String key = buildCacheKey(artist != null ? artist.trim() : null, album != null ? album.trim() : null, releaseYear);
-        String cached = albumCache.get(key);
-        return cached != null ? Optional.of(cached) : Optional.empty();
+        return lookup(ALBUM_KEY_PREFIX + key);
+    }
+
+    /**
+     * A cached URL and when it was stored (0 if unknown).
+     */
+    public record CachedMatch(String url, long storedAtMillis) {
+        public long ageMillis(long now) {
+            return Math.max(0L, now - storedAtMillis);
+        }
     }
 
     public Optional<String> findCuratedLink(String cacheKey, String barcode) {
         if (barcode != null && !barcode.isBlank()) {
-            String fromBarcode = barcodeCache.get(barcode);
-            if (fromBarcode != null) {
-                return Optional.of(fromBarcode);
+            Optional<CachedMatch> fromBarcode = lookup(BARCODE_KEY_PREFIX + barcode);
+            if (fromBarcode.isPresent()) {
+                return fromBarcode.map(CachedMatch::url);
             }
         }
         CuratedLink link = curatedLinks.get(cacheKey);
@@ -83,13 +149,122 @@ public class DiscogsCacheStore {
         if (safeUrl == null) {
             return;
         }
+        // A fresh resolution always refreshes the stored-at time, even for an unchanged URL.
+        boolean changed = false;
         if (cacheKey != null && !cacheKey.isBlank()) {
-            albumCache.put(cacheKey, safeUrl);
+            changed |= store(ALBUM_KEY_PREFIX + cacheKey, safeUrl, true);
         }
         if (barcode != null && !barcode.isBlank()) {
-            barcodeCache.put(barcode, safeUrl);
+            changed |= store(BARCODE_KEY_PREFIX + barcode, safeUrl, true);
+        }
+        if (changed) {
+            markDirty();
+        }
+    }
+
+    /**
+     * Syncs pending match cache entries to disk now and compacts the log if enough of it is
+     * overwritten. Safe to call at any time; a no-op when nothing changed since the last flush.
+     */
+    public void flush() {
+        persistenceLock.lock();
+        try {
+            int pending = dirtyEntries.getAndSet(0);
+            if (pending == 0 || matchLog == null) {
+                return;
+            }
+            matchLog.force();
+            if (matchLog.needsCompaction()) {
+                matchLog.compact();
+            }
+        } finally {
+            persistenceLock.unlock();
+        }
+    }
+
+    /**
+     * Number of remembered matches not yet synced to disk.
+     */
+    public int pendingWrites() {
+        return dirtyEntries.get();
+    }
+
+    private void markDirty() {
+        int pending = dirtyEntries.incrementAndGet();
+        if (pending == flushThreshold) {
+            WRITER.execute(this::flush);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            WRITER.schedule(() -> {
+                flushScheduled.set(false);
+                flush();
+            }, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void flushAll() {
+        List<DiscogsCacheStore> stores;
+        synchronized (OPEN_STORES) {
+            stores = new ArrayList<>(OPEN_STORES);
+        }
+        for (DiscogsCacheStore store : stores) {
+            store.flush();
+        }
+        DiscogsMatchLog.closeAll();
+    }
+
+    /**
+     * Returns size and space metrics of the on-disk match log.
+     */
+    public Map<String, Object> matchLogStats() {
+        return matchLog == null ? Map.of() : matchLog.snapshot();
+    }
+
+    private Optional<CachedMatch> lookup(String key) {
+        return matchLog == null ? Optional.empty() : matchLog.get(key).map(DiscogsCacheStore::decode);
+    }
+
+    /**
+     * Stores {@code url} with the current time. Without {@code touch} (imports), an unchanged URL
+     * is left alone so reloading curated links does not reset ages or grow the log, and a new one
+     * is stamped with an unknown age (0): an imported search fallback may be arbitrarily old, so it
+     * must not look fresh.
+     */
+    private boolean store(String key, String url, boolean touch) {
+        if (matchLog == null) {
+            return false;
+        }
+        if (!touch) {
+            Optional<CachedMatch> existing = lookup(key);
+            if (existing.isPresent() && existing.get().url().equals(url)) {
+                return false;
+            }
+        }
+        long storedAt = touch ? System.currentTimeMillis() : 0L;
+        return matchLog.put(key, storedAt + " " + url);
+    }
+
+    /**
+     * Values are {@code "<storedAtMillis> <url>"}; sanitized URLs never contain spaces.
+     */
+    private static CachedMatch decode(String value) {
+        int space = value.indexOf(' ');
+        if (space > 0) {
+            try {
+                return new CachedMatch(value.substring(space + 1), Long.parseLong(value.substring(0, space)));
+            } catch (NumberFormatException ignored) {
+                // fall through: plain URL
+            }
+        }
+        return new CachedMatch(value, 0L);
+    }
+
+    private static DiscogsMatchLog openMatchLog(Path dir) {
+        try {
+            return DiscogsMatchLog.open(dir);
+        } catch (IllegalStateException e) {
+            log.warn("Discogs match cache disabled: {}", e.getMessage());
+            return null;
         }
-        persistAlbumCache();
     }
 
     public CuratedLink saveCuratedLink(String cacheKey, String artist, String album, Integer releaseYear, String trackTitle, String barcode, String url, String thumb) {
@@ -121,9 +296,12 @@ public class DiscogsCacheStore {
     // Persistence
     // =========================================================================
 
+    /**
+     * Imports a legacy {@code albums.json} into the match log once, then renames it out of the way.
+     */
     private void loadAlbumCache() {
         try {
-            if (!Files.exists(cacheFile)) {
+            if (!Files.exists(cacheFile) || matchLog == null) {
                 return;
             }
             JsonNode root = mapper.readTree(cacheFile.toFile());
@@ -133,7 +311,7 @@ public class DiscogsCacheStore {
                 while (fields.hasNext()) {
                     Map.Entry<String, JsonNode> entry = fields.next();
                     if (entry.getValue() != null && !entry.getValue().isNull()) {
-                        albumCache.put(entry.getKey(), entry.getValue().asText());
+                        store(ALBUM_KEY_PREFIX + entry.getKey(), entry.getValue().asText(), false);
                     }
                 }
             }
@@ -143,12 +321,15 @@ public class DiscogsCacheStore {
                 while (fields.hasNext()) {
                     Map.Entry<String, JsonNode> entry = fields.next();
                     if (entry.getValue() != null && !entry.getValue().isNull()) {
-                        barcodeCache.put(entry.getKey(), entry.getValue().asText());
+                        store(BARCODE_KEY_PREFIX + entry.getKey(), entry.getValue().asText(), false);
                     }
                 }
             }
+            matchLog.force();
+            Files.move(cacheFile, cacheDir.resolve("albums.json.migrated"), StandardCopyOption.REPLACE_EXISTING);
+            log.info("Imported legacy Discogs cache into match log ({} entries)", matchLog.size());
         } catch (IOException e) {
-            log.warn("Failed to load Discogs cache: {}", e.getMessage());
+            log.warn("Failed to import legacy Discogs cache: {}", e.getMessage());
         }
     }
 
@@ -180,10 +361,10 @@ public class DiscogsCacheStore {
                     CuratedLink link = new CuratedLink(cacheKey, artist, album, year, trackTitle, barcode, url, thumb, collectedAt, source);
                     curatedLinks.put(cacheKey, link);
                     if (cacheKey != null && url != null && !url.isBlank()) {
-                        albumCache.put(cacheKey, url);
+                        store(ALBUM_KEY_PREFIX + cacheKey, url, false);
                     }
                     if (barcode != null && !barcode.isBlank() && url != null && !url.isBlank()) {
-                        barcodeCache.put(barcode, url);
+                        store(BARCODE_KEY_PREFIX + barcode, url, false);
                     }
                 }
             }
@@ -192,34 +373,36 @@ public class DiscogsCacheStore {
         }
     }
 
-    private void persistAlbumCache() {
+    private void persistCuratedLinks() {
         persistenceLock.lock();
         try {
-            Files.createDirectories(cacheDir);
             Map<String, Object> payload = new HashMap<>();
             payload.put("updatedAt", Instant.now().toString());
-            payload.put("entries", new HashMap<>(albumCache));
-            payload.put("barcodes", new HashMap<>(barcodeCache));
-            mapper.writerWithDefaultPrettyPrinter().writeValue(cacheFile.toFile(), payload);
+            payload.put("links", new HashMap<>(curatedLinks));
+            writeAtomically(curatedLinksFile, payload);
         } catch (IOException e) {
-            log.warn("Failed to persist Discogs cache: {}", e.getMessage());
+            log.warn("Failed to persist curated Discogs links: {}", e.getMessage());
         } finally {
             persistenceLock.unlock();
         }
     }
 
-    private void persistCuratedLinks() {
-        persistenceLock.lock();
+    /**
+     * Writes to a temp file next to the target and renames it into place, so readers and a crash
+     * mid-write never see a truncated file.
+     */
+    private void writeAtomically(Path target, Object payload) throws IOException {
+        Files.createDirectories(cacheDir);
+        Path temp = Files.createTempFile(cacheDir, target.getFileName().toString(), ".tmp");
         try {
-            Files.createDirectories(cacheDir);
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("updatedAt", Instant.now().toString());
-            payload.put("links", new HashMap<>(curatedLinks));
-            mapper.writerWithDefaultPrettyPrinter().writeValue(curatedLinksFile.toFile(), payload);
-        } catch (IOException e) {
-            log.warn("Failed to persist curated Discogs links: {}", e.getMessage());
+            mapper.writeValue(temp.toFile(), payload);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
         } finally {
-            persistenceLock.unlock();
+            Files.deleteIfExists(temp);
         }
     }
 
@@ -0,0 +1,692 @@
+package com.hctamlyniv.discogs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, log-structured key/value store for the Discogs match cache.
+ *
+ * Values live only on disk, in segment files that are written sequentially and never modified in
+ * place. A memory-mapped open-addressing hash table ({@code index-<capacity>.bin}) maps a 64-bit
+ * key hash to the record's segment and offset, so lookups cost one probe plus one positional read
+ * and the heap does not grow with the number of mappings. Later records win over earlier ones.
+ *
+ * Recovery: on a clean shutdown the index is reused; otherwise it is rebuilt by scanning the
+ * segments in order, and a torn record at the tail (bad length or checksum) is truncated away.
+ * Compaction copies the live records of sealed segments into the active one and then deletes them,
+ * so a crash in the middle only leaves duplicates that the rebuild resolves.
+ *
+ * One instance per directory is shared by the whole process; see {@link #open(Path)}.
+ */
+public final class DiscogsMatchLog {
+
+    private static final Logger log = LoggerFactory.getLogger(DiscogsMatchLog.class);
+    private static final Map<Path, DiscogsMatchLog> OPEN_LOGS = new ConcurrentHashMap<>();
+
+    static final long DEFAULT_SEGMENT_BYTES = 8L * 1024 * 1024;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{8})\\.log");
+    private static final Pattern INDEX_NAME = Pattern.compile("index-(\\d+)\\.bin");
+
+    // Record: [int bodyLength][int crc32][short keyLength][key][int valueLength][value]
+    private static final int RECORD_PREFIX_BYTES = 8;
+    private static final int MAX_FIELD_BYTES = 64 * 1024;
+
+    // Index header: [long magic][int capacity][int count][byte clean][int activeSegment][long activeLength][long liveBytes]
+    private static final long INDEX_MAGIC = 0x564D4D4C4F473032L; // "VMMLOG02"
+    private static final int INDEX_HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 16;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final double MAX_LOAD = 0.7;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Integer, FileChannel> segments = new TreeMap<>();
+
+    private Path indexFile;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int count;
+
+    private int activeSegment;
+    private long activeLength;
+    private long totalBytes;
+    private long liveBytes;
+    private boolean closed;
+
+    DiscogsMatchLog(Path dir, long segmentBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = Math.max(1024L, segmentBytes);
+        Files.createDirectories(dir);
+        openSegments();
+        if (!reuseIndex()) {
+            rebuildIndex();
+        }
+        markOpen();
+    }
+
+    /**
+     * Returns the process-wide log for {@code dir}, opening it on first use.
+     */
+    public static DiscogsMatchLog open(Path dir) {
+        Path key = dir.toAbsolutePath().normalize();
+        return OPEN_LOGS.computeIfAbsent(key, k -> {
+            try {
+                return new DiscogsMatchLog(k, DEFAULT_SEGMENT_BYTES);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open Discogs match log in " + k + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Closes every open log; called on JVM shutdown so the next start can reuse the indexes.
+     */
+    public static void closeAll() {
+        for (DiscogsMatchLog matchLog : new ArrayList<>(OPEN_LOGS.values())) {
+            matchLog.close();
+        }
+    }
+
+    // =========================================================================
+    // Reads / writes
+    // =========================================================================
+
+    public Optional<String> get(String key) {
+        if (key == null) {
+            return Optional.empty();
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return Optional.empty();
+            }
+            int slot = findSlot(keyBytes, hash(keyBytes));
+            if (slot < 0 || slotHash(slot) == 0L) {
+                return Optional.empty();
+            }
+            Record record = readRecord(slotPosition(slot));
+            return record == null ? Optional.empty() : Optional.of(record.value);
+        } catch (IOException e) {
+            log.warn("Discogs match log read failed: {}", e.getMessage());
+            return Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends {@code key -> value} unless the key already maps to the same value.
+     */
+    public boolean put(String key, String value) {
+        if (key == null || value == null) {
+            return false;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > MAX_FIELD_BYTES || valueBytes.length > MAX_FIELD_BYTES) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            long keyHash = hash(keyBytes);
+            int slot = findSlot(keyBytes, keyHash);
+            Record existing = (slotHash(slot) != 0L) ? readRecord(slotPosition(slot)) : null;
+            if (existing != null && existing.value.equals(value)) {
+                return false;
+            }
+            long position = append(keyBytes, valueBytes);
+            int size = recordSize(keyBytes.length, valueBytes.length);
+            liveBytes += size;
+            if (existing != null) {
+                liveBytes -= existing.size;
+                setSlot(slot, keyHash, position);
+            } else {
+                setSlot(slot, keyHash, position);
+                count++;
+                index.putInt(12, count);
+                if (count > capacity * MAX_LOAD) {
+                    resizeIndex(capacity * 2);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("Discogs match log write failed: {}", e.getMessage());
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces appended records to disk.
+     */
+    public void force() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            FileChannel active = segments.get(activeSegment);
+            if (active != null) {
+                active.force(false);
+            }
+        } catch (IOException e) {
+            log.warn("Discogs match log sync failed: {}", e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether enough space is taken by overwritten records to make compaction worthwhile.
+     */
+    public boolean needsCompaction() {
+        lock.readLock().lock();
+        try {
+            return !closed && segments.size() > 1 && totalBytes - liveBytes > Math.max(segmentBytes, totalBytes / 2);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the live records of all sealed segments into the active segment and deletes the
+     * sealed files. Works one segment at a time so readers are only briefly blocked.
+     */
+    public void compact() {
+        List<Integer> sealed;
+        lock.readLock().lock();
+        try {
+            sealed = new ArrayList<>(segments.headMap(activeSegment, false).keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (Integer segmentId : sealed) {
+            lock.writeLock().lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                compactSegment(segmentId);
+            } catch (IOException e) {
+                log.warn("Discogs match log compaction of segment {} failed: {}", segmentId, e.getMessage());
+                return;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("entries", count);
+            stats.put("segments", segments.size());
+            stats.put("totalBytes", totalBytes);
+            stats.put("liveBytes", liveBytes);
+            stats.put("indexCapacity", capacity);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Syncs everything and marks the index clean, so the next start can skip the rebuild.
+     */
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            for (FileChannel channel : segments.values()) {
+                channel.force(false);
+            }
+            index.put(16, (byte) 1);
+            index.putInt(17, activeSegment);
+            index.putLong(21, activeLength);
+            index.putLong(29, liveBytes);
+            index.force();
+            for (FileChannel channel : segments.values()) {
+                channel.close();
+            }
+            indexChannel.close();
+            closed = true;
+        } catch (IOException e) {
+            log.warn("Failed to close Discogs match log: {}", e.getMessage());
+        } finally {
+            OPEN_LOGS.remove(dir, this);
+            lock.writeLock().unlock();
+        }
+    }
+
+    // =========================================================================
+    // Segments
+    // =========================================================================
+
+    private void openSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    int id = Integer.parseInt(matcher.group(1));
+                    segments.put(id, FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            activeSegment = 1;
+            segments.put(activeSegment, openSegmentFile(activeSegment));
+        } else {
+            activeSegment = segments.lastKey();
+        }
+        activeLength = segments.get(activeSegment).size();
+    }
+
+    private FileChannel openSegmentFile(int id) throws IOException {
+        Path file = dir.resolve(String.format("segment-%08d.log", id));
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private long append(byte[] keyBytes, byte[] valueBytes) throws IOException {
+        if (activeLength >= segmentBytes) {
+            rollSegment();
+        }
+        ByteBuffer buffer = encode(keyBytes, valueBytes);
+        long position = activeLength;
+        FileChannel channel = segments.get(activeSegment);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, activeLength + buffer.position());
+        }
+        activeLength += buffer.limit();
+        totalBytes += buffer.limit();
+        return encodePosition(activeSegment, position);
+    }
+
+    private void rollSegment() throws IOException {
+        segments.get(activeSegment).force(false);
+        activeSegment++;
+        segments.put(activeSegment, openSegmentFile(activeSegment));
+        activeLength = 0L;
+    }
+
+    private void compactSegment(int segmentId) throws IOException {
+        FileChannel channel = segments.get(segmentId);
+        if (channel == null || segmentId == activeSegment) {
+            return;
+        }
+        long length = channel.size();
+        long offset = 0L;
+        while (offset < length) {
+            Record record = readRecord(segmentId, offset);
+            if (record == null) {
+                break;
+            }
+            long keyHash = hash(record.keyBytes);
+            int slot = findSlot(record.keyBytes, keyHash);
+            if (slotHash(slot) != 0L && slotPosition(slot) == encodePosition(segmentId, offset)) {
+                long moved = append(record.keyBytes, record.value.getBytes(StandardCharsets.UTF_8));
+                setSlot(slot, keyHash, moved);
+            }
+            offset += record.size;
+        }
+        segments.get(activeSegment).force(false);
+        index.force();
+        channel.close();
+        segments.remove(segmentId);
+        totalBytes -= length;
+        Files.deleteIfExists(dir.resolve(String.format("segment-%08d.log", segmentId)));
+    }
+
+    // =========================================================================
+    // Records
+    // =========================================================================
+
+    private static ByteBuffer encode(byte[] keyBytes, byte[] valueBytes) {
+        int size = recordSize(keyBytes.length, valueBytes.length);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(size - 4);
+        buffer.putInt(0);
+        buffer.putShort((short) keyBytes.length);
+        buffer.put(keyBytes);
+        buffer.putInt(valueBytes.length);
+        buffer.put(valueBytes);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), RECORD_PREFIX_BYTES, size - RECORD_PREFIX_BYTES);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int recordSize(int keyLength, int valueLength) {
+        return RECORD_PREFIX_BYTES + 2 + keyLength + 4 + valueLength;
+    }
+
+    private Record readRecord(long encodedPosition) throws IOException {
+        return readRecord(segmentOf(encodedPosition), offsetOf(encodedPosition));
+    }
+
+    /**
+     * Reads and verifies the record at {@code offset}; returns null if it is incomplete or corrupt.
+     */
+    private Record readRecord(int segmentId, long offset) throws IOException {
+        FileChannel channel = segments.get(segmentId);
+        if (channel == null) {
+            return null;
+        }
+        ByteBuffer prefix = ByteBuffer.allocate(RECORD_PREFIX_BYTES);
+        if (readFully(channel, prefix, offset) < RECORD_PREFIX_BYTES) {
+            return null;
+        }
+        int bodyLength = prefix.getInt(0);
+        int expectedCrc = prefix.getInt(4);
+        int payloadLength = bodyLength - 4;
+        if (payloadLength < 6 || payloadLength > 2 * MAX_FIELD_BYTES + 6) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+        if (readFully(channel, payload, offset + RECORD_PREFIX_BYTES) < payloadLength) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, payloadLength);
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+        payload.flip();
+        int keyLength = Short.toUnsignedInt(payload.getShort());
+        if (keyLength > payloadLength - 6) {
+            return null;
+        }
+        byte[] keyBytes = new byte[keyLength];
+        payload.get(keyBytes);
+        int valueLength = payload.getInt();
+        if (valueLength < 0 || valueLength != payload.remaining()) {
+            return null;
+        }
+        byte[] valueBytes = new byte[valueLength];
+        payload.get(valueBytes);
+        return new Record(keyBytes, new String(valueBytes, StandardCharsets.UTF_8), RECORD_PREFIX_BYTES + payloadLength);
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private record Record(byte[] keyBytes, String value, int size) {}
+
+    // =========================================================================
+    // Index
+    // =========================================================================
+
+    private boolean reuseIndex() throws IOException {
+        Path existing = latestIndexFile();
+        if (existing == null) {
+            return false;
+        }
+        try {
+            mapIndex(existing, -1);
+            boolean clean = index.getLong(0) == INDEX_MAGIC
+                    && index.get(16) == 1
+                    && index.getInt(17) == activeSegment
+                    && index.getLong(21) == activeLength;
+            if (!clean) {
+                return false;
+            }
+            count = index.getInt(12);
+            for (Map.Entry<Integer, FileChannel> segment : segments.entrySet()) {
+                totalBytes += segment.getValue().size();
+            }
+            // Dead space from before the restart still counts towards compaction.
+            liveBytes = Math.min(index.getLong(29), totalBytes);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.info("Discogs match log index not reusable, rebuilding: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void rebuildIndex() throws IOException {
+        int expected = Math.max(INITIAL_CAPACITY, Integer.highestOneBit((int) Math.min(Integer.MAX_VALUE / 4, Math.max(1L, estimateRecords() * 2))) << 1);
+        createIndex(expected);
+        totalBytes = 0L;
+        liveBytes = 0L;
+        count = 0;
+        for (Map.Entry<Integer, FileChannel> segment : new ArrayList<>(segments.entrySet())) {
+            int segmentId = segment.getKey();
+            FileChannel channel = segment.getValue();
+            long length = channel.size();
+            long offset = 0L;
+            while (offset < length) {
+                Record record = readRecord(segmentId, offset);
+                if (record == null) {
+                    break;
+                }
+                long keyHash = hash(record.keyBytes);
+                int slot = findSlot(record.keyBytes, keyHash);
+                if (slotHash(slot) != 0L) {
+                    Record previous = readRecord(slotPosition(slot));
+                    if (previous != null) {
+                        liveBytes -= previous.size;
+                    }
+                } else {
+                    count++;
+                    if (count > capacity * MAX_LOAD) {
+                        resizeIndex(capacity * 2);
+                        slot = findSlot(record.keyBytes, keyHash);
+                    }
+                }
+                setSlot(slot, keyHash, encodePosition(segmentId, offset));
+                liveBytes += record.size;
+                offset += record.size;
+            }
+            if (offset < length) {
+                log.warn("Discogs match log segment {} has a torn or corrupt tail at {}; truncating {} bytes", segmentId, offset, length - offset);
+                channel.truncate(offset);
+                channel.force(true);
+            }
+            totalBytes += offset;
+        }
+        index.putInt(12, count);
+        activeLength = segments.get(activeSegment).size();
+    }
+
+    private long estimateRecords() throws IOException {
+        long bytes = 0L;
+        for (FileChannel channel : segments.values()) {
+            bytes += channel.size();
+        }
+        return bytes / 96;
+    }
+
+    private void markOpen() {
+        index.put(16, (byte) 0);
+        index.force();
+    }
+
+    private void createIndex(int newCapacity) throws IOException {
+        Path file = dir.resolve("index-" + newCapacity + ".bin");
+        Files.deleteIfExists(file);
+        mapIndex(file, newCapacity);
+        index.putLong(0, INDEX_MAGIC);
+        index.putInt(8, newCapacity);
+        index.putInt(12, 0);
+    }
+
+    private void mapIndex(Path file, int newCapacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int mappedCapacity = newCapacity;
+        if (mappedCapacity < 0) {
+            ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_BYTES);
+            readFully(channel, header, 0);
+            mappedCapacity = header.getInt(8);
+            if (mappedCapacity <= 0 || Integer.bitCount(mappedCapacity) != 1
+                    || channel.size() != INDEX_HEADER_BYTES + (long) mappedCapacity * SLOT_BYTES) {
+                channel.close();
+                throw new IOException("index size mismatch");
+            }
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_BYTES + (long) mappedCapacity * SLOT_BYTES);
+        if (indexChannel != null) {
+            indexChannel.close();
+        }
+        Path previous = indexFile;
+        indexChannel = channel;
+        index = mapped;
+        indexFile = file;
+        capacity = mappedCapacity;
+        if (previous != null && !previous.equals(file)) {
+            try {
+                Files.deleteIfExists(previous);
+            } catch (IOException e) {
+                log.debug("Could not delete old Discogs match log index {}: {}", previous, e.getMessage());
+            }
+        }
+    }
+
+    private Path latestIndexFile() throws IOException {
+        Path latest = null;
+        long latestModified = Long.MIN_VALUE;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                if (INDEX_NAME.matcher(file.getFileName().toString()).matches()) {
+                    long modified = Files.getLastModifiedTime(file).toMillis();
+                    if (latest != null) {
+                        // Leftover from an earlier resize that could not be deleted while mapped.
+                        Files.deleteIfExists(modified > latestModified ? latest : file);
+                    }
+                    if (latest == null || modified > latestModified) {
+                        latest = file;
+                        latestModified = modified;
+                    }
+                }
+            }
+        }
+        return latest;
+    }
+
+    private void resizeIndex(int newCapacity) throws IOException {
+        MappedByteBuffer old = index;
+        int oldCapacity = capacity;
+        createIndex(newCapacity);
+        int moved = 0;
+        for (int i = 0; i < oldCapacity; i++) {
+            int offset = INDEX_HEADER_BYTES + i * SLOT_BYTES;
+            long slotHash = old.getLong(offset);
+            if (slotHash == 0L) {
+                continue;
+            }
+            int slot = (int) (slotHash & (capacity - 1));
+            while (slotHash(slot) != 0L) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            setSlot(slot, slotHash, old.getLong(offset + 8));
+            moved++;
+        }
+        index.putInt(12, moved);
+    }
+
+    /**
+     * Returns the slot holding {@code keyBytes}, or the empty slot where it would be inserted.
+     */
+    private int findSlot(byte[] keyBytes, long keyHash) throws IOException {
+        int slot = (int) (keyHash & (capacity - 1));
+        while (true) {
+            long slotHash = slotHash(slot);
+            if (slotHash == 0L) {
+                return slot;
+            }
+            if (slotHash == keyHash) {
+                Record record = readRecord(slotPosition(slot));
+                if (record != null && Arrays.equals(record.keyBytes, keyBytes)) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    private long slotHash(int slot) {
+        return index.getLong(INDEX_HEADER_BYTES + slot * SLOT_BYTES);
+    }
+
+    private long slotPosition(int slot) {
+        return index.getLong(INDEX_HEADER_BYTES + slot * SLOT_BYTES + 8);
+    }
+
+    private void setSlot(int slot, long keyHash, long position) {
+        index.putLong(INDEX_HEADER_BYTES + slot * SLOT_BYTES, keyHash);
+        index.putLong(INDEX_HEADER_BYTES + slot * SLOT_BYTES + 8, position);
+    }
+
+    private static long encodePosition(int segmentId, long offset) {
+        return ((long) segmentId << 40) | offset;
+    }
+
+    private static int segmentOf(long position) {
+        return (int) (position >>> 40);
+    }
+
+    private static long offsetOf(long position) {
+        return position & ((1L << 40) - 1);
+    }
+
+    /**
+     * 64-bit FNV-1a; 0 is reserved for empty slots.
+     */
+    private static long hash(byte[] bytes) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        return h == 0L ? 1L : h;
+    }
+}
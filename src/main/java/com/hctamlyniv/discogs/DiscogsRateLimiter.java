@@ -0,0 +1,221 @@
+package com.hctamlyniv.discogs;
+
+import com.hctamlyniv.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.HttpHeaders;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide budget for Discogs API calls.
+ *
+ * Discogs allows a fixed number of requests per minute (moving window) per source IP and per
+ * credential. Every call takes a slot from two token buckets: one per credential and one shared by
+ * the whole process. {@link DiscogsRequestScheduler} uses {@link #availableIn} to hold calls back
+ * until a slot is free instead of firing them and discovering a 429. The buckets are corrected from
+ * the {@code X-Discogs-Ratelimit*} response headers, and a 429 drains them so the next call waits
+ * for a fresh slot. Discogs counts authenticated calls per token, so their headers and 429s only
+ * correct that token's bucket; only unauthenticated responses speak for the process-wide budget.
+ */
+public final class DiscogsRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(DiscogsRateLimiter.class);
+    private static final long WINDOW_MILLIS = 60_000L;
+    private static final long IDLE_BUCKET_MILLIS = 5 * WINDOW_MILLIS;
+    private static final int MAX_CREDENTIAL_BUCKETS = 1_000;
+    private static volatile DiscogsRateLimiter shared;
+
+    private final int perCredentialLimit;
+    private final Bucket processBucket;
+    private final Map<String, Bucket> credentialBuckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong permits = new AtomicLong();
+    private final AtomicLong rateLimitedResponses = new AtomicLong();
+
+    public DiscogsRateLimiter(int perCredentialLimit, int processLimit) {
+        this.perCredentialLimit = Math.max(1, perCredentialLimit);
+        this.processBucket = new Bucket(Math.max(1, processLimit), System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the budget shared by all Discogs clients of this process.
+     */
+    public static DiscogsRateLimiter shared() {
+        DiscogsRateLimiter limiter = shared;
+        if (limiter == null) {
+            synchronized (DiscogsRateLimiter.class) {
+                limiter = shared;
+                if (limiter == null) {
+                    limiter = new DiscogsRateLimiter(Config.getDiscogsRateLimitPerMinute(), Config.getDiscogsProcessRateLimitPerMinute());
+                    shared = limiter;
+                }
+            }
+        }
+        return limiter;
+    }
+
+    /**
+     * Returns how long a call for {@code credential} has to wait until both the credential and the
+     * process bucket have a slot; 0 when it may run now.
+     */
+    public long availableIn(String credential, long now) {
+        long credentialWait = credentialBucket(credential, now).availableIn(now);
+        long processWait = processBucket.availableIn(now);
+        return Math.max(credentialWait, processWait);
+    }
+
+    /**
+     * Consumes one slot from the credential and the process bucket.
+     */
+    public void take(String credential, long now) {
+        credentialBucket(credential, now).take(now);
+        processBucket.take(now);
+        permits.incrementAndGet();
+    }
+
+    /**
+     * Feeds the rate limit headers and status of a Discogs response back into the buckets.
+     */
+    public void observe(String credential, int statusCode, HttpHeaders headers) {
+        long now = System.currentTimeMillis();
+        Bucket bucket = credentialBucket(credential, now);
+        OptionalInt limit = intHeader(headers, "X-Discogs-Ratelimit");
+        OptionalInt remaining = intHeader(headers, "X-Discogs-Ratelimit-Remaining");
+        // One user's exhausted token must not hold back everyone else's calls.
+        boolean countsAgainstProcess = credential == null || credential.isBlank();
+        if (limit.isPresent() || remaining.isPresent()) {
+            bucket.sync(limit.orElse(-1), remaining.orElse(-1), now);
+            if (countsAgainstProcess) {
+                processBucket.sync(-1, remaining.orElse(-1), now);
+            }
+        }
+        if (statusCode == 429) {
+            rateLimitedResponses.incrementAndGet();
+            long retryAfterMillis = retryAfterMillis(headers).orElse(0L);
+            bucket.drain(now, retryAfterMillis);
+            if (countsAgainstProcess) {
+                processBucket.drain(now, retryAfterMillis);
+            }
+            log.debug("Discogs returned 429; pausing new calls");
+        }
+    }
+
+    private Bucket credentialBucket(String credential, long now) {
+        String key = credential == null ? "" : credential;
+        if (credentialBuckets.size() > MAX_CREDENTIAL_BUCKETS) {
+            credentialBuckets.entrySet().removeIf(e -> e.getValue().isIdle(now));
+        }
+        return credentialBuckets.computeIfAbsent(key, k -> new Bucket(perCredentialLimit, now));
+    }
+
+    /**
+     * Returns limiter metrics for health/diagnostic endpoints.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("perCredentialLimit", perCredentialLimit);
+        stats.put("processLimit", processBucket.limit());
+        stats.put("credentials", credentialBuckets.size());
+        stats.put("permits", permits.get());
+        stats.put("rateLimitedResponses", rateLimitedResponses.get());
+        return stats;
+    }
+
+    private static OptionalInt intHeader(HttpHeaders headers, String name) {
+        if (headers == null) {
+            return OptionalInt.empty();
+        }
+        String value = headers.firstValue(name).orElse(null);
+        if (value == null || value.isBlank()) {
+            return OptionalInt.empty();
+        }
+        try {
+            return OptionalInt.of(Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return OptionalInt.empty();
+        }
+    }
+
+    private static OptionalLong retryAfterMillis(HttpHeaders headers) {
+        OptionalInt seconds = intHeader(headers, "Retry-After");
+        if (seconds.isEmpty() || seconds.getAsInt() <= 0) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(Math.min(WINDOW_MILLIS, seconds.getAsInt() * 1000L));
+    }
+
+    /**
+     * Token bucket that refills {@code limit} tokens per minute. A 429 can push the balance below
+     * zero to pause callers for longer than a single slot.
+     */
+    static final class Bucket {
+        private int limit;
+        private double tokens;
+        private long lastRefill;
+        private long lastUsed;
+
+        Bucket(int limit, long now) {
+            this.limit = limit;
+            this.tokens = limit;
+            this.lastRefill = now;
+            this.lastUsed = now;
+        }
+
+        synchronized long availableIn(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                return 0L;
+            }
+            return (long) Math.ceil((1 - tokens) * millisPerToken());
+        }
+
+        synchronized void take(long now) {
+            refill(now);
+            lastUsed = now;
+            tokens -= 1;
+        }
+
+        synchronized void sync(int reportedLimit, int reportedRemaining, long now) {
+            refill(now);
+            if (reportedLimit > 0 && reportedLimit < limit) {
+                limit = reportedLimit;
+                tokens = Math.min(tokens, limit);
+            }
+            if (reportedRemaining >= 0 && reportedRemaining < tokens) {
+                tokens = reportedRemaining;
+            }
+        }
+
+        synchronized void drain(long now, long pauseMillis) {
+            refill(now);
+            double pausedTokens = pauseMillis / millisPerToken();
+            tokens = Math.min(tokens, 0) - pausedTokens;
+        }
+
+        synchronized int limit() {
+            return limit;
+        }
+
+        synchronized boolean isIdle(long now) {
+            return now - lastUsed > IDLE_BUCKET_MILLIS;
+        }
+
+        private void refill(long now) {
+            long elapsed = now - lastRefill;
+            if (elapsed > 0) {
+                tokens = Math.min(limit, tokens + elapsed / millisPerToken());
+                lastRefill = now;
+            }
+        }
+
+        private double millisPerToken() {
+            return (double) WINDOW_MILLIS / limit;
+        }
+    }
+}
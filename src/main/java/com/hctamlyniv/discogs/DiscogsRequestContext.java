@@ -0,0 +1,50 @@
+package com.hctamlyniv.discogs;
+
+/**
+ * Scheduling attributes (priority class and fair-share session) of the Discogs calls made by the
+ * current thread.
+ *
+ * Routes open a context for the work they trigger; code that hands work to other threads captures
+ * {@link #current()} and re-opens it there. Calls made outside any context run as
+ * {@link DiscogsRequestScheduler.Priority#BACKGROUND}.
+ */
+public record DiscogsRequestContext(DiscogsRequestScheduler.Priority priority, String session) {
+
+    private static final DiscogsRequestContext BACKGROUND = new DiscogsRequestContext(DiscogsRequestScheduler.Priority.BACKGROUND, "");
+    private static final ThreadLocal<DiscogsRequestContext> CURRENT = new ThreadLocal<>();
+
+    public DiscogsRequestContext {
+        priority = (priority == null) ? DiscogsRequestScheduler.Priority.BACKGROUND : priority;
+        session = (session == null) ? "" : session;
+    }
+
+    public static DiscogsRequestContext current() {
+        DiscogsRequestContext context = CURRENT.get();
+        return context != null ? context : BACKGROUND;
+    }
+
+    public static Scope open(DiscogsRequestScheduler.Priority priority, String session) {
+        return new DiscogsRequestContext(priority, session).open();
+    }
+
+    /**
+     * Makes this context current until the returned scope is closed.
+     */
+    public Scope open() {
+        DiscogsRequestContext previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
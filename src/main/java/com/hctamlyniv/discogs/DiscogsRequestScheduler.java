@@ -0,0 +1,270 @@
+package com.hctamlyniv.discogs;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides which waiting Discogs call gets the next slot of the {@link DiscogsRateLimiter} budget.
+ *
+ * Calls are ranked by {@link Priority} first, so an interactive click overtakes queued batch work.
+ * Within a priority class slots go round-robin across sessions (the session served least recently
+ * goes first), so one large batch cannot starve another user's batch. Only calls whose credential
+ * currently has budget compete; a call waiting for its own credential's bucket never blocks calls
+ * on other credentials. Waiting calls are parked as futures and granted by a single timer thread,
+ * so queued work does not hold a thread each.
+ */
+public final class DiscogsRequestScheduler {
+
+    public enum Priority {
+        /** A user is waiting on this single call (search click, curation, library status). */
+        INTERACTIVE,
+        /** Part of a multi-track batch run. */
+        BATCH,
+        /** Speculative or maintenance work nobody is waiting for. */
+        BACKGROUND
+    }
+
+    private static final long MAX_IDLE_WAIT_MILLIS = 1_000L;
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "discogs-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static volatile DiscogsRequestScheduler shared;
+
+    private final DiscogsRateLimiter limiter;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Ticket> waiting = new ArrayList<>();
+    private final Map<String, Long> lastGrantBySession = new HashMap<>();
+    private long sequence;
+    private ScheduledFuture<?> pendingDispatch;
+    private long pendingDispatchAt;
+
+    private final Map<Priority, AtomicLong> grants = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicLong> totalWaitMillis = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicLong> maxWaitMillis = new EnumMap<>(Priority.class);
+
+    public DiscogsRequestScheduler(DiscogsRateLimiter limiter) {
+        this.limiter = limiter;
+        for (Priority priority : Priority.values()) {
+            grants.put(priority, new AtomicLong());
+            totalWaitMillis.put(priority, new AtomicLong());
+            maxWaitMillis.put(priority, new AtomicLong());
+        }
+    }
+
+    /**
+     * Returns the scheduler shared by all Discogs clients of this process.
+     */
+    public static DiscogsRequestScheduler shared() {
+        DiscogsRequestScheduler scheduler = shared;
+        if (scheduler == null) {
+            synchronized (DiscogsRequestScheduler.class) {
+                scheduler = shared;
+                if (scheduler == null) {
+                    scheduler = new DiscogsRequestScheduler(DiscogsRateLimiter.shared());
+                    shared = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    public DiscogsRateLimiter limiter() {
+        return limiter;
+    }
+
+    /**
+     * Blocks until the call is granted a slot, using the priority and session of the current
+     * {@link DiscogsRequestContext}.
+     */
+    public void acquire(String credential) throws InterruptedException {
+        DiscogsRequestContext context = DiscogsRequestContext.current();
+        acquire(credential, context.priority(), context.session());
+    }
+
+    /**
+     * Blocks until the call is granted a slot and returns how long it waited in the queue.
+     */
+    public long acquire(String credential, Priority priority, String session) throws InterruptedException {
+        CompletableFuture<Long> grant = acquireAsync(credential, priority, session);
+        try {
+            return grant.get();
+        } catch (InterruptedException e) {
+            grant.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Discogs scheduler failed", e.getCause());
+        }
+    }
+
+    /**
+     * Queues the call under the current {@link DiscogsRequestContext} and returns a future that
+     * completes once it is granted a slot.
+     */
+    public CompletableFuture<Long> acquireAsync(String credential) {
+        DiscogsRequestContext context = DiscogsRequestContext.current();
+        return acquireAsync(credential, context.priority(), context.session());
+    }
+
+    /**
+     * Queues the call and returns a future that completes with the queue wait in milliseconds once
+     * it is granted a slot. No thread is held while the call waits; cancelling the future drops it
+     * from the queue.
+     */
+    public CompletableFuture<Long> acquireAsync(String credential, Priority priority, String session) {
+        Priority effective = priority == null ? Priority.BACKGROUND : priority;
+        CompletableFuture<Long> grant = new CompletableFuture<>();
+        lock.lock();
+        try {
+            waiting.add(new Ticket(credential, effective, session == null ? "" : session, sequence++, System.currentTimeMillis(), grant));
+        } finally {
+            lock.unlock();
+        }
+        dispatch();
+        return grant;
+    }
+
+    /**
+     * Grants slots to every waiting call that can run now, in rank order, and arranges another
+     * pass for when the next slot frees up.
+     */
+    private void dispatch() {
+        List<Ticket> granted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            waiting.removeIf(ticket -> ticket.grant.isDone());
+            Ticket next;
+            while ((next = nextEligible(now)) != null) {
+                limiter.take(next.credential, now);
+                lastGrantBySession.put(next.session, next.sequence);
+                waiting.remove(next);
+                granted.add(next);
+            }
+            if (waiting.isEmpty()) {
+                lastGrantBySession.clear();
+            } else {
+                long wait = Long.MAX_VALUE;
+                for (Ticket ticket : waiting) {
+                    wait = Math.min(wait, limiter.availableIn(ticket.credential, now));
+                }
+                scheduleDispatch(now, Math.max(1L, Math.min(wait, MAX_IDLE_WAIT_MILLIS)));
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Ticket ticket : granted) {
+            long waited = Math.max(0L, now - ticket.enqueuedAt);
+            if (ticket.grant.complete(waited)) {
+                record(ticket.priority, waited);
+            }
+        }
+    }
+
+    private void scheduleDispatch(long now, long delayMillis) {
+        long dueAt = now + delayMillis;
+        // A pass that is already due (possibly the one running right now) does not count.
+        if (pendingDispatch != null && !pendingDispatch.isDone() && pendingDispatchAt > now && pendingDispatchAt <= dueAt) {
+            return;
+        }
+        if (pendingDispatch != null) {
+            pendingDispatch.cancel(false);
+        }
+        pendingDispatchAt = dueAt;
+        pendingDispatch = TIMER.schedule(this::dispatch, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the best-ranked waiting call whose credential currently has budget, or null.
+     */
+    private Ticket nextEligible(long now) {
+        Ticket best = null;
+        Map<String, Boolean> available = new HashMap<>();
+        for (Ticket candidate : waiting) {
+            boolean ready = available.computeIfAbsent(
+                    candidate.credential == null ? "" : candidate.credential,
+                    c -> limiter.availableIn(candidate.credential, now) <= 0L);
+            if (ready && (best == null || ranksBefore(candidate, best))) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private boolean ranksBefore(Ticket a, Ticket b) {
+        if (a.priority != b.priority) {
+            return a.priority.ordinal() < b.priority.ordinal();
+        }
+        if (!a.session.equals(b.session)) {
+            long aLast = lastGrantBySession.getOrDefault(a.session, -1L);
+            long bLast = lastGrantBySession.getOrDefault(b.session, -1L);
+            if (aLast != bLast) {
+                return aLast < bLast;
+            }
+        }
+        return a.sequence < b.sequence;
+    }
+
+    private void record(Priority priority, long waitedMillis) {
+        grants.get(priority).incrementAndGet();
+        totalWaitMillis.get(priority).addAndGet(waitedMillis);
+        maxWaitMillis.get(priority).accumulateAndGet(waitedMillis, Math::max);
+    }
+
+    /**
+     * Returns queue depth and queue wait metrics per priority class.
+     */
+    public Map<String, Object> snapshot() {
+        Map<Priority, Integer> queued = new EnumMap<>(Priority.class);
+        lock.lock();
+        try {
+            for (Ticket ticket : waiting) {
+                queued.merge(ticket.priority, 1, Integer::sum);
+            }
+        } finally {
+            lock.unlock();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Priority priority : Priority.values()) {
+            long granted = grants.get(priority).get();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("queued", queued.getOrDefault(priority, 0));
+            entry.put("granted", granted);
+            entry.put("avgQueueWaitMs", granted > 0 ? totalWaitMillis.get(priority).get() / granted : 0L);
+            entry.put("maxQueueWaitMs", maxWaitMillis.get(priority).get());
+            stats.put(priority.name().toLowerCase(), entry);
+        }
+        return stats;
+    }
+
+    private static final class Ticket {
+        private final String credential;
+        private final Priority priority;
+        private final String session;
+        private final long sequence;
+        private final long enqueuedAt;
+        private final CompletableFuture<Long> grant;
+
+        private Ticket(String credential, Priority priority, String session, long sequence, long enqueuedAt, CompletableFuture<Long> grant) {
+            this.credential = credential;
+            this.priority = priority;
+            this.session = session;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+            this.grant = grant;
+        }
+    }
+}
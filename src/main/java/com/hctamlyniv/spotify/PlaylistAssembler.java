@@ -4,7 +4,6 @@ import Server.PlaylistData;
 import Server.TrackData;
 import com.hctamlyniv.DiscogsService;
 import com.hctamlyniv.discogs.DiscogsNormalizer;
-import se.michaelthelin.spotify.model_objects.specification.Album;
 import se.michaelthelin.spotify.model_objects.specification.ArtistSimplified;
 import se.michaelthelin.spotify.model_objects.specification.Episode;
 import se.michaelthelin.spotify.model_objects.specification.Playlist;
@@ -26,11 +25,9 @@ public class PlaylistAssembler {
 
     private static final Logger log = LoggerFactory.getLogger(PlaylistAssembler.class);
 
-    private final BarcodeExtractor barcodeExtractor;
     private final DiscogsService discogsService;
 
     public PlaylistAssembler(DiscogsService discogsService) {
-        this.barcodeExtractor = new BarcodeExtractor();
         this.discogsService = discogsService;
     }
 
@@ -46,17 +43,18 @@ public class PlaylistAssembler {
         if (playlist.getExternalUrls() != null && playlist.getExternalUrls().getExternalUrls() != null) {
             playlistUrl = playlist.getExternalUrls().getExternalUrls().get("spotify");
         }
-        return new PlaylistMetadata(playlistName, playlistCoverUrl, playlistUrl);
+        boolean collaborative = Boolean.TRUE.equals(playlist.getIsCollaborative());
+        return new PlaylistMetadata(playlistName, playlistCoverUrl, playlistUrl, Boolean.TRUE.equals(playlist.getIsPublicAccess()), collaborative);
     }
 
     /**
      * Converts playlist tracks to TrackData objects.
      * 
      * @param playlistTracks List of playlist tracks
-     * @param albumDetailsMap Map of album ID to Album details
+     * @param albumDetailsMap Map of album ID to album details
      * @return List of TrackData objects
      */
-    public List<TrackData> assembleTrackData(List<PlaylistTrack> playlistTracks, Map<String, Album> albumDetailsMap) {
+    public List<TrackData> assembleTrackData(List<PlaylistTrack> playlistTracks, Map<String, SpotifyAlbumInfo> albumDetailsMap) {
         List<TrackData> tracks = new ArrayList<>();
 
         for (PlaylistTrack playlistTrack : playlistTracks) {
@@ -80,7 +78,7 @@ public class PlaylistAssembler {
     /**
      * Converts a single Track to TrackData.
      */
-    private TrackData convertTrack(Track track, Map<String, Album> albumDetailsMap) {
+    private TrackData convertTrack(Track track, Map<String, SpotifyAlbumInfo> albumDetailsMap) {
         // Build artist name
         String artistName = (track.getArtists() != null && track.getArtists().length > 0)
                 ? Arrays.stream(track.getArtists())
@@ -90,17 +88,17 @@ public class PlaylistAssembler {
 
         // Get album details
         String albumId = (track.getAlbum() != null) ? track.getAlbum().getId() : null;
-        Album albumDetails = (albumId != null) ? albumDetailsMap.get(albumId) : null;
+        SpotifyAlbumInfo albumDetails = (albumId != null) ? albumDetailsMap.get(albumId) : null;
 
         // Album name
-        String albumName = (albumDetails != null) ? albumDetails.getName()
+        String albumName = (albumDetails != null) ? albumDetails.name()
                 : (track.getAlbum() != null ? track.getAlbum().getName() : "Unknown");
 
         // Release year
         Integer releaseYear = null;
         String releaseDate = null;
-        if (albumDetails != null && albumDetails.getReleaseDate() != null) {
-            releaseDate = albumDetails.getReleaseDate();
+        if (albumDetails != null && albumDetails.releaseDate() != null) {
+            releaseDate = albumDetails.releaseDate();
         } else if (track.getAlbum() != null) {
             releaseDate = track.getAlbum().getReleaseDate();
         }
@@ -114,9 +112,8 @@ public class PlaylistAssembler {
 
         // Album URL
         String albumUrl = null;
-        if (albumDetails != null && albumDetails.getExternalUrls() != null
-                && albumDetails.getExternalUrls().getExternalUrls() != null) {
-            albumUrl = albumDetails.getExternalUrls().getExternalUrls().get("spotify");
+        if (albumDetails != null && albumDetails.url() != null) {
+            albumUrl = albumDetails.url();
         } else if (track.getAlbum() != null && track.getAlbum().getExternalUrls() != null
                 && track.getAlbum().getExternalUrls().getExternalUrls() != null) {
             albumUrl = track.getAlbum().getExternalUrls().getExternalUrls().get("spotify");
@@ -124,8 +121,8 @@ public class PlaylistAssembler {
 
         // Cover URL
         String coverUrl = null;
-        if (albumDetails != null && albumDetails.getImages() != null && albumDetails.getImages().length > 0) {
-            coverUrl = albumDetails.getImages()[0].getUrl();
+        if (albumDetails != null && albumDetails.coverUrl() != null) {
+            coverUrl = albumDetails.coverUrl();
         } else if (track.getAlbum() != null && track.getAlbum().getImages() != null && track.getAlbum().getImages().length > 0) {
             coverUrl = track.getAlbum().getImages()[0].getUrl();
         }
@@ -134,7 +131,7 @@ public class PlaylistAssembler {
         String trackName = track.getName();
 
         // Barcode
-        String barcode = barcodeExtractor.getOrExtractBarcode(albumId, albumDetails);
+        String barcode = (albumDetails != null) ? albumDetails.barcode() : null;
 
         // Discogs URL (from cache only, no API call) - normalize to match frontend's normalization
         String discogsUrl = null;
@@ -149,7 +146,7 @@ public class PlaylistAssembler {
     }
 
     /**
-     * Assembles a complete PlaylistData object.
+     * Assembles the PlaylistData object; {@code incomplete} marks a partial load.
      */
     public PlaylistData assemblePlaylistData(
             PlaylistMetadata metadata,
@@ -157,7 +154,8 @@ public class PlaylistAssembler {
             int total,
             int offset,
             int nextOffset,
-            boolean hasMore
+            boolean hasMore,
+            boolean incomplete
     ) {
         return new PlaylistData(
                 metadata.name(),
@@ -167,12 +165,21 @@ public class PlaylistAssembler {
                 total,
                 offset,
                 nextOffset,
-                hasMore
+                hasMore,
+                incomplete
         );
     }
 
     /**
      * Metadata extracted from a playlist.
      */
-    public record PlaylistMetadata(String name, String coverUrl, String url) {}
+    public record PlaylistMetadata(String name, String coverUrl, String url, boolean publicAccess, boolean collaborative) {
+
+        /**
+         * Public, non-collaborative playlists look the same to every user.
+         */
+        public boolean sameForAllUsers() {
+            return publicAccess && !collaborative;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.hctamlyniv.spotify;
 
+import com.hctamlyniv.Config;
 import se.michaelthelin.spotify.SpotifyApi;
 import se.michaelthelin.spotify.model_objects.specification.Album;
 import se.michaelthelin.spotify.model_objects.specification.PlaylistTrack;
@@ -10,29 +11,55 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Handles batch loading of Spotify album details.
+ *
+ * Batches of up to 20 albums are requested concurrently (at most
+ * {@link Config#getSpotifyAlbumBatchConcurrency()} at a time per load). With {@link #startLoad()}
+ * tracks can be fed in page by page, so album batches start while later playlist pages are
+ * still loading. A failed batch only leaves its own albums without details; failures are counted
+ * per load and process-wide.
+ *
+ * Albums found in the shared {@link SpotifyAlbumCache} are not requested again; only missing ids
+ * go upstream, and loaded albums are added to the cache.
  */
 public class SpotifyAlbumBatchLoader {
 
     private static final int BATCH_SIZE = 20; // Spotify API limit for getSeveralAlbums
     private static final Logger log = LoggerFactory.getLogger(SpotifyAlbumBatchLoader.class);
+    private static final AtomicLong BATCHES = new AtomicLong();
+    private static final AtomicLong FAILED_BATCHES = new AtomicLong();
 
     private final SpotifyApi spotifyApi;
+    private final SpotifyAlbumCache albumCache;
 
     public SpotifyAlbumBatchLoader(SpotifyApi spotifyApi) {
+        this(spotifyApi, SpotifyAlbumCache.shared());
+    }
+
+    public SpotifyAlbumBatchLoader(SpotifyApi spotifyApi, SpotifyAlbumCache albumCache) {
         this.spotifyApi = spotifyApi;
+        this.albumCache = albumCache;
     }
 
     /**
-     * Extracts unique album IDs from a list of playlist tracks.
+     * Extracts unique album IDs from a list of playlist tracks, in playlist order.
      */
     public Set<String> extractAlbumIds(List<PlaylistTrack> playlistTracks) {
-        Set<String> albumIds = new HashSet<>();
+        Set<String> albumIds = new LinkedHashSet<>();
         for (PlaylistTrack playlistTrack : playlistTracks) {
             Object item = playlistTrack.getTrack();
             if (item instanceof Track track) {
@@ -46,49 +73,247 @@ public class SpotifyAlbumBatchLoader {
 
     /**
      * Loads album details for a set of album IDs in batches.
-     * 
+     *
      * @param albumIds Set of album IDs to load
-     * @return Map of album ID to Album object
+     * @return Map of album ID to album details
      */
-    public Map<String, Album> loadAlbumDetails(Set<String> albumIds) {
-        Map<String, Album> albumDetailsMap = new HashMap<>();
-
+    public Map<String, SpotifyAlbumInfo> loadAlbumDetails(Set<String> albumIds) {
         if (albumIds == null || albumIds.isEmpty()) {
-            return albumDetailsMap;
+            return new HashMap<>();
+        }
+        try (AlbumLoad load = startLoad()) {
+            load.addAlbumIds(albumIds);
+            return load.finish().albums();
+        }
+    }
+
+    /**
+     * Loads album details for all albums referenced in the playlist tracks.
+     */
+    public Map<String, SpotifyAlbumInfo> loadAlbumDetailsForTracks(List<PlaylistTrack> playlistTracks) {
+        Set<String> albumIds = extractAlbumIds(playlistTracks);
+        return loadAlbumDetails(albumIds);
+    }
+
+    /**
+     * Starts an incremental load: feed tracks with {@link AlbumLoad#addTracks} as they arrive,
+     * then collect the result with {@link AlbumLoad#finish}.
+     */
+    public AlbumLoad startLoad() {
+        return new AlbumLoad(Config.getSpotifyAlbumBatchConcurrency());
+    }
+
+    /**
+     * Fetches one batch of albums. Separate so tests can stub the Spotify call.
+     */
+    protected Album[] fetchAlbums(String[] albumIds) throws Exception {
+        return spotifyApi.getSeveralAlbums(albumIds).build().execute();
+    }
+
+    /**
+     * Process-wide batch counters for health reporting.
+     */
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batches", BATCHES.get());
+        stats.put("failedBatches", FAILED_BATCHES.get());
+        return stats;
+    }
+
+    /**
+     * @param failedBatches batches whose request failed
+     * @param failedAlbums  albums left without details because their batch failed
+     */
+    public record AlbumDetailsResult(Map<String, SpotifyAlbumInfo> albums, int failedBatches, int failedAlbums) {}
+
+    /**
+     * One in-progress album load. Full batches are submitted as soon as enough new album IDs have
+     * been added; {@link #finish} submits the remainder and waits for all of them.
+     */
+    public final class AlbumLoad implements AutoCloseable {
+        private final Semaphore permits;
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        private final Set<String> seen = new HashSet<>();
+        private final List<String> pendingIds = new ArrayList<>();
+        private final List<CompletableFuture<Void>> batches = new ArrayList<>();
+        private final Map<String, CompletableFuture<Void>> batchOf = new HashMap<>();
+        private final Map<String, CompletableFuture<Void>> lookupOf = new HashMap<>();
+        private final Map<String, SpotifyAlbumInfo> albums = new ConcurrentHashMap<>();
+        private final AtomicInteger failedBatches = new AtomicInteger();
+        private final AtomicInteger failedAlbums = new AtomicInteger();
+
+        private AlbumLoad(int concurrency) {
+            this.permits = new Semaphore(concurrency);
+        }
+
+        /**
+         * Queues the albums of newly arrived playlist tracks. Safe to call from several threads.
+         */
+        public void addTracks(List<PlaylistTrack> playlistTracks) {
+            addAlbumIds(extractAlbumIds(playlistTracks));
+        }
+
+        /**
+         * Looks the new ids up in the album cache without holding the lock, since that may be a
+         * Redis round trip; ids that are in flight meanwhile are tracked in {@code lookupOf}.
+         */
+        void addAlbumIds(Set<String> albumIds) {
+            List<String> unseen = new ArrayList<>();
+            CompletableFuture<Void> lookup = new CompletableFuture<>();
+            synchronized (this) {
+                for (String albumId : albumIds) {
+                    if (seen.add(albumId)) {
+                        unseen.add(albumId);
+                        lookupOf.put(albumId, lookup);
+                    }
+                }
+            }
+            if (unseen.isEmpty()) {
+                return;
+            }
+            Map<String, SpotifyAlbumInfo> cached = Map.of();
+            try {
+                cached = albumCache.getAll(unseen);
+                albums.putAll(cached);
+            } finally {
+                synchronized (this) {
+                    for (String albumId : unseen) {
+                        lookupOf.remove(albumId);
+                        if (!cached.containsKey(albumId)) {
+                            pendingIds.add(albumId);
+                        }
+                    }
+                    while (pendingIds.size() >= BATCH_SIZE) {
+                        submitBatch(BATCH_SIZE);
+                    }
+                }
+                lookup.complete(null);
+            }
         }
 
-        List<String> albumIdList = new ArrayList<>(albumIds);
+        /**
+         * Queues the albums of {@code playlistTracks}, submits every pending album without waiting
+         * for a full batch, and completes with the details of those tracks' albums once their
+         * batches are done. Albums whose batch failed are missing from the result.
+         */
+        public CompletableFuture<Map<String, SpotifyAlbumInfo>> albumsFor(List<PlaylistTrack> playlistTracks) {
+            Set<String> albumIds = extractAlbumIds(playlistTracks);
+            addAlbumIds(albumIds);
+            return batchesFor(albumIds).thenApply(done -> {
+                Map<String, SpotifyAlbumInfo> found = new HashMap<>();
+                for (String albumId : albumIds) {
+                    SpotifyAlbumInfo info = albums.get(albumId);
+                    if (info != null) {
+                        found.put(albumId, info);
+                    }
+                }
+                return found;
+            });
+        }
 
-        for (int i = 0; i < albumIdList.size(); i += BATCH_SIZE) {
-            int end = Math.min(i + BATCH_SIZE, albumIdList.size());
-            List<String> batch = albumIdList.subList(i, end);
+        /**
+         * Submits every pending album and completes once the batches of {@code albumIds} are done.
+         * Ids another thread is still looking up in the cache are waited for, then submitted too.
+         */
+        private CompletableFuture<Void> batchesFor(Set<String> albumIds) {
+            List<CompletableFuture<Void>> waits = new ArrayList<>();
+            Set<String> lookingUp = new HashSet<>();
+            Set<CompletableFuture<Void>> lookups = new HashSet<>();
+            synchronized (this) {
+                if (!pendingIds.isEmpty()) {
+                    submitBatch(pendingIds.size());
+                }
+                for (String albumId : albumIds) {
+                    CompletableFuture<Void> batch = batchOf.get(albumId);
+                    CompletableFuture<Void> lookup = lookupOf.get(albumId);
+                    if (batch != null) {
+                        waits.add(batch);
+                    } else if (lookup != null) {
+                        lookingUp.add(albumId);
+                        lookups.add(lookup);
+                    }
+                }
+            }
+            if (!lookups.isEmpty()) {
+                waits.add(CompletableFuture.allOf(lookups.toArray(new CompletableFuture[0]))
+                        .thenCompose(done -> batchesFor(lookingUp)));
+            }
+            return CompletableFuture.allOf(waits.toArray(new CompletableFuture[0]));
+        }
 
+        /**
+         * Waits for all batches and returns what was loaded.
+         */
+        public AlbumDetailsResult finish() {
+            List<CompletableFuture<Void>> submitted;
+            while (true) {
+                List<CompletableFuture<Void>> lookups;
+                synchronized (this) {
+                    if (lookupOf.isEmpty()) {
+                        if (!pendingIds.isEmpty()) {
+                            submitBatch(pendingIds.size());
+                        }
+                        submitted = new ArrayList<>(batches);
+                        break;
+                    }
+                    lookups = new ArrayList<>(new HashSet<>(lookupOf.values()));
+                }
+                CompletableFuture.allOf(lookups.toArray(new CompletableFuture[0])).join();
+            }
+            CompletableFuture.allOf(submitted.toArray(new CompletableFuture[0])).join();
+            return new AlbumDetailsResult(new HashMap<>(albums), failedBatches.get(), failedAlbums.get());
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+
+        // Caller holds the lock.
+        private void submitBatch(int size) {
+            List<String> batchIds = new ArrayList<>(pendingIds.subList(0, size));
+            pendingIds.subList(0, size).clear();
+            int batchNumber = batches.size() + 1;
+            CompletableFuture<Void> batch = CompletableFuture.runAsync(() -> loadBatch(batchIds, batchNumber), executor);
+            batches.add(batch);
+            for (String albumId : batchIds) {
+                batchOf.put(albumId, batch);
+            }
+        }
+
+        private void loadBatch(List<String> batchIds, int batchNumber) {
+            BATCHES.incrementAndGet();
             try {
-                Album[] batchAlbums = spotifyApi
-                        .getSeveralAlbums(batch.toArray(new String[0]))
-                        .build()
-                        .execute();
-
-                if (batchAlbums != null) {
-                    for (Album album : batchAlbums) {
-                        if (album != null && album.getId() != null) {
-                            albumDetailsMap.put(album.getId(), album);
+                permits.acquire();
+                try {
+                    Album[] batchAlbums = fetchAlbums(batchIds.toArray(new String[0]));
+                    List<SpotifyAlbumInfo> loaded = new ArrayList<>();
+                    if (batchAlbums != null) {
+                        for (Album album : batchAlbums) {
+                            if (album != null && album.getId() != null) {
+                                SpotifyAlbumInfo info = SpotifyAlbumInfo.from(album);
+                                albums.put(info.id(), info);
+                                loaded.add(info);
+                            }
                         }
                     }
+                    albumCache.putAll(loaded);
+                } finally {
+                    permits.release();
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                recordFailure(batchIds, batchNumber, "interrupted");
             } catch (Exception e) {
-                log.warn("Spotify album batch load failed (batch {}): {}", (i / BATCH_SIZE + 1), e.getMessage());
+                recordFailure(batchIds, batchNumber, e.getMessage());
             }
         }
 
-        return albumDetailsMap;
-    }
-
-    /**
-     * Loads album details for all albums referenced in the playlist tracks.
-     */
-    public Map<String, Album> loadAlbumDetailsForTracks(List<PlaylistTrack> playlistTracks) {
-        Set<String> albumIds = extractAlbumIds(playlistTracks);
-        return loadAlbumDetails(albumIds);
+        private void recordFailure(List<String> batchIds, int batchNumber, String reason) {
+            failedBatches.incrementAndGet();
+            failedAlbums.addAndGet(batchIds.size());
+            FAILED_BATCHES.incrementAndGet();
+            log.warn("Spotify album batch load failed (batch {}): {}", batchNumber, reason);
+        }
     }
 }
@@ -0,0 +1,181 @@
+package com.hctamlyniv.spotify;
+
+import Server.cache.WeightedLfuCache;
+import Server.session.RedisConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hctamlyniv.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide cache of Spotify album details keyed by album id, shared by all playlist loads and
+ * users. Album metadata (UPC, cover, release date) practically never changes, so a long TTL is
+ * safe.
+ *
+ * The memory tier is a bounded {@link WeightedLfuCache}. When Redis is configured, entries are
+ * also written there, so they survive restarts and are shared between instances; memory misses
+ * are looked up in Redis in one pipelined round trip ({@code MGET} plus each key's {@code PTTL}),
+ * and refilled memory entries expire when their Redis key does.
+ */
+public final class SpotifyAlbumCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SpotifyAlbumCache.class);
+    private static final String REDIS_KEY_PREFIX = "spotify:album:";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static volatile SpotifyAlbumCache shared;
+
+    private final WeightedLfuCache<String, SpotifyAlbumInfo> memory;
+    private final Duration ttl;
+    private final boolean useRedis;
+    private final AtomicLong redisHits = new AtomicLong();
+    private final AtomicLong redisMisses = new AtomicLong();
+    private final AtomicLong redisErrors = new AtomicLong();
+
+    public SpotifyAlbumCache(int maxEntries, Duration ttl, boolean useRedis) {
+        // Entries are small and similar in size, so the weight bound is only a safety net.
+        this.memory = new WeightedLfuCache<>(maxEntries * 2048L, maxEntries);
+        this.ttl = ttl;
+        this.useRedis = useRedis;
+    }
+
+    /**
+     * The cache shared by all loads in this process, sized from {@link Config}.
+     */
+    public static SpotifyAlbumCache shared() {
+        SpotifyAlbumCache cache = shared;
+        if (cache == null) {
+            synchronized (SpotifyAlbumCache.class) {
+                cache = shared;
+                if (cache == null) {
+                    cache = new SpotifyAlbumCache(
+                            Config.getSpotifyAlbumCacheMaxEntries(),
+                            Duration.ofHours(Config.getSpotifyAlbumCacheTtlHours()),
+                            Config.getRedisHost() != null && !Config.getRedisHost().isBlank());
+                    shared = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the cached details for as many of {@code albumIds} as possible. Ids missing from
+     * the result need to be loaded from Spotify.
+     */
+    public Map<String, SpotifyAlbumInfo> getAll(Collection<String> albumIds) {
+        long now = System.currentTimeMillis();
+        Map<String, SpotifyAlbumInfo> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String albumId : albumIds) {
+            SpotifyAlbumInfo info = memory.get(albumId, now);
+            if (info != null) {
+                found.put(albumId, info);
+            } else {
+                missing.add(albumId);
+            }
+        }
+        if (useRedis && !missing.isEmpty()) {
+            readFromRedis(missing, found, now);
+        }
+        return found;
+    }
+
+    /**
+     * Caches freshly loaded albums in memory and, if configured, in Redis.
+     */
+    public void putAll(Collection<SpotifyAlbumInfo> albums) {
+        if (albums.isEmpty()) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        for (SpotifyAlbumInfo info : albums) {
+            memory.put(info.id(), info, info.estimateBytes(), expiresAt);
+        }
+        if (useRedis) {
+            writeToRedis(albums);
+        }
+    }
+
+    /**
+     * Memory tier size and hit rate, plus Redis lookup counters.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = memory.snapshot();
+        stats.put("redisEnabled", useRedis);
+        stats.put("redisHits", redisHits.get());
+        stats.put("redisMisses", redisMisses.get());
+        stats.put("redisErrors", redisErrors.get());
+        return stats;
+    }
+
+    private void readFromRedis(List<String> albumIds, Map<String, SpotifyAlbumInfo> found, long now) {
+        try (Jedis jedis = RedisConfig.getJedis()) {
+            if (jedis == null) {
+                return;
+            }
+            String[] keys = albumIds.stream().map(id -> REDIS_KEY_PREFIX + id).toArray(String[]::new);
+            Pipeline pipeline = jedis.pipelined();
+            Response<List<String>> valuesResponse = pipeline.mget(keys);
+            List<Response<Long>> ttlResponses = new ArrayList<>(keys.length);
+            for (String key : keys) {
+                ttlResponses.add(pipeline.pttl(key));
+            }
+            pipeline.sync();
+            List<String> values = valuesResponse.get();
+            for (int i = 0; i < albumIds.size(); i++) {
+                String json = values.get(i);
+                long remainingMillis = ttlResponses.get(i).get();
+                // -2: expired since the MGET; -1: no expiry set, fall back to the configured TTL
+                if (json == null || remainingMillis == -2L) {
+                    redisMisses.incrementAndGet();
+                    continue;
+                }
+                long expiresAt = now + (remainingMillis > 0 ? remainingMillis : ttl.toMillis());
+                SpotifyAlbumInfo info;
+                try {
+                    info = MAPPER.readValue(json, SpotifyAlbumInfo.class);
+                } catch (JsonProcessingException e) {
+                    // One unreadable entry (e.g. written by an older version) must not discard the rest.
+                    redisMisses.incrementAndGet();
+                    log.debug("Unreadable Spotify album cache entry {}: {}", keys[i], e.getMessage());
+                    continue;
+                }
+                memory.put(info.id(), info, info.estimateBytes(), expiresAt);
+                found.put(albumIds.get(i), info);
+                redisHits.incrementAndGet();
+            }
+        } catch (Exception e) {
+            redisErrors.incrementAndGet();
+            log.warn("Redis error reading Spotify album cache: {}", e.getMessage());
+        }
+    }
+
+    private void writeToRedis(Collection<SpotifyAlbumInfo> albums) {
+        try (Jedis jedis = RedisConfig.getJedis()) {
+            if (jedis == null) {
+                return;
+            }
+            Pipeline pipeline = jedis.pipelined();
+            for (SpotifyAlbumInfo info : albums) {
+                pipeline.setex(REDIS_KEY_PREFIX + info.id(), ttl.toSeconds(), MAPPER.writeValueAsString(info));
+            }
+            pipeline.sync();
+        } catch (Exception e) {
+            redisErrors.incrementAndGet();
+            log.warn("Redis error writing Spotify album cache: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.hctamlyniv.spotify;
+
+import se.michaelthelin.spotify.model_objects.specification.Album;
+
+/**
+ * The album details a playlist page needs, extracted once from a full Spotify {@link Album} so
+ * they can be cached and shared across requests (and serialized to Redis).
+ */
+public record SpotifyAlbumInfo(String id, String name, String releaseDate, String url, String coverUrl, String barcode) {
+
+    public static SpotifyAlbumInfo from(Album album) {
+        String url = null;
+        if (album.getExternalUrls() != null && album.getExternalUrls().getExternalUrls() != null) {
+            url = album.getExternalUrls().getExternalUrls().get("spotify");
+        }
+        String coverUrl = (album.getImages() != null && album.getImages().length > 0) ? album.getImages()[0].getUrl() : null;
+        return new SpotifyAlbumInfo(album.getId(), album.getName(), album.getReleaseDate(), url, coverUrl, BarcodeExtractor.extractBarcode(album));
+    }
+
+    /**
+     * Rough heap footprint, for cache weighing.
+     */
+    int estimateBytes() {
+        return 96 + chars(id) + chars(name) + chars(releaseDate) + chars(url) + chars(coverUrl) + chars(barcode);
+    }
+
+    private static int chars(String value) {
+        return value == null ? 0 : 40 + 2 * value.length();
+    }
+}
@@ -1,18 +1,39 @@
 package com.hctamlyniv.spotify;
 
+import com.hctamlyniv.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import se.michaelthelin.spotify.SpotifyApi;
+import se.michaelthelin.spotify.exceptions.detailed.TooManyRequestsException;
 import se.michaelthelin.spotify.model_objects.specification.Paging;
 import se.michaelthelin.spotify.model_objects.specification.Playlist;
 import se.michaelthelin.spotify.model_objects.specification.PlaylistTrack;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 
 /**
  * Handles reading and paging through Spotify playlist items.
  */
 public class SpotifyPlaylistReader {
 
+    private static final Logger log = LoggerFactory.getLogger(SpotifyPlaylistReader.class);
+    private static final int PAGE_SIZE = 100;
+
+    // Spotify "fields" filters: only what PlaylistAssembler and the album loader read. "type" is
+    // needed so items can be told apart as tracks or episodes.
+    private static final String METADATA_FIELDS = "name,images,external_urls,collaborative,public,snapshot_id";
+    private static final String ITEM_FIELDS =
+            "items(track(type,id,name,artists(name),album(id,name,release_date,external_urls,images)))";
+    private static final String PAGE_FIELDS = "total,limit,offset,next," + ITEM_FIELDS;
+
     private final SpotifyApi spotifyApi;
 
     public SpotifyPlaylistReader(SpotifyApi spotifyApi) {
@@ -26,6 +47,32 @@ public class SpotifyPlaylistReader {
         return spotifyApi.getPlaylist(playlistId).build().execute();
     }
 
+    /**
+     * Fetches the metadata fields the app uses, without any items.
+     */
+    public Playlist getPlaylistMetadata(String playlistId) throws Exception {
+        return spotifyApi.getPlaylist(playlistId).fields(METADATA_FIELDS).build().execute();
+    }
+
+    /**
+     * Fetches the metadata together with the first page of items ({@link Playlist#getTracks()}),
+     * so a load starting at offset 0 needs one request less.
+     */
+    public Playlist getPlaylistWithFirstPage(String playlistId) throws Exception {
+        return spotifyApi.getPlaylist(playlistId)
+                .fields(METADATA_FIELDS + ",tracks(" + PAGE_FIELDS + ")")
+                .build()
+                .execute();
+    }
+
+    /**
+     * Fetches only the playlist's current {@code snapshot_id}; a tiny response used to check
+     * whether a cached copy is still current.
+     */
+    public String getSnapshotId(String playlistId) throws Exception {
+        return spotifyApi.getPlaylist(playlistId).fields("snapshot_id").build().execute().getSnapshotId();
+    }
+
     /**
      * Fetches a page of playlist tracks.
      * 
@@ -37,14 +84,21 @@ public class SpotifyPlaylistReader {
     public Paging<PlaylistTrack> getPlaylistItems(String playlistId, int offset, int limit) throws Exception {
         return spotifyApi
                 .getPlaylistsItems(playlistId)
-                .limit(Math.min(limit, 100))
+                .limit(Math.min(limit, PAGE_SIZE))
                 .offset(offset)
+                .fields(PAGE_FIELDS)
                 .build()
                 .execute();
     }
 
     /**
      * Fetches all playlist tracks with pagination, starting from offset up to limit.
+     *
+     * The first page tells us the playlist's total, so the remaining pages are then requested
+     * concurrently (at most {@link Config#getSpotifyPageFetchConcurrency()} at a time) and
+     * reassembled in order. Rate limiting is handled by {@link SpotifyTransport}; if Spotify
+     * still throttles a later page, the tracks loaded before it are returned and the result is
+     * marked {@code incomplete}, with {@code nextOffset} pointing at the first missing track.
      * 
      * @param playlistId The playlist ID
      * @param requestedOffset Starting offset
@@ -52,63 +106,179 @@ public class SpotifyPlaylistReader {
      * @return Result containing tracks and pagination info
      */
     public PlaylistItemsResult getAllPlaylistItems(String playlistId, int requestedOffset, int requestedLimit) throws Exception {
+        return getAllPlaylistItems(playlistId, requestedOffset, requestedLimit, page -> {});
+    }
+
+    /**
+     * Like {@link #getAllPlaylistItems(String, int, int)}, additionally handing each page's items
+     * to {@code onPage} as soon as it arrives (in arrival order, possibly from several threads),
+     * so dependent work can start before the whole window is loaded.
+     */
+    public PlaylistItemsResult getAllPlaylistItems(String playlistId, int requestedOffset, int requestedLimit,
+                                                   Consumer<List<PlaylistTrack>> onPage) throws Exception {
+        return getAllPlaylistItems(playlistId, requestedOffset, requestedLimit, onPage, null);
+    }
+
+    /**
+     * Like {@link #getAllPlaylistItems(String, int, int, Consumer)}, but starts from
+     * {@code firstPage} (the items embedded in {@link #getPlaylistWithFirstPage}) instead of
+     * requesting the first page again. Only used when the window starts at offset 0.
+     */
+    public PlaylistItemsResult getAllPlaylistItems(String playlistId, int requestedOffset, int requestedLimit,
+                                                   Consumer<List<PlaylistTrack>> onPage,
+                                                   Paging<PlaylistTrack> firstPage) throws Exception {
+        return getAllPlaylistItems(playlistId, requestedOffset, requestedLimit, arrivals(onPage), firstPage);
+    }
+
+    /**
+     * Like {@link #getAllPlaylistItems(String, int, int, Consumer, Paging)}, reporting pages to a
+     * {@link PageListener}, which can also consume them in playlist order while later pages are
+     * still loading. An exception thrown by the listener cancels the load and is rethrown.
+     */
+    public PlaylistItemsResult getAllPlaylistItems(String playlistId, int requestedOffset, int requestedLimit,
+                                                   PageListener listener,
+                                                   Paging<PlaylistTrack> firstPage) throws Exception {
         int safeOffset = Math.max(0, requestedOffset);
         boolean paginated = requestedLimit > 0;
-        int remaining = paginated ? requestedLimit : 0;
-        int currentOffset = safeOffset;
-        int total = 0;
+        int firstLimit = paginated ? Math.min(requestedLimit, PAGE_SIZE) : PAGE_SIZE;
+        Semaphore permits = new Semaphore(Config.getSpotifyPageFetchConcurrency());
+        Paging<PlaylistTrack> first = firstPage != null && safeOffset == 0 && firstPage.getTotal() != null
+                ? trimPage(firstPage, firstLimit)
+                : fetchPage(permits, playlistId, safeOffset, firstLimit);
+        publish(first, listener);
+        int total = first.getTotal();
+        int end = paginated ? (int) Math.min((long) safeOffset + requestedLimit, total) : total;
 
         List<PlaylistTrack> allItems = new ArrayList<>();
-
-        while (true) {
-            if (paginated && remaining <= 0) {
-                break;
+        int currentOffset = safeOffset;
+        boolean incomplete = false;
+        PlaylistTrack[] firstItems = first.getItems();
+        if (firstItems != null && firstItems.length > 0) {
+            allItems.addAll(Arrays.asList(firstItems));
+            currentOffset += firstItems.length;
+            listener.onPageInOrder(Arrays.asList(firstItems), total);
+        }
+        if (firstItems != null && firstItems.length > 0 && currentOffset < end) {
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+            try {
+                List<Future<Paging<PlaylistTrack>>> futures = new ArrayList<>();
+                for (int pageOffset = currentOffset; pageOffset < end; pageOffset += PAGE_SIZE) {
+                    int offset = pageOffset;
+                    int limit = Math.min(PAGE_SIZE, end - pageOffset);
+                    futures.add(executor.submit(() -> publish(fetchPage(permits, playlistId, offset, limit), listener)));
+                }
+                for (Future<Paging<PlaylistTrack>> future : futures) {
+                    Paging<PlaylistTrack> page;
+                    try {
+                        page = future.get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof TooManyRequestsException throttled) {
+                            log.warn("Spotify kept throttling playlist {} at offset {}; returning the {} tracks before it (retry after {}s)",
+                                    playlistId, currentOffset, allItems.size(), throttled.getRetryAfter());
+                            incomplete = true;
+                            break;
+                        }
+                        if (e.getCause() instanceof Exception cause) {
+                            throw cause;
+                        }
+                        throw e;
+                    }
+                    PlaylistTrack[] items = page.getItems();
+                    if (items == null || items.length == 0) {
+                        break;
+                    }
+                    int expected = Math.min(PAGE_SIZE, end - currentOffset);
+                    allItems.addAll(Arrays.asList(items));
+                    currentOffset += items.length;
+                    listener.onPageInOrder(Arrays.asList(items), total);
+                    // A short page means the playlist shrank while loading; later pages would leave a gap.
+                    if (items.length < expected) {
+                        break;
+                    }
+                }
+            } finally {
+                // Cancels whatever is still loading after a failure or an early stop.
+                executor.shutdownNow();
             }
+        }
 
-            int requestLimit = paginated ? Math.min(remaining, 100) : 100;
-            if (requestLimit <= 0) {
-                break;
-            }
+        boolean hasMore = (paginated || incomplete) && currentOffset < total;
+        int nextOffset = paginated ? Math.min(currentOffset, total) : currentOffset;
 
-            Paging<PlaylistTrack> page = getPlaylistItems(playlistId, currentOffset, requestLimit);
-            PlaylistTrack[] items = page.getItems();
-            total = page.getTotal();
+        return new PlaylistItemsResult(allItems, total, safeOffset, nextOffset, hasMore, incomplete);
+    }
 
-            if (items == null || items.length == 0) {
-                break;
-            }
+    /**
+     * Fetches one page within the load's concurrency limit.
+     */
+    private Paging<PlaylistTrack> fetchPage(Semaphore permits, String playlistId, int offset, int limit) throws Exception {
+        permits.acquire();
+        try {
+            return getPlaylistItems(playlistId, offset, limit);
+        } finally {
+            permits.release();
+        }
+    }
 
-            for (PlaylistTrack item : items) {
-                allItems.add(item);
-            }
+    private static Paging<PlaylistTrack> trimPage(Paging<PlaylistTrack> page, int limit) {
+        PlaylistTrack[] items = page.getItems();
+        if (items == null || items.length <= limit) {
+            return page;
+        }
+        return new Paging.Builder<PlaylistTrack>()
+                .setItems(Arrays.copyOf(items, limit))
+                .setTotal(page.getTotal())
+                .setOffset(page.getOffset())
+                .setLimit(limit)
+                .build();
+    }
 
-            currentOffset += items.length;
-            if (paginated) {
-                remaining -= items.length;
-                if (currentOffset >= total) {
-                    break;
-                }
-            } else {
-                if (page.getNext() == null) {
-                    break;
-                }
-            }
+    private static Paging<PlaylistTrack> publish(Paging<PlaylistTrack> page, PageListener listener) {
+        PlaylistTrack[] items = page.getItems();
+        if (items != null && items.length > 0) {
+            listener.onPageArrived(Arrays.asList(items));
         }
+        return page;
+    }
 
-        boolean hasMore = paginated && currentOffset < total;
-        int nextOffset = paginated ? Math.min(currentOffset, total) : currentOffset;
+    private static PageListener arrivals(Consumer<List<PlaylistTrack>> onPage) {
+        return new PageListener() {
+            @Override
+            public void onPageArrived(List<PlaylistTrack> items) {
+                onPage.accept(items);
+            }
+        };
+    }
+
+    /**
+     * Receives the pages of {@link #getAllPlaylistItems(String, int, int, PageListener, Paging)}.
+     */
+    public interface PageListener {
+
+        /**
+         * A page's items as soon as they arrive, in arrival order, possibly from several threads.
+         */
+        default void onPageArrived(List<PlaylistTrack> items) {}
 
-        return new PlaylistItemsResult(allItems, total, safeOffset, nextOffset, hasMore);
+        /**
+         * A page's items in playlist order on the loading thread, once all earlier pages are in.
+         * Pages dropped from the result (after a short page) are not reported.
+         *
+         * @param total the playlist's track count
+         */
+        default void onPageInOrder(List<PlaylistTrack> items, int total) throws Exception {}
     }
 
     /**
-     * Result of fetching playlist items with pagination info.
+     * Result of fetching playlist items with pagination info. {@code incomplete} means Spotify
+     * throttled the load before the requested window was complete.
      */
     public record PlaylistItemsResult(
         List<PlaylistTrack> items,
         int total,
         int offset,
         int nextOffset,
-        boolean hasMore
+        boolean hasMore,
+        boolean incomplete
     ) {}
 }
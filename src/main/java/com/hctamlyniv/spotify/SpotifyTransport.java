@@ -0,0 +1,475 @@
+package com.hctamlyniv.spotify;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hctamlyniv.Config;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.michaelthelin.spotify.IHttpManager;
+import se.michaelthelin.spotify.SpotifyApi;
+import se.michaelthelin.spotify.exceptions.SpotifyWebApiException;
+import se.michaelthelin.spotify.exceptions.detailed.BadGatewayException;
+import se.michaelthelin.spotify.exceptions.detailed.BadRequestException;
+import se.michaelthelin.spotify.exceptions.detailed.ForbiddenException;
+import se.michaelthelin.spotify.exceptions.detailed.InternalServerErrorException;
+import se.michaelthelin.spotify.exceptions.detailed.NotFoundException;
+import se.michaelthelin.spotify.exceptions.detailed.ServiceUnavailableException;
+import se.michaelthelin.spotify.exceptions.detailed.TooManyRequestsException;
+import se.michaelthelin.spotify.exceptions.detailed.UnauthorizedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The single HTTP transport behind every {@link SpotifyApi} built by the app.
+ *
+ * One {@link HttpClient} keeps connections to Spotify alive between requests (HTTP/2 where the
+ * server offers it), so requests no longer pay for a TLS handshake each time. Error responses are
+ * mapped to the same exceptions the library's own transport throws.
+ *
+ * Requests carrying the same credentials share an adaptive budget of concurrent requests: it
+ * starts at {@link Config#getSpotifyMaxRequestsPerToken()}, is halved by a 429 (once per pause, so
+ * a burst of 429s counts once) and grows back by one after each budget's worth of 2xx responses.
+ * A 429 also pauses all requests on the token for {@code Retry-After} plus a little jitter, so
+ * waiting requests do not all resume at once, and is then retried. Long pauses are not waited
+ * out, neither by the request that got the 429 nor by later requests on the paused token: those
+ * fail fast with {@link TooManyRequestsException} carrying the remaining pause.
+ *
+ * Throttled tokens outlive their last request so their reduced budget sticks; a background sweep
+ * drops them once they are idle and no longer paused.
+ */
+public final class SpotifyTransport implements IHttpManager {
+
+    private static final Logger log = LoggerFactory.getLogger(SpotifyTransport.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_RATE_LIMIT_RETRIES = 3;
+    private static final int MAX_RETRY_AFTER_SECONDS = 10;
+    private static final long MAX_JITTER_MILLIS = 500;
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private static final long SWEEP_INTERVAL_MILLIS = Duration.ofMinutes(1).toMillis();
+    private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "spotify-token-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Set<SpotifyTransport> OPEN_TRANSPORTS = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    static {
+        SWEEPER.scheduleWithFixedDelay(SpotifyTransport::sweepAll, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static volatile SpotifyTransport shared;
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final int requestsPerToken;
+    private final Map<String, TokenState> tokens = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errorResponses = new AtomicLong();
+    private final AtomicLong ioErrors = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong http2Responses = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public SpotifyTransport(int requestsPerToken, Duration requestTimeout) {
+        this.requestsPerToken = requestsPerToken;
+        this.requestTimeout = requestTimeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(requestTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        OPEN_TRANSPORTS.add(this);
+    }
+
+    /**
+     * The transport shared by the whole process, configured from {@link Config}.
+     */
+    public static SpotifyTransport shared() {
+        SpotifyTransport transport = shared;
+        if (transport == null) {
+            synchronized (SpotifyTransport.class) {
+                transport = shared;
+                if (transport == null) {
+                    transport = new SpotifyTransport(
+                            Config.getSpotifyMaxRequestsPerToken(),
+                            Duration.ofSeconds(Config.getSpotifyHttpTimeoutSeconds()));
+                    shared = transport;
+                }
+            }
+        }
+        return transport;
+    }
+
+    /**
+     * A {@link SpotifyApi} builder that sends its requests through this transport.
+     */
+    public SpotifyApi.Builder apiBuilder() {
+        return new SpotifyApi.Builder().setHttpManager(this);
+    }
+
+    // =========================================================================
+    // IHttpManager
+    // =========================================================================
+
+    @Override
+    public String get(URI uri, Header[] headers) throws IOException, SpotifyWebApiException {
+        return execute("GET", uri, headers, null);
+    }
+
+    @Override
+    public String post(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException {
+        return execute("POST", uri, headers, body);
+    }
+
+    @Override
+    public String put(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException {
+        return execute("PUT", uri, headers, body);
+    }
+
+    @Override
+    public String delete(URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException {
+        return execute("DELETE", uri, headers, body);
+    }
+
+    /**
+     * Request counters, rate limiting and latency for health reporting.
+     */
+    public Map<String, Object> stats() {
+        long count = requests.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", count);
+        stats.put("inFlight", inFlight.get());
+        stats.put("errorResponses", errorResponses.get());
+        stats.put("ioErrors", ioErrors.get());
+        stats.put("rateLimited", rateLimited.get());
+        stats.put("retries", retries.get());
+        stats.put("http2Responses", http2Responses.get());
+        stats.put("avgLatencyMs", count == 0 ? 0 : totalLatencyMillis.get() / count);
+        stats.put("activeTokens", tokens.size());
+        stats.put("throttledTokens", tokens.values().stream().filter(TokenState::isThrottled).count());
+        return stats;
+    }
+
+    /**
+     * Current concurrency budget of {@code authorization}'s token, or -1 if it is not tracked.
+     */
+    int budgetFor(String authorization) {
+        TokenState state = tokens.get(authorization);
+        return state == null ? -1 : state.budget();
+    }
+
+    // =========================================================================
+    // Request execution
+    // =========================================================================
+
+    private String execute(String method, URI uri, Header[] headers, HttpEntity body) throws IOException, SpotifyWebApiException {
+        HttpRequest request = buildRequest(method, uri, headers, body);
+        TokenState token = acquireToken(request.headers().firstValue("Authorization").orElse(""));
+        try {
+            for (int attempt = 0; ; attempt++) {
+                HttpResponse<String> response = send(token, request);
+                if (response.statusCode() != 429) {
+                    if (response.statusCode() / 100 == 2) {
+                        token.onSuccess();
+                    }
+                    return readBody(response);
+                }
+                rateLimited.incrementAndGet();
+                int retryAfterSeconds = Math.max(1, (int) response.headers().firstValueAsLong("Retry-After").orElse(1));
+                token.onRateLimited(retryAfterSeconds * 1000L);
+                if (attempt >= MAX_RATE_LIMIT_RETRIES || retryAfterSeconds > MAX_RETRY_AFTER_SECONDS) {
+                    throw new TooManyRequestsException(errorMessage(response), retryAfterSeconds);
+                }
+                log.debug("Spotify rate limited {} {}; retrying in {}s", method, uri.getPath(), retryAfterSeconds);
+                retries.incrementAndGet();
+            }
+        } finally {
+            releaseToken(token);
+        }
+    }
+
+    private HttpResponse<String> send(TokenState token, HttpRequest request) throws IOException, SpotifyWebApiException {
+        long pausedMillis = token.remainingPauseMillis();
+        if (pausedMillis > MAX_RETRY_AFTER_SECONDS * 1000L) {
+            throw new TooManyRequestsException("Spotify rate limit pause in effect",
+                    (int) Math.ceil(pausedMillis / 1000.0));
+        }
+        try {
+            token.awaitPause();
+            token.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a Spotify request slot");
+        }
+        inFlight.incrementAndGet();
+        long started = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if (response.version() == HttpClient.Version.HTTP_2) {
+                http2Responses.incrementAndGet();
+            }
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ioErrors.incrementAndGet();
+            throw new InterruptedIOException("Interrupted during Spotify request");
+        } catch (IOException e) {
+            ioErrors.incrementAndGet();
+            throw e;
+        } finally {
+            requests.incrementAndGet();
+            totalLatencyMillis.addAndGet((System.nanoTime() - started) / 1_000_000);
+            inFlight.decrementAndGet();
+            token.release();
+        }
+    }
+
+    private HttpRequest buildRequest(String method, URI uri, Header[] headers, HttpEntity body) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(requestTimeout);
+        boolean hasContentType = false;
+        if (headers != null) {
+            for (Header header : headers) {
+                String name = header.getName();
+                if (RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+                    continue;
+                }
+                hasContentType |= name.equalsIgnoreCase("Content-Type");
+                builder.header(name, header.getValue());
+            }
+        }
+        if (body == null) {
+            return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        }
+        if (!hasContentType && body.getContentType() != null) {
+            builder.header("Content-Type", body.getContentType());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        body.writeTo(bytes);
+        return builder.method(method, HttpRequest.BodyPublishers.ofByteArray(bytes.toByteArray())).build();
+    }
+
+    /**
+     * Returns the body of a successful response, or throws the exception the library's own
+     * transport would throw for the status code.
+     */
+    private String readBody(HttpResponse<String> response) throws SpotifyWebApiException {
+        int status = response.statusCode();
+        if (status >= 400) {
+            errorResponses.incrementAndGet();
+        }
+        switch (status) {
+            case 400 -> throw new BadRequestException(errorMessage(response));
+            case 401 -> throw new UnauthorizedException(errorMessage(response));
+            case 403 -> throw new ForbiddenException(errorMessage(response));
+            case 404 -> throw new NotFoundException(errorMessage(response));
+            case 500 -> throw new InternalServerErrorException(errorMessage(response));
+            case 502 -> throw new BadGatewayException(errorMessage(response));
+            case 503 -> throw new ServiceUnavailableException(errorMessage(response));
+            default -> {
+                String body = response.body();
+                return body == null || body.isEmpty() ? null : body;
+            }
+        }
+    }
+
+    private static String errorMessage(HttpResponse<String> response) {
+        String body = response.body();
+        if (body != null && !body.isBlank()) {
+            try {
+                JsonNode json = MAPPER.readTree(body);
+                if (json.hasNonNull("error_description")) {
+                    return json.get("error_description").asText();
+                }
+                if (json.path("error").hasNonNull("message")) {
+                    return json.path("error").get("message").asText();
+                }
+            } catch (IOException ignored) {
+                // Not JSON; fall back to the status code
+            }
+        }
+        return "HTTP " + response.statusCode();
+    }
+
+    // =========================================================================
+    // Per-token state
+    // =========================================================================
+
+    private TokenState acquireToken(String credentials) {
+        return tokens.compute(credentials, (key, existing) -> {
+            TokenState state = existing != null ? existing : new TokenState(key, requestsPerToken);
+            state.users++;
+            return state;
+        });
+    }
+
+    private void releaseToken(TokenState state) {
+        // Paused or throttled tokens are kept, so the next request with them still waits out the
+        // Retry-After and starts from the reduced budget.
+        tokens.computeIfPresent(state.credentials, (key, existing) ->
+                --existing.users == 0 && !existing.isPaused() && !existing.isThrottled() ? null : existing);
+    }
+
+    /**
+     * Drops tokens with no request in flight whose pause is over, including throttled ones.
+     */
+    void sweepIdleTokens() {
+        for (String key : tokens.keySet()) {
+            tokens.computeIfPresent(key, (k, existing) -> existing.users == 0 && !existing.isPaused() ? null : existing);
+        }
+    }
+
+    private static void sweepAll() {
+        List<SpotifyTransport> transports;
+        synchronized (OPEN_TRANSPORTS) {
+            transports = new ArrayList<>(OPEN_TRANSPORTS);
+        }
+        for (SpotifyTransport transport : transports) {
+            try {
+                transport.sweepIdleTokens();
+            } catch (RuntimeException e) {
+                log.warn("Spotify token sweep failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adaptive concurrency budget and rate-limit pause shared by all requests with the same
+     * credentials.
+     */
+    private static final class TokenState {
+        private final String credentials;
+        private final int maxBudget;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition slotFreed = lock.newCondition();
+        private final AtomicLong pausedUntilMillis = new AtomicLong();
+        private int budget;
+        private int running;
+        private int successesSinceChange;
+        private int users;
+
+        private TokenState(String credentials, int maxBudget) {
+            this.credentials = credentials;
+            this.maxBudget = maxBudget;
+            this.budget = maxBudget;
+        }
+
+        void acquire() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                while (running >= budget) {
+                    slotFreed.await();
+                }
+                running++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                running--;
+                slotFreed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onSuccess() {
+            lock.lock();
+            try {
+                if (budget < maxBudget && ++successesSinceChange >= budget) {
+                    budget++;
+                    successesSinceChange = 0;
+                    slotFreed.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onRateLimited(long retryAfterMillis) {
+            long now = System.currentTimeMillis();
+            lock.lock();
+            try {
+                // Concurrent requests hitting the same limit are one signal, not several.
+                if (pausedUntilMillis.get() <= now) {
+                    budget = Math.max(1, budget / 2);
+                    successesSinceChange = 0;
+                }
+                pausedUntilMillis.accumulateAndGet(now + retryAfterMillis, Math::max);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int budget() {
+            lock.lock();
+            try {
+                return budget;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isThrottled() {
+            lock.lock();
+            try {
+                return budget < maxBudget;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isPaused() {
+            return remainingPauseMillis() > 0;
+        }
+
+        long remainingPauseMillis() {
+            return Math.max(0L, pausedUntilMillis.get() - System.currentTimeMillis());
+        }
+
+        void awaitPause() throws InterruptedException {
+            long wait = pausedUntilMillis.get() - System.currentTimeMillis();
+            if (wait <= 0) {
+                return;
+            }
+            while (wait > 0) {
+                Thread.sleep(wait);
+                wait = pausedUntilMillis.get() - System.currentTimeMillis();
+            }
+            Thread.sleep(ThreadLocalRandom.current().nextLong(MAX_JITTER_MILLIS + 1));
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.net.URI;
@@ -14,6 +15,7 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,12 +28,15 @@ class ApiServerIntegrationTest {
             .connectTimeout(Duration.ofSeconds(5))
             .build();
 
+    @TempDir
+    static Path cacheDir;
+
     private com.sun.net.httpserver.HttpServer server;
     private int port;
 
     @BeforeAll
     void startServer() throws Exception {
-        server = Server.ApiServer.start(0);
+        server = Server.ApiServer.start(0, cacheDir);
         port = server.getAddress().getPort();
         assertTrue(port > 0);
         // Give server time to start accepting connections
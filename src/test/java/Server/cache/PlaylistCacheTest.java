@@ -2,9 +2,15 @@ package Server.cache;
 
 import Server.PlaylistData;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -14,13 +20,31 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 class PlaylistCacheTest {
 
+    @TempDir
+    Path snapshotDir;
+
+    private final List<PlaylistCache> caches = new ArrayList<>();
     private PlaylistCache cache;
     private ObjectMapper mapper;
 
     @BeforeEach
     void setUp() {
         mapper = new ObjectMapper();
-        cache = new PlaylistCache(mapper);
+        cache = newCache(100, Duration.ofMinutes(5), Duration.ofMinutes(5));
+    }
+
+    /** Lets queued snapshot writes finish before the temporary directory is deleted. */
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (PlaylistCache created : caches) {
+            created.flushSnapshots();
+        }
+    }
+
+    private PlaylistCache newCache(int maxEntries, Duration ttl, Duration staleGrace) {
+        PlaylistCache created = new PlaylistCache(mapper, snapshotDir, 64L * 1024 * 1024, maxEntries, ttl, staleGrace);
+        caches.add(created);
+        return created;
     }
 
     @Test
@@ -76,8 +100,8 @@ class PlaylistCacheTest {
     }
 
     @Test
-    @DisplayName("invalidateForAuthChange clears all entries")
-    void invalidateForAuthChangeClearsAllEntries() {
+    @DisplayName("invalidateUser clears that user's entries")
+    void invalidateUserClearsThatUsersEntries() {
         PlaylistCacheKey key1 = new PlaylistCacheKey("playlist1", "user1", 0, 20);
         PlaylistCacheKey key2 = new PlaylistCacheKey("playlist2", "user1", 0, 20);
         PlaylistData data = new PlaylistData("Test", null, null, List.of(), 0, 0, 0, false);
@@ -85,25 +109,117 @@ class PlaylistCacheTest {
         cache.store(key1, data);
         cache.store(key2, data);
 
-        // Simulate auth change
-        cache.invalidateForAuthChange("new-user-signature");
+        // Simulate login/logout of user1
+        cache.invalidateUser("user1");
 
         assertNull(cache.lookup(key1), "Should be cleared after auth change");
         assertNull(cache.lookup(key2), "Should be cleared after auth change");
     }
 
     @Test
-    @DisplayName("same auth signature does not clear cache")
-    void sameAuthSignatureDoesNotClearCache() {
-        PlaylistCacheKey key = new PlaylistCacheKey("same-auth-test", "user1", 0, 20);
+    @DisplayName("invalidating one user keeps other users' entries")
+    void invalidateUserKeepsOtherUsers() throws Exception {
+        PlaylistCacheKey other = new PlaylistCacheKey("other-user-test", "user2", 0, 20);
+        PlaylistCacheKey own = new PlaylistCacheKey("other-user-test", "user3", 0, 20);
         PlaylistData data = new PlaylistData("Test", null, null, List.of(), 0, 0, 0, false);
 
-        cache.invalidateForAuthChange("same-signature");
-        cache.store(key, data);
+        cache.store(other, data);
+        cache.store(own, data);
+        cache.invalidateUser("user3");
+
+        assertNotNull(cache.lookup(other), "Another user's login must not clear this entry");
+        assertNull(cache.lookup(own));
+
+        // Snapshots are scoped too: a fresh instance (e.g. after restart) still sees user2's page.
+        cache.flushSnapshots();
+        PlaylistCache restarted = newCache(100, Duration.ofMinutes(5), Duration.ofMinutes(5));
+        assertNotNull(restarted.lookup(other));
+        assertNull(restarted.lookup(own));
+    }
 
-        // Same signature should not clear
-        cache.invalidateForAuthChange("same-signature");
+    @Test
+    @DisplayName("memory tier is bounded and reports statistics")
+    void memoryTierIsBoundedAndReportsStats() {
+        PlaylistCache bounded = newCache(3, Duration.ofMinutes(5), Duration.ofMinutes(5));
+        PlaylistData data = new PlaylistData("Test", null, null, List.of(), 0, 0, 0, false);
+        for (int i = 0; i < 10; i++) {
+            bounded.store(new PlaylistCacheKey("bounded-" + i, "user1", 0, 20), data);
+        }
+        bounded.lookup(new PlaylistCacheKey("bounded-9", "user1", 0, 20));
+
+        assertTrue((int) bounded.stats().get("entries") <= 3);
+        assertTrue((long) bounded.stats().get("evictions") >= 7);
+        assertTrue((long) bounded.stats().get("hits") >= 1);
+    }
+
+    @Test
+    @DisplayName("shared entries are user independent and survive user invalidation")
+    void sharedEntriesSurviveUserInvalidation() {
+        PlaylistCacheKey shared = PlaylistCacheKey.shared("public-playlist", 0, 20);
+        PlaylistData data = new PlaylistData("Public", null, null, List.of(), 0, 0, 0, false);
+
+        cache.store(shared, data);
+        cache.invalidateUser("user1");
+        cache.invalidateUser("");
+
+        assertTrue(shared.isShared());
+        assertEquals(shared, PlaylistCacheKey.shared("public-playlist", 0, 20));
+        assertNotNull(cache.lookup(shared));
+    }
 
-        assertNotNull(cache.lookup(key), "Should still have data with same auth signature");
+    @Test
+    @DisplayName("expired entries with a snapshot id can be revalidated")
+    void expiredEntriesWithSnapshotIdCanBeRevalidated() throws Exception {
+        PlaylistCache shortLived = newCache(100, Duration.ofMillis(300), Duration.ZERO);
+        PlaylistCacheKey withSnapshot = new PlaylistCacheKey("revalidate-test", "user1", 0, 20);
+        PlaylistCacheKey withoutSnapshot = new PlaylistCacheKey("no-snapshot-test", "user1", 0, 20);
+        PlaylistData data = new PlaylistData("Stable", null, null, List.of(), 0, 0, 0, false);
+
+        shortLived.store(withSnapshot, data, "snap-1");
+        shortLived.store(withoutSnapshot, data);
+        Thread.sleep(350);
+
+        assertNull(shortLived.lookup(withSnapshot), "Expired data is not served as fresh");
+        assertNull(shortLived.lookupEntry(withoutSnapshot), "Nothing to revalidate without a snapshot id");
+        PlaylistCacheEntry stale = shortLived.lookupEntry(withSnapshot);
+        assertNotNull(stale);
+        assertTrue(stale.isExpired(System.currentTimeMillis()));
+        assertEquals("snap-1", stale.snapshotId());
+
+        PlaylistCacheEntry refreshed = shortLived.revalidate(withSnapshot, stale);
+        assertNotNull(shortLived.lookup(withSnapshot));
+        assertNotNull(refreshed.encoded(), "Cached pages carry their encoded response");
+        assertEquals(stale.encoded().etag(), refreshed.encoded().etag(), "Unchanged data keeps its ETag");
+    }
+
+    @Test
+    @DisplayName("stale entries are served within the grace window with one background refresh")
+    void staleEntriesAreServedWithinGraceWithSingleRefresh() throws Exception {
+        PlaylistCache swr = newCache(100, Duration.ofMillis(100), Duration.ofMinutes(5));
+        PlaylistCacheKey key = new PlaylistCacheKey("swr-test", "user1", 0, 20);
+        swr.store(key, new PlaylistData("Old", null, null, List.of(), 0, 0, 0, false));
+        Thread.sleep(150);
+
+        PlaylistCacheEntry stale = swr.lookupEntry(key);
+        assertNotNull(stale);
+        assertTrue(stale.isExpired(System.currentTimeMillis()));
+        assertTrue(swr.isWithinStaleGrace(stale, System.currentTimeMillis()));
+
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        assertTrue(swr.refreshInBackground(key, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            swr.store(key, new PlaylistData("New", null, null, List.of(), 0, 0, 0, false));
+        }));
+        assertFalse(swr.refreshInBackground(key, () -> fail("Only one refresh per key")));
+        release.countDown();
+
+        for (int i = 0; i < 100 && swr.lookup(key) == null; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals("New", swr.lookup(key).getPlaylistName());
     }
 }
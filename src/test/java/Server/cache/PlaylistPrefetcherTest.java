@@ -0,0 +1,109 @@
+package Server.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaylistPrefetcherTest {
+
+    private final List<String> stored = new CopyOnWriteArrayList<>();
+
+    private static PlaylistCacheKey key(String playlistId, int offset) {
+        return new PlaylistCacheKey(playlistId, "session", offset, 50);
+    }
+
+    /** A load that blocks until {@code release} opens and reports interruption as "interrupted". */
+    private static Supplier<String> blockingLoad(CountDownLatch release, String result) {
+        return () -> {
+            try {
+                release.await();
+                return result;
+            } catch (InterruptedException e) {
+                return "interrupted";
+            }
+        };
+    }
+
+    private static void releaseLater(CountDownLatch release) {
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            release.countDown();
+        });
+    }
+
+    @Test
+    @DisplayName("skips prefetches beyond the owner's budget and duplicates of a running one")
+    void boundsPrefetchesPerOwner() {
+        PlaylistPrefetcher prefetcher = new PlaylistPrefetcher(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertTrue(prefetcher.prefetch("alice", key("p", 50), blockingLoad(release, "a"), stored::add));
+        assertFalse(prefetcher.prefetch("alice", key("p", 50), blockingLoad(release, "dup"), stored::add));
+        assertTrue(prefetcher.prefetch("alice", key("q", 50), blockingLoad(release, "b"), stored::add));
+        assertFalse(prefetcher.prefetch("alice", key("r", 50), blockingLoad(release, "c"), stored::add));
+        assertTrue(prefetcher.prefetch("bob", key("r", 50), blockingLoad(release, "d"), stored::add),
+                "Budgets are per owner");
+        release.countDown();
+
+        assertEquals(1L, prefetcher.snapshot().get("skipped"));
+        assertEquals(3L, prefetcher.snapshot().get("started"));
+    }
+
+    @Test
+    @DisplayName("a request for a page being prefetched waits for it and finds it stored")
+    void awaitJoinsRunningPrefetch() {
+        PlaylistPrefetcher prefetcher = new PlaylistPrefetcher(2);
+        CountDownLatch release = new CountDownLatch(1);
+        prefetcher.prefetch("alice", key("p", 50), blockingLoad(release, "page"), stored::add);
+
+        releaseLater(release);
+
+        assertTrue(prefetcher.await(key("p", 50), Duration.ofSeconds(5)));
+        assertEquals(List.of("page"), stored);
+        assertFalse(prefetcher.await(key("p", 100), Duration.ofSeconds(5)), "Nothing to join");
+        assertEquals(1L, prefetcher.snapshot().get("joined"));
+    }
+
+    @Test
+    @DisplayName("cancelling interrupts the load, stores nothing and frees the budget")
+    void cancelStopsOtherPlaylists() throws Exception {
+        PlaylistPrefetcher prefetcher = new PlaylistPrefetcher(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        prefetcher.prefetch("alice", key("old", 50), () -> {
+            loading.countDown();
+            try {
+                release.await();
+                return "old";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                return "interrupted";
+            }
+        }, stored::add);
+        prefetcher.prefetch("alice", key("current", 50), blockingLoad(release, "current"), stored::add);
+
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        assertEquals(1, prefetcher.cancel("alice", "current"));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "The cancelled load was interrupted");
+        assertTrue(prefetcher.prefetch("alice", key("other", 50), blockingLoad(release, "other"), stored::add),
+                "The cancelled prefetch no longer counts against the budget");
+
+        releaseLater(release);
+        prefetcher.await(key("current", 50), Duration.ofSeconds(5));
+        prefetcher.await(key("other", 50), Duration.ofSeconds(5));
+        assertEquals(List.of("current", "other"), stored.stream().sorted().toList());
+        assertEquals(1L, prefetcher.snapshot().get("cancelled"));
+    }
+}
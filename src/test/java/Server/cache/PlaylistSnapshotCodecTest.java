@@ -0,0 +1,67 @@
+package Server.cache;
+
+import Server.PlaylistData;
+import Server.TrackData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaylistSnapshotCodecTest {
+
+    private static PlaylistCacheSnapshot sample(String snapshotId) {
+        List<TrackData> tracks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tracks.add(new TrackData("id" + i, "Track " + i, "Same Artist", "Same Album", i % 2 == 0 ? 1999 : null,
+                    "https://open.spotify.com/album/x", null, null, "https://i.scdn.co/image/cover"));
+        }
+        PlaylistData data = new PlaylistData("Mix", null, "https://open.spotify.com/playlist/mix", tracks, 120, 20, 40, true);
+        return new PlaylistCacheSnapshot(data, 1_700_000_000_000L, snapshotId);
+    }
+
+    @Test
+    @DisplayName("snapshots round-trip and share repeated strings")
+    void roundTrips() throws IOException {
+        byte[] encoded = PlaylistSnapshotCodec.encode(sample("snap-1"));
+        PlaylistCacheSnapshot decoded = PlaylistSnapshotCodec.decode(ByteBuffer.wrap(encoded));
+
+        assertEquals(1_700_000_000_000L, decoded.expiresAtMillis());
+        assertEquals("snap-1", decoded.snapshotId());
+        PlaylistData data = decoded.playlistData();
+        assertEquals("Mix", data.getPlaylistName());
+        assertNull(data.getPlaylistCoverUrl());
+        assertEquals(120, data.getTotalTracks());
+        assertEquals(20, data.getOffset());
+        assertEquals(40, data.getNextOffset());
+        assertTrue(data.isHasMore());
+        assertEquals(20, data.getTracks().size());
+        TrackData second = data.getTracks().get(1);
+        assertEquals("Track 1", second.getTrackName());
+        assertEquals("Same Artist", second.getArtist());
+        assertNull(second.getReleaseYear());
+        assertEquals(1999, data.getTracks().get(0).getReleaseYear());
+        assertNull(second.getBarcode());
+
+        // 20 tracks x 9 fields as ints plus each repeated string once.
+        assertTrue(encoded.length < 1500, "Repeated values are stored once, size was " + encoded.length);
+    }
+
+    @Test
+    @DisplayName("header carries expiry and snapshot-id flag; corrupt bodies are rejected")
+    void headerAndChecksum() throws IOException {
+        byte[] encoded = PlaylistSnapshotCodec.encode(sample(null));
+        PlaylistSnapshotCodec.Header header = PlaylistSnapshotCodec.readHeader(ByteBuffer.wrap(encoded, 0, PlaylistSnapshotCodec.HEADER_BYTES));
+        assertEquals(1_700_000_000_000L, header.expiresAtMillis());
+        assertFalse(header.hasSnapshotId());
+        assertEquals(encoded.length, header.fileLength());
+
+        encoded[encoded.length - 3] ^= 0x5a;
+        assertThrows(IOException.class, () -> PlaylistSnapshotCodec.decode(ByteBuffer.wrap(encoded)));
+        assertThrows(IOException.class, () -> PlaylistSnapshotCodec.readHeader(ByteBuffer.wrap("{\"json\":true}".getBytes())));
+    }
+}
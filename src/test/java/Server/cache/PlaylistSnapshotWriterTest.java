@@ -0,0 +1,77 @@
+package Server.cache;
+
+import Server.PlaylistData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlaylistSnapshotWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private static PlaylistCacheSnapshot snapshot(String name) {
+        return new PlaylistCacheSnapshot(new PlaylistData(name, null, null, List.of(), 0, 0, 0, false), Long.MAX_VALUE, null);
+    }
+
+    private void runQueued() {
+        List<Runnable> queued = new ArrayList<>(tasks);
+        tasks.clear();
+        queued.forEach(Runnable::run);
+    }
+
+    @Test
+    @DisplayName("repeated writes to one file are coalesced and visible until applied")
+    void coalescesRepeatedWrites() throws Exception {
+        PlaylistSnapshotWriter writer = new PlaylistSnapshotWriter(10, tasks::add);
+        Path path = dir.resolve("a.json");
+
+        writer.write(path, snapshot("first"));
+        writer.write(path, snapshot("second"));
+
+        assertEquals(1, tasks.size(), "One drain is scheduled for the whole batch");
+        assertFalse(Files.exists(path));
+        PlaylistSnapshotWriter.Write pending = assertInstanceOf(PlaylistSnapshotWriter.Write.class, writer.pending(path));
+        assertEquals("second", pending.snapshot().playlistData().getPlaylistName());
+
+        runQueued();
+        assertNull(writer.pending(path));
+        PlaylistCacheSnapshot onDisk = PlaylistSnapshotCodec.decode(ByteBuffer.wrap(Files.readAllBytes(path)));
+        assertEquals("second", onDisk.playlistData().getPlaylistName());
+        assertEquals(1L, writer.snapshot().get("written"));
+        assertEquals(1L, writer.snapshot().get("coalesced"));
+    }
+
+    @Test
+    @DisplayName("writes are dropped when the queue is full, but deletes and purges are not")
+    void dropsWritesUnderPressure() throws Exception {
+        PlaylistSnapshotWriter writer = new PlaylistSnapshotWriter(2, tasks::add);
+        Files.writeString(dir.resolve("user1-old.json"), "{}");
+
+        assertTrue(writer.write(dir.resolve("user1-a.json"), snapshot("a")));
+        assertTrue(writer.write(dir.resolve("user2-b.json"), snapshot("b")));
+        assertFalse(writer.write(dir.resolve("user2-c.json"), snapshot("c")));
+        assertTrue(writer.write(dir.resolve("user2-b.json"), snapshot("b2")), "Replacing a queued write needs no extra room");
+
+        writer.purge(dir, "user1-");
+        assertInstanceOf(PlaylistSnapshotWriter.Purge.class, writer.pending(dir.resolve("user1-a.json")));
+        assertInstanceOf(PlaylistSnapshotWriter.Purge.class, writer.pending(dir.resolve("user1-old.json")));
+
+        runQueued();
+        assertFalse(Files.exists(dir.resolve("user1-a.json")));
+        assertFalse(Files.exists(dir.resolve("user1-old.json")));
+        assertFalse(Files.exists(dir.resolve("user2-c.json")));
+        assertTrue(Files.exists(dir.resolve("user2-b.json")));
+        assertEquals(1L, writer.snapshot().get("dropped"));
+    }
+}
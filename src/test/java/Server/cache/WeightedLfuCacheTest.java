@@ -0,0 +1,69 @@
+package Server.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedLfuCacheTest {
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    @Test
+    void staysWithinWeightAndEntryBounds() {
+        WeightedLfuCache<String, String> cache = new WeightedLfuCache<>(1_000, 50);
+        for (int i = 0; i < 500; i++) {
+            cache.put("k" + i, "v" + i, 30, NEVER);
+            assertTrue(cache.weightedSize() <= 1_000);
+            assertTrue(cache.size() <= 50);
+        }
+        assertTrue((long) cache.snapshot().get("evictions") > 0);
+    }
+
+    @Test
+    void frequentlyUsedEntriesSurviveScan() {
+        WeightedLfuCache<String, String> cache = new WeightedLfuCache<>(100_000, 100);
+        for (int i = 0; i < 100; i++) {
+            cache.put("hot" + i, "v", 10, NEVER);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                cache.get("hot" + i, 0L);
+            }
+        }
+        // A one-off scan of cold keys must not flush the hot set.
+        for (int i = 0; i < 1_000; i++) {
+            cache.put("cold" + i, "v", 10, NEVER);
+        }
+        int hotLeft = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.get("hot" + i, 0L) != null) {
+                hotLeft++;
+            }
+        }
+        assertTrue(hotLeft >= 90, "hot entries kept: " + hotLeft);
+    }
+
+    @Test
+    void expiresOnAccessAndOnSweep() {
+        WeightedLfuCache<String, String> cache = new WeightedLfuCache<>(1_000, 10);
+        cache.put("a", "1", 1, 100L);
+        cache.put("b", "2", 1, 100L);
+        cache.put("c", "3", 1, 1_000L);
+
+        assertNull(cache.get("a", 100L));
+        assertEquals(1, cache.sweepExpired(500L));
+        assertEquals("3", cache.get("c", 500L));
+        assertEquals(1, cache.size());
+        assertEquals(1L, cache.snapshot().get("hits"));
+        assertEquals(1L, cache.snapshot().get("misses"));
+        assertEquals(2L, cache.snapshot().get("expirations"));
+    }
+
+    @Test
+    void rejectsEntriesHeavierThanTheCache() {
+        WeightedLfuCache<String, String> cache = new WeightedLfuCache<>(100, 10);
+        cache.put("big", "v", 101, NEVER);
+        assertNull(cache.get("big", 0L));
+        assertEquals(0L, cache.weightedSize());
+    }
+}
@@ -50,6 +50,49 @@ class HttpUtilsTest {
         assertThrows(HttpUtils.RequestTooLargeException.class, () -> HttpUtils.readRequestBody(large, 4));
     }
 
+    @Test
+    void sendsPreEncodedJsonWithGzipAndConditionalRequests() throws Exception {
+        EncodedJson encoded = EncodedJson.of(HttpUtils.getMapper(), Map.of("text", "x".repeat(4096)));
+        assertNotNull(encoded.gzipBody());
+
+        FakeExchange plain = new FakeExchange("GET", URI.create("http://127.0.0.1/api/test"));
+        HttpUtils.sendJson(plain, 200, encoded);
+        assertEquals(200, plain.getResponseCode());
+        assertArrayEquals(encoded.body(), plain.responseBody.toByteArray());
+        assertEquals(encoded.etag(), plain.getResponseHeaders().getFirst("ETag"));
+
+        FakeExchange gzip = new FakeExchange("GET", URI.create("http://127.0.0.1/api/test"));
+        gzip.getRequestHeaders().add("Accept-Encoding", "br, gzip;q=0.8");
+        HttpUtils.sendJson(gzip, 200, encoded);
+        assertEquals("gzip", gzip.getResponseHeaders().getFirst("Content-Encoding"));
+        assertArrayEquals(encoded.gzipBody(), gzip.responseBody.toByteArray());
+
+        FakeExchange revalidation = new FakeExchange("GET", URI.create("http://127.0.0.1/api/test"));
+        revalidation.getRequestHeaders().add("Accept-Encoding", "gzip");
+        revalidation.getRequestHeaders().add("If-None-Match", gzip.getResponseHeaders().getFirst("ETag"));
+        HttpUtils.sendJson(revalidation, 200, encoded);
+        assertEquals(304, revalidation.getResponseCode());
+        assertEquals(0, revalidation.responseBody.size());
+    }
+
+    @Test
+    void streamsNdjsonEvents() throws Exception {
+        FakeExchange exchange = new FakeExchange("GET", URI.create("http://127.0.0.1/api/test"));
+        try (NdjsonWriter writer = new NdjsonWriter(exchange)) {
+            assertFalse(writer.isStarted());
+            writer.write("item", Map.of("n", 1));
+            writer.flush();
+            assertEquals("{\"type\":\"item\",\"data\":{\"n\":1}}\n", exchange.responseBody.toString(StandardCharsets.UTF_8));
+            writer.write("end", Map.of("done", true));
+        }
+
+        assertEquals(200, exchange.getResponseCode());
+        assertEquals("application/x-ndjson; charset=utf-8", exchange.getResponseHeaders().getFirst("Content-Type"));
+        String[] lines = exchange.responseBody.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("end", HttpUtils.getMapper().readTree(lines[1]).get("type").asText());
+    }
+
     private static final class FakeExchange extends HttpExchange {
         private final Headers requestHeaders = new Headers();
         private final Headers responseHeaders = new Headers();
@@ -0,0 +1,77 @@
+package Server.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestExecutorTest {
+
+    @Test
+    void parsesModeWithVirtualDefault() {
+        assertEquals(RequestExecutor.Mode.VIRTUAL, RequestExecutor.Mode.parse(null));
+        assertEquals(RequestExecutor.Mode.VIRTUAL, RequestExecutor.Mode.parse("bogus"));
+        assertEquals(RequestExecutor.Mode.PLATFORM, RequestExecutor.Mode.parse(" Platform "));
+    }
+
+    @Test
+    void capsConcurrencyAndReportsQueueDepth() throws Exception {
+        RequestExecutor executor = new RequestExecutor(RequestExecutor.Mode.VIRTUAL, 2, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        try {
+            for (int i = 0; i < 5; i++) {
+                executor.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        running.decrementAndGet();
+                        done.countDown();
+                    }
+                });
+            }
+
+            long deadline = System.currentTimeMillis() + 2000;
+            while ((executor.activeCount() < 2 || executor.queueDepth() < 3) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, executor.activeCount());
+            assertEquals(3, executor.queueDepth());
+
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertTrue(maxRunning.get() <= 2);
+
+            Map<String, Object> stats = executor.snapshot();
+            assertEquals("virtual", stats.get("mode"));
+            assertEquals(2, stats.get("maxConcurrent"));
+            assertTrue(((Integer) stats.get("peakQueued")) >= 3);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void platformModeRunsTasks() throws Exception {
+        RequestExecutor executor = new RequestExecutor(RequestExecutor.Mode.PLATFORM, 4, 2);
+        CountDownLatch done = new CountDownLatch(3);
+        try {
+            for (int i = 0; i < 3; i++) {
+                executor.execute(done::countDown);
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(RequestExecutor.Mode.PLATFORM, executor.mode());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -10,6 +10,7 @@ import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpExchange;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -17,11 +18,21 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class AuthRoutesTest {
 
+    @TempDir
+    Path snapshotDir;
+
+    private PlaylistCache playlistCache() {
+        return new PlaylistCache(new ObjectMapper(), snapshotDir, 64L * 1024 * 1024, 100,
+                Duration.ofMinutes(5), Duration.ofMinutes(5));
+    }
+
     @Test
     void getAccessTokenRefreshesAndPersistsSession() {
         RecordingSessionStore sessionStore = new RecordingSessionStore();
@@ -29,7 +40,7 @@ class AuthRoutesTest {
         sessionStore.session = session;
 
         TestSpotifyOAuthService oauthService = new TestSpotifyOAuthService();
-        AuthRoutes routes = new AuthRoutes(new PlaylistCache(new ObjectMapper()), sessionStore, oauthService);
+        AuthRoutes routes = new AuthRoutes(playlistCache(), sessionStore, oauthService);
 
         String token = routes.getAccessToken(new FakeExchange("GET", URI.create("http://127.0.0.1/api/auth/status")));
 
@@ -46,7 +57,7 @@ class AuthRoutesTest {
         sessionStore.session = session;
 
         TestSpotifyOAuthService oauthService = new TestSpotifyOAuthService();
-        AuthRoutes routes = new AuthRoutes(new PlaylistCache(new ObjectMapper()), sessionStore, oauthService);
+        AuthRoutes routes = new AuthRoutes(playlistCache(), sessionStore, oauthService);
 
         AuthRoutes.AccessTokenResolution resolution = routes.resolvePlaylistAccessToken(new FakeExchange("GET", URI.create("http://127.0.0.1/api/playlist")));
 
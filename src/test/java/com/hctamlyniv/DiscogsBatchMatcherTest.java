@@ -0,0 +1,94 @@
+package com.hctamlyniv;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscogsBatchMatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resolvesDistinctAlbumsOnceAndKeepsInputOrder() {
+        DiscogsService service = new DiscogsService(null, "VinylMatch/Test", tempDir);
+        DiscogsBatchMatcher matcher = new DiscogsBatchMatcher(2, new Semaphore(2));
+
+        List<DiscogsBatchMatcher.BatchResult> results = matcher.match(service, List.of(
+                new DiscogsBatchMatcher.BatchTrack("a", 0, "Daft Punk", "Discovery", 2001, "One More Time", null),
+                new DiscogsBatchMatcher.BatchTrack("b", 1, "AC/DC", "Back In Black", 1980, "Hells Bells", null),
+                new DiscogsBatchMatcher.BatchTrack("c", 2, "daft punk", " Discovery ", 2001, "Aerodynamic", null),
+                new DiscogsBatchMatcher.BatchTrack("d", 3, null, "Missing Artist", null, null, null)
+        ));
+
+        assertEquals(4, results.size());
+        assertEquals(List.of("a", "b", "c", "d"), results.stream().map(DiscogsBatchMatcher.BatchResult::key).toList());
+        assertEquals(List.of(0, 1, 2, 3), results.stream().map(DiscogsBatchMatcher.BatchResult::index).toList());
+
+        assertNotNull(results.get(0).url());
+        assertTrue(results.get(0).url().contains("discogs.com/search"));
+        assertFalse(results.get(0).cacheHit());
+        assertEquals(results.get(0).url(), results.get(2).url());
+        assertTrue(results.get(2).cacheHit(), "Repeated album in the same batch is served from the first lookup");
+        assertNotEquals(results.get(0).url(), results.get(1).url());
+
+        assertNull(results.get(3).url());
+        assertFalse(results.get(3).cacheHit());
+    }
+
+    @Test
+    void reportsCacheHitsFromPersistentCache() {
+        DiscogsService service = new DiscogsService(null, "VinylMatch/Test", tempDir);
+        String first = service.findAlbumUri("Daft Punk", "Discovery", 2001).orElse(null);
+        assertNotNull(first);
+
+        DiscogsBatchMatcher matcher = new DiscogsBatchMatcher(4, null);
+        List<DiscogsBatchMatcher.BatchResult> results = matcher.match(service, List.of(
+                new DiscogsBatchMatcher.BatchTrack(null, null, "Daft Punk", "Discovery", 2001, null, null)
+        ));
+
+        assertEquals(first, results.get(0).url());
+        assertTrue(results.get(0).cacheHit());
+    }
+
+    @Test
+    void streamingEmitsCachedAlbumsBeforeLookups() {
+        DiscogsService service = new DiscogsService(null, "VinylMatch/Test", tempDir);
+        String cachedUrl = service.findAlbumUri("AC/DC", "Back In Black", 1980).orElse(null);
+        assertNotNull(cachedUrl);
+
+        DiscogsBatchMatcher matcher = new DiscogsBatchMatcher(2, null);
+        List<Integer> positions = new ArrayList<>();
+        List<DiscogsBatchMatcher.BatchResult> emitted = new ArrayList<>();
+        matcher.matchStreaming(service, List.of(
+                new DiscogsBatchMatcher.BatchTrack("a", 0, "Daft Punk", "Discovery", 2001, null, null),
+                new DiscogsBatchMatcher.BatchTrack("b", 1, "AC/DC", "Back In Black", 1980, null, null),
+                new DiscogsBatchMatcher.BatchTrack("c", 2, "ac/dc", "back in black", 1980, null, null)
+        ), (position, result) -> {
+            positions.add(position);
+            emitted.add(result);
+        });
+
+        assertEquals(List.of(1, 2, 0), positions);
+        assertEquals(cachedUrl, emitted.get(0).url());
+        assertTrue(emitted.get(0).cacheHit());
+        assertTrue(emitted.get(1).cacheHit());
+        assertEquals("a", emitted.get(2).key());
+        assertFalse(emitted.get(2).cacheHit());
+    }
+
+    @Test
+    void buildLookupKeyNormalizesCaseAndWhitespace() {
+        assertEquals(
+                DiscogsBatchMatcher.buildLookupKey("Daft Punk", "Discovery", 2001, null),
+                DiscogsBatchMatcher.buildLookupKey(" daft punk ", "DISCOVERY", 2001, "")
+        );
+        assertNull(DiscogsBatchMatcher.buildLookupKey(" ", "Discovery", null, null));
+    }
+}
@@ -47,14 +47,14 @@ class DiscogsServiceNormalizationTest {
     @Test
     @DisplayName("Service can be instantiated with null token")
     void serviceCanBeInstantiatedWithNullToken() {
-        DiscogsService svc = new DiscogsService(null, null);
+        DiscogsService svc = new DiscogsService(null, null, tempDir);
         assertNotNull(svc);
     }
 
     @Test
     @DisplayName("Service can be instantiated with empty user agent")
     void serviceCanBeInstantiatedWithEmptyUserAgent() {
-        DiscogsService svc = new DiscogsService("test-token", "");
+        DiscogsService svc = new DiscogsService("test-token", "", tempDir);
         assertNotNull(svc);
     }
 
@@ -1,10 +1,12 @@
 package com.hctamlyniv;
 
+import com.hctamlyniv.discogs.DiscogsRequestScheduler;
 import com.hctamlyniv.discogs.model.CuratedLink;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Path;
+import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -61,6 +63,25 @@ class DiscogsServiceTest {
         assertEquals(first, second);
     }
 
+    @Test
+    void interactiveLookupDoesNotJoinLowerPriorityFlight() {
+        String background = DiscogsService.flightKey(true, "daft punk|discovery|2001", "1", DiscogsRequestScheduler.Priority.BACKGROUND);
+        String batch = DiscogsService.flightKey(true, "daft punk|discovery|2001", "1", DiscogsRequestScheduler.Priority.BATCH);
+        String interactive = DiscogsService.flightKey(true, "daft punk|discovery|2001", " 1 ", DiscogsRequestScheduler.Priority.INTERACTIVE);
+
+        assertNotEquals(background, interactive);
+        assertNotEquals(batch, interactive);
+        assertEquals(interactive, DiscogsService.flightKey(true, "daft punk|discovery|2001", "1", DiscogsRequestScheduler.Priority.INTERACTIVE),
+                "Same-priority lookups still coalesce");
+    }
+
+    @Test
+    void refreshesFallbacksWithinShortGraceWindows() {
+        assertEquals(Duration.ofHours(1).toMillis(), DiscogsService.fallbackRefreshAfterMillis(Duration.ofDays(1).toMillis()));
+        assertEquals(Duration.ofMinutes(15).toMillis(), DiscogsService.fallbackRefreshAfterMillis(Duration.ofMinutes(30).toMillis()),
+                "A grace shorter than an hour still leaves room for the background refresh");
+    }
+
     @Test
     void resolvesReleaseIdFromDiscogsUrlsWithoutToken() {
         DiscogsService service = new DiscogsService(null, "VinylMatch/Test", tempDir);
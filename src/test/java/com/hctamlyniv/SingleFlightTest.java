@@ -0,0 +1,49 @@
+package com.hctamlyniv;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneCall() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+
+        CompletableFuture<String> first = flight.execute("daft punk|discovery|2001", () -> {
+            started.incrementAndGet();
+            return pending;
+        });
+        CompletableFuture<String> second = flight.execute("daft punk|discovery|2001", () -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        assertEquals(1, flight.inFlightCount());
+
+        pending.complete("https://www.discogs.com/master/1");
+        assertEquals("https://www.discogs.com/master/1", first.join());
+        assertEquals("https://www.discogs.com/master/1", second.join());
+        assertEquals(1, started.get());
+        assertEquals(0, flight.inFlightCount());
+        assertEquals(1L, flight.snapshot().get("joins"));
+    }
+
+    @Test
+    void completedKeysStartFreshAndFailuresPropagate() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        assertEquals("a", flight.execute("k", () -> CompletableFuture.completedFuture("a")).join());
+        assertEquals("b", flight.execute("k", () -> CompletableFuture.completedFuture("b")).join());
+
+        CompletableFuture<String> failed = flight.execute("x", () -> {
+            throw new IllegalStateException("boom");
+        });
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, flight.inFlightCount());
+        assertEquals(3L, flight.snapshot().get("calls"));
+    }
+}
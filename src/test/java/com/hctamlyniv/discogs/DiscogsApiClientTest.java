@@ -9,6 +9,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.http.HttpClient;
 import java.lang.reflect.Method;
@@ -16,6 +17,8 @@ import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -109,6 +112,10 @@ class DiscogsApiClientTest {
         });
         server.createContext("/database/search", ex -> {
             String rawQuery = ex.getRequestURI().getRawQuery() == null ? "" : ex.getRequestURI().getRawQuery();
+            if (rawQuery.contains("barcode=truncated")) {
+                Json.respond(ex, 200, "{\"results\":[{\"uri\":");
+                return;
+            }
             if (rawQuery.contains("barcode=")) {
                 Json.respond(ex, 200, "{\"results\":[{\"uri\":\"/release/999-barcode\"}]}");
                 return;
@@ -194,6 +201,39 @@ class DiscogsApiClientTest {
         assertEquals("https://www.discogs.com/master/555", url.orElse(null));
     }
 
+    @Test
+    void asyncSearchesMatchBlockingResults() throws Exception {
+        assertEquals(client.searchByBarcode("123"), client.searchByBarcodeAsync("123").get(5, TimeUnit.SECONDS));
+        assertEquals(
+                client.searchOnce("Daft Punk", "Discovery", 2001, null, true),
+                client.searchOnceAsync("Daft Punk", "Discovery", 2001, null, true).get(5, TimeUnit.SECONDS)
+        );
+        assertEquals(
+                client.searchOnceQ("Daft Punk Discovery", 2001, "Daft Punk", "Discovery"),
+                client.searchOnceQAsync("Daft Punk Discovery", 2001, "Daft Punk", "Discovery").get(5, TimeUnit.SECONDS)
+        );
+        assertEquals(777, client.fetchMainReleaseIdAsync(123).get(5, TimeUnit.SECONDS).orElse(null));
+    }
+
+    @Test
+    void unparseableSuccessBodyIsTransient() {
+        IOException blocking = assertThrows(IOException.class, () -> client.searchByBarcode("truncated"));
+        assertTrue(hasTransientCause(blocking), blocking.toString());
+
+        ExecutionException async = assertThrows(ExecutionException.class,
+                () -> client.searchByBarcodeAsync("truncated").get(5, TimeUnit.SECONDS));
+        assertTrue(hasTransientCause(async), async.toString());
+    }
+
+    private static boolean hasTransientCause(Throwable throwable) {
+        for (Throwable current = throwable; current != null; current = current.getCause()) {
+            if ("discogs_transient_status:200".equals(current.getMessage())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Test
     void fetchWishlistParsesEntries() {
         WishlistResult wishlist = client.fetchWishlist("testuser", 1, 10);
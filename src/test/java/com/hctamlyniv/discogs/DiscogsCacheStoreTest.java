@@ -5,6 +5,7 @@ import com.hctamlyniv.discogs.model.CuratedLink;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -22,6 +23,7 @@ class DiscogsCacheStoreTest {
 
         String key = store.buildCacheKey("AC/DC", "Back In Black", 1980);
         store.rememberResult(key, "https://www.discogs.com/release/1-test", "123456");
+        store.flush();
 
         DiscogsCacheStore reloaded = new DiscogsCacheStore(tempDir, mapper);
         reloaded.load();
@@ -30,6 +32,59 @@ class DiscogsCacheStoreTest {
         assertEquals("https://www.discogs.com/release/1-test", reloaded.peekCachedUri(null, null, null, "123456").orElse(null));
     }
 
+    @Test
+    void writesBehindUntilThresholdIsReached() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        DiscogsCacheStore store = new DiscogsCacheStore(tempDir, mapper, 60_000L, 2);
+        store.load();
+
+        store.rememberResult(store.buildCacheKey("A", "One", null), "https://www.discogs.com/release/1-one", null);
+        assertEquals(1, store.pendingWrites());
+        assertFalse(Files.exists(tempDir.resolve("albums.json")), "Single entries are not written on the request thread");
+
+        store.rememberResult(store.buildCacheKey("B", "Two", null), "https://www.discogs.com/release/2-two", null);
+        for (int i = 0; i < 100 && store.pendingWrites() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, store.pendingWrites());
+        store.flush(); // waits for the background write to finish
+
+        DiscogsCacheStore reloaded = new DiscogsCacheStore(tempDir, mapper);
+        reloaded.load();
+        assertEquals("https://www.discogs.com/release/2-two", reloaded.peekCachedUri("B", "Two", null, null).orElse(null));
+        try (var files = Files.list(tempDir)) {
+            assertTrue(files.noneMatch(p -> p.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void importsLegacyAlbumsJsonOnce() throws Exception {
+        Files.writeString(tempDir.resolve("albums.json"),
+                "{\"entries\":{\"Air|Moon Safari|1998\":\"https://www.discogs.com/release/9-air\"},\"barcodes\":{\"724384497825\":\"https://www.discogs.com/release/9-air\"}}");
+        DiscogsCacheStore store = new DiscogsCacheStore(tempDir, new ObjectMapper());
+        store.load();
+
+        assertEquals("https://www.discogs.com/release/9-air", store.peekCachedUri("Air", "Moon Safari", 1998, null).orElse(null));
+        assertEquals("https://www.discogs.com/release/9-air", store.peekCachedUri(null, null, null, "724384497825").orElse(null));
+        assertFalse(Files.exists(tempDir.resolve("albums.json")));
+        assertTrue(Files.exists(tempDir.resolve("albums.json.migrated")));
+        assertEquals(0L, store.peekCachedMatch("Air", "Moon Safari", 1998, null).orElseThrow().storedAtMillis(),
+                "Imported entries have an unknown age, not the import time");
+    }
+
+    @Test
+    void reportsWhenMatchesWereStored() {
+        DiscogsCacheStore store = new DiscogsCacheStore(tempDir, new ObjectMapper());
+        store.load();
+        long before = System.currentTimeMillis();
+        store.rememberResult(store.buildCacheKey("Air", "Talkie Walkie", 2004), "https://www.discogs.com/search/?q=Air+Talkie+Walkie&type=all", null);
+
+        DiscogsCacheStore.CachedMatch match = store.peekCachedMatch("Air", "Talkie Walkie", 2004, null).orElseThrow();
+        assertEquals("https://www.discogs.com/search/?q=Air+Talkie+Walkie&type=all", match.url());
+        assertTrue(match.storedAtMillis() >= before);
+        assertEquals(match.url(), store.peekCachedUri("Air", "Talkie Walkie", 2004, null).orElse(null));
+    }
+
     @Test
     void persistsAndLoadsCuratedLinks() {
         ObjectMapper mapper = new ObjectMapper();
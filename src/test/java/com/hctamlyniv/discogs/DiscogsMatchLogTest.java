@@ -0,0 +1,100 @@
+package com.hctamlyniv.discogs;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscogsMatchLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void servesEntriesAcrossReopenAndIndexGrowth() throws Exception {
+        DiscogsMatchLog matchLog = new DiscogsMatchLog(tempDir, 64 * 1024);
+        for (int i = 0; i < 10_000; i++) {
+            matchLog.put("a:artist-" + i, "https://www.discogs.com/release/" + i);
+        }
+        assertEquals(10_000, matchLog.size());
+        assertEquals("https://www.discogs.com/release/42", matchLog.get("a:artist-42").orElse(null));
+        assertTrue(matchLog.get("a:missing").isEmpty());
+        matchLog.close();
+
+        DiscogsMatchLog reopened = new DiscogsMatchLog(tempDir, 64 * 1024);
+        assertEquals(10_000, reopened.size());
+        assertEquals("https://www.discogs.com/release/9999", reopened.get("a:artist-9999").orElse(null));
+        reopened.close();
+    }
+
+    @Test
+    void truncatesTornTailOnRecovery() throws Exception {
+        DiscogsMatchLog matchLog = new DiscogsMatchLog(tempDir, 1024 * 1024);
+        matchLog.put("b:123", "https://www.discogs.com/release/1");
+        matchLog.put("b:456", "https://www.discogs.com/release/2");
+        matchLog.force();
+        // Simulate a crash mid-append: no clean close, half a record at the end of the segment.
+        Path segment = tempDir.resolve("segment-00000001.log");
+        long goodLength = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3}));
+        }
+
+        DiscogsMatchLog recovered = new DiscogsMatchLog(tempDir, 1024 * 1024);
+        assertEquals(goodLength, Files.size(segment));
+        assertEquals("https://www.discogs.com/release/2", recovered.get("b:456").orElse(null));
+        recovered.put("b:789", "https://www.discogs.com/release/3");
+        assertEquals("https://www.discogs.com/release/3", recovered.get("b:789").orElse(null));
+        recovered.close();
+    }
+
+    @Test
+    void compactionDropsOverwrittenRecords() throws Exception {
+        DiscogsMatchLog matchLog = new DiscogsMatchLog(tempDir, 4 * 1024);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                matchLog.put("a:key-" + i, "https://www.discogs.com/release/" + round + "-" + i);
+            }
+        }
+        long before = (long) matchLog.snapshot().get("totalBytes");
+        assertTrue(matchLog.needsCompaction());
+        matchLog.compact();
+        long after = (long) matchLog.snapshot().get("totalBytes");
+        assertTrue(after < before / 4, "compaction should reclaim overwritten records: " + before + " -> " + after);
+        assertEquals("https://www.discogs.com/release/19-7", matchLog.get("a:key-7").orElse(null));
+        matchLog.close();
+
+        DiscogsMatchLog reopened = new DiscogsMatchLog(tempDir, 4 * 1024);
+        assertEquals(50, reopened.size());
+        assertEquals("https://www.discogs.com/release/19-49", reopened.get("a:key-49").orElse(null));
+        reopened.close();
+    }
+
+    @Test
+    void compactsOverwritesMadeBeforeCleanReopen() throws Exception {
+        DiscogsMatchLog matchLog = new DiscogsMatchLog(tempDir, 4 * 1024);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                matchLog.put("a:key-" + i, "https://www.discogs.com/release/" + round + "-" + i);
+            }
+        }
+        long liveBefore = (long) matchLog.snapshot().get("liveBytes");
+        matchLog.close();
+
+        DiscogsMatchLog reopened = new DiscogsMatchLog(tempDir, 4 * 1024);
+        assertEquals(liveBefore, reopened.snapshot().get("liveBytes"), "Live bytes survive a clean reopen");
+        assertTrue(reopened.needsCompaction(), "Dead space from before the restart is still reclaimable");
+        long before = (long) reopened.snapshot().get("totalBytes");
+        reopened.compact();
+        long after = (long) reopened.snapshot().get("totalBytes");
+        assertTrue(after < before / 4, "compaction should reclaim overwritten records: " + before + " -> " + after);
+        assertEquals("https://www.discogs.com/release/19-7", reopened.get("a:key-7").orElse(null));
+        reopened.close();
+    }
+}
@@ -0,0 +1,78 @@
+package com.hctamlyniv.discogs;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscogsRateLimiterTest {
+
+    @Test
+    void holdsCallsBackOnceBurstIsUsed() {
+        DiscogsRateLimiter limiter = new DiscogsRateLimiter(60, 600);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 60; i++) {
+            assertEquals(0L, limiter.availableIn("token-a", now));
+            limiter.take("token-a", now);
+        }
+        // 60/min -> one slot per second.
+        assertEquals(1000L, limiter.availableIn("token-a", now));
+        assertEquals(0L, limiter.availableIn("token-a", now + 1000L));
+        // Another credential has its own budget.
+        assertEquals(0L, limiter.availableIn("token-b", now));
+    }
+
+    @Test
+    void processBudgetIsSharedAcrossCredentials() {
+        DiscogsRateLimiter limiter = new DiscogsRateLimiter(60, 2);
+        long now = System.currentTimeMillis();
+        limiter.take("token-a", now);
+        limiter.take("token-b", now);
+        assertTrue(limiter.availableIn("token-c", now) > 0);
+    }
+
+    @Test
+    void followsRemainingHeaderAndBacksOffAfter429() {
+        DiscogsRateLimiter limiter = new DiscogsRateLimiter(60, 600);
+        limiter.observe("token-a", 200, headers(Map.of(
+                "X-Discogs-Ratelimit", "60",
+                "X-Discogs-Ratelimit-Remaining", "0"
+        )));
+        long now = System.currentTimeMillis();
+        assertTrue(limiter.availableIn("token-a", now) > 0, "Server-reported remaining budget caps local tokens");
+
+        DiscogsRateLimiter other = new DiscogsRateLimiter(60, 600);
+        other.observe("token-a", 429, headers(Map.of()));
+        assertTrue(other.availableIn("token-a", System.currentTimeMillis()) > 0);
+        assertEquals(1L, other.snapshot().get("rateLimitedResponses"));
+    }
+
+    @Test
+    void exhaustedTokenDoesNotHoldBackOtherTokens() {
+        DiscogsRateLimiter limiter = new DiscogsRateLimiter(60, 600);
+        limiter.observe("token-a", 200, headers(Map.of("X-Discogs-Ratelimit-Remaining", "0")));
+        limiter.observe("token-a", 429, headers(Map.of("Retry-After", "30")));
+
+        long now = System.currentTimeMillis();
+        assertTrue(limiter.availableIn("token-a", now) > 0);
+        assertEquals(0L, limiter.availableIn("token-b", now), "Token B keeps its own budget");
+        assertEquals(0L, limiter.availableIn(null, now), "Anonymous calls are not held back either");
+    }
+
+    @Test
+    void unauthenticated429PausesProcessBudget() {
+        DiscogsRateLimiter limiter = new DiscogsRateLimiter(60, 600);
+        limiter.observe(null, 429, headers(Map.of("Retry-After", "30")));
+
+        assertTrue(limiter.availableIn("token-b", System.currentTimeMillis()) > 0);
+    }
+
+    private static HttpHeaders headers(Map<String, String> values) {
+        Map<String, List<String>> map = new java.util.HashMap<>();
+        values.forEach((k, v) -> map.put(k, List.of(v)));
+        return HttpHeaders.of(map, (k, v) -> true);
+    }
+}
@@ -0,0 +1,65 @@
+package com.hctamlyniv.discogs;
+
+import com.hctamlyniv.discogs.DiscogsRequestScheduler.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscogsRequestSchedulerTest {
+
+    @Test
+    void interactiveCallOvertakesQueuedBatchWork() throws Exception {
+        DiscogsRateLimiter limiter = new DiscogsRateLimiter(600, 600);
+        DiscogsRequestScheduler scheduler = new DiscogsRequestScheduler(limiter);
+        // Pause the budget for a second so both calls have to queue.
+        limiter.observe("token", 429, HttpHeaders.of(Map.of("Retry-After", List.of("1")), (k, v) -> true));
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        Thread batch = Thread.ofVirtual().start(() -> grant(scheduler, Priority.BATCH, "session-a", order));
+        awaitQueued(scheduler, "batch");
+        Thread interactive = Thread.ofVirtual().start(() -> grant(scheduler, Priority.INTERACTIVE, "session-b", order));
+        awaitQueued(scheduler, "interactive");
+
+        batch.join(5_000);
+        interactive.join(5_000);
+
+        assertEquals(List.of("INTERACTIVE", "BATCH"), order);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> interactiveStats = (Map<String, Object>) scheduler.snapshot().get("interactive");
+        assertEquals(1L, interactiveStats.get("granted"));
+        assertTrue((Long) interactiveStats.get("maxQueueWaitMs") > 0L);
+    }
+
+    @Test
+    void grantsImmediatelyWhenBudgetIsAvailable() throws Exception {
+        DiscogsRequestScheduler scheduler = new DiscogsRequestScheduler(new DiscogsRateLimiter(60, 60));
+        long waited = scheduler.acquire("token", Priority.BACKGROUND, null);
+        assertTrue(waited < 500L);
+    }
+
+    private static void grant(DiscogsRequestScheduler scheduler, Priority priority, String session, List<String> order) {
+        try {
+            scheduler.acquire("token", priority, session);
+            order.add(priority.name());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void awaitQueued(DiscogsRequestScheduler scheduler, String priority) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            Map<String, Object> stats = (Map<String, Object>) scheduler.snapshot().get(priority);
+            if ((Integer) stats.get("queued") > 0) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        fail("call was never queued");
+    }
+}
@@ -0,0 +1,137 @@
+package com.hctamlyniv.spotify;
+
+import org.junit.jupiter.api.Test;
+import se.michaelthelin.spotify.SpotifyApi;
+import se.michaelthelin.spotify.model_objects.specification.Album;
+import se.michaelthelin.spotify.model_objects.specification.AlbumSimplified;
+import se.michaelthelin.spotify.model_objects.specification.PlaylistTrack;
+import se.michaelthelin.spotify.model_objects.specification.Track;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpotifyAlbumBatchLoaderTest {
+
+    private static class FakeLoader extends SpotifyAlbumBatchLoader {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+
+        final List<String> requested = Collections.synchronizedList(new ArrayList<>());
+
+        FakeLoader() {
+            this(new SpotifyAlbumCache(1_000, Duration.ofHours(1), false));
+        }
+
+        FakeLoader(SpotifyAlbumCache cache) {
+            super(new SpotifyApi.Builder().build(), cache);
+        }
+
+        @Override
+        protected Album[] fetchAlbums(String[] albumIds) throws Exception {
+            calls.incrementAndGet();
+            requested.addAll(Arrays.asList(albumIds));
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+                if (Arrays.asList(albumIds).contains("broken")) {
+                    throw new IllegalStateException("upstream error");
+                }
+                return Arrays.stream(albumIds).map(id -> new Album.Builder().setId(id).build()).toArray(Album[]::new);
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    private static List<PlaylistTrack> tracks(String... albumIds) {
+        List<PlaylistTrack> tracks = new ArrayList<>();
+        for (String albumId : albumIds) {
+            Track track = new Track.Builder().setAlbum(new AlbumSimplified.Builder().setId(albumId).build()).build();
+            tracks.add(new PlaylistTrack.Builder().setTrack(track).build());
+        }
+        return tracks;
+    }
+
+    private static String[] albumIds(String prefix, int count) {
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = prefix + i;
+        }
+        return ids;
+    }
+
+    @Test
+    void loadsBatchesConcurrentlyAsTracksArrive() throws Exception {
+        FakeLoader loader = new FakeLoader();
+        try (SpotifyAlbumBatchLoader.AlbumLoad load = loader.startLoad()) {
+            load.addTracks(tracks(albumIds("a", 40)));
+            // Full batches start right away, before the next page is added.
+            for (int i = 0; i < 100 && loader.calls.get() < 2; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, loader.calls.get());
+            load.addTracks(tracks(albumIds("a", 45)));
+            load.addTracks(tracks(albumIds("b", 30)));
+
+            SpotifyAlbumBatchLoader.AlbumDetailsResult result = load.finish();
+            assertEquals(75, result.albums().size());
+            assertEquals(0, result.failedBatches());
+        }
+        assertEquals(4, loader.calls.get(), "75 distinct albums need 4 batches of at most 20");
+        assertTrue(loader.maxActive.get() > 1);
+    }
+
+    @Test
+    void failedBatchDegradesOnlyThatBatch() {
+        FakeLoader loader = new FakeLoader();
+        List<String> ids = new ArrayList<>(Arrays.asList(albumIds("a", 20)));
+        ids.add("broken");
+        try (SpotifyAlbumBatchLoader.AlbumLoad load = loader.startLoad()) {
+            load.addTracks(tracks(ids.toArray(new String[0])));
+            SpotifyAlbumBatchLoader.AlbumDetailsResult result = load.finish();
+
+            assertEquals(1, result.failedBatches());
+            assertEquals(1, result.failedAlbums());
+            assertEquals(20, result.albums().size());
+        }
+        assertTrue((long) SpotifyAlbumBatchLoader.stats().get("failedBatches") >= 1);
+    }
+
+    @Test
+    void sharedCacheServesKnownAlbumsAcrossLoads() {
+        SpotifyAlbumCache cache = new SpotifyAlbumCache(1_000, Duration.ofHours(1), false);
+        new FakeLoader(cache).loadAlbumDetails(new LinkedHashSet<>(Arrays.asList(albumIds("a", 30))));
+
+        FakeLoader second = new FakeLoader(cache);
+        Map<String, SpotifyAlbumInfo> albums = second.loadAlbumDetails(new LinkedHashSet<>(Arrays.asList(albumIds("a", 35))));
+
+        assertEquals(35, albums.size());
+        assertEquals(List.of("a30", "a31", "a32", "a33", "a34"), second.requested, "Only missing ids go upstream");
+        assertEquals(30L, cache.stats().get("hits"));
+    }
+
+    @Test
+    void albumsForWaitsOnlyForThatPagesAlbums() {
+        FakeLoader loader = new FakeLoader();
+        try (SpotifyAlbumBatchLoader.AlbumLoad load = loader.startLoad()) {
+            load.addTracks(tracks(albumIds("a", 25)));
+
+            // The 5 ids short of a full batch are submitted right away instead of waiting.
+            Map<String, SpotifyAlbumInfo> page = load.albumsFor(tracks("a3", "a22", "a22")).join();
+
+            assertEquals(Set.of("a3", "a22"), page.keySet());
+            assertEquals(2, loader.calls.get());
+            assertEquals(25, load.finish().albums().size());
+        }
+    }
+}
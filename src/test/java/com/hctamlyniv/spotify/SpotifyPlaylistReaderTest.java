@@ -0,0 +1,168 @@
+package com.hctamlyniv.spotify;
+
+import org.junit.jupiter.api.Test;
+import se.michaelthelin.spotify.SpotifyApi;
+import se.michaelthelin.spotify.exceptions.detailed.TooManyRequestsException;
+import se.michaelthelin.spotify.model_objects.specification.Paging;
+import se.michaelthelin.spotify.model_objects.specification.PlaylistTrack;
+import se.michaelthelin.spotify.model_objects.specification.Track;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpotifyPlaylistReaderTest {
+
+    /**
+     * Serves a fake playlist of {@code total} tracks with ids "t0".."tN", slowly enough that
+     * concurrent page requests overlap.
+     */
+    private static class FakeReader extends SpotifyPlaylistReader {
+        final int total;
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+
+        FakeReader(String token, int total) {
+            super(new SpotifyApi.Builder().setAccessToken(token).build());
+            this.total = total;
+        }
+
+        @Override
+        public Paging<PlaylistTrack> getPlaylistItems(String playlistId, int offset, int limit) throws Exception {
+            calls.incrementAndGet();
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+                onRequest(offset);
+                int count = Math.max(0, Math.min(limit, total - offset));
+                PlaylistTrack[] items = new PlaylistTrack[count];
+                for (int i = 0; i < count; i++) {
+                    items[i] = new PlaylistTrack.Builder().setTrack(new Track.Builder().setId("t" + (offset + i)).build()).build();
+                }
+                return new Paging.Builder<PlaylistTrack>().setItems(items).setTotal(total).setOffset(offset).build();
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+
+        void onRequest(int offset) throws Exception {}
+    }
+
+    private static List<String> ids(SpotifyPlaylistReader.PlaylistItemsResult result) {
+        return result.items().stream().map(item -> ((Track) item.getTrack()).getId()).toList();
+    }
+
+    @Test
+    void fetchesRemainingPagesConcurrentlyInOrder() throws Exception {
+        FakeReader reader = new FakeReader("token-parallel", 1_000);
+
+        SpotifyPlaylistReader.PlaylistItemsResult result = reader.getAllPlaylistItems("p", 50, 450);
+
+        assertEquals(450, result.items().size());
+        assertEquals("t50", ids(result).get(0));
+        assertEquals("t499", ids(result).get(449));
+        for (int i = 0; i < 450; i++) {
+            assertEquals("t" + (50 + i), ids(result).get(i));
+        }
+        assertEquals(500, result.nextOffset());
+        assertTrue(result.hasMore());
+        assertEquals(5, reader.calls.get());
+        assertTrue(reader.maxActive.get() > 1, "Pages after the first overlap");
+        assertTrue(reader.maxActive.get() <= 4, "Concurrency is capped per load");
+    }
+
+    @Test
+    void unpaginatedLoadStopsAtTotal() throws Exception {
+        FakeReader reader = new FakeReader("token-all", 230);
+
+        SpotifyPlaylistReader.PlaylistItemsResult result = reader.getAllPlaylistItems("p", 0, -1);
+
+        assertEquals(230, result.items().size());
+        assertEquals(230, result.nextOffset());
+        assertFalse(result.hasMore());
+        assertEquals(3, reader.calls.get());
+    }
+
+    @Test
+    void reusesEmbeddedFirstPage() throws Exception {
+        FakeReader reader = new FakeReader("token-embedded", 250);
+        Paging<PlaylistTrack> embedded = reader.getPlaylistItems("p", 0, 100);
+        reader.calls.set(0);
+
+        SpotifyPlaylistReader.PlaylistItemsResult result = reader.getAllPlaylistItems("p", 0, -1, page -> {}, embedded);
+
+        assertEquals(250, result.items().size());
+        assertEquals("t0", ids(result).get(0));
+        assertEquals("t249", ids(result).get(249));
+        assertEquals(2, reader.calls.get(), "Only the pages after the embedded one are requested");
+    }
+
+    @Test
+    void trimsEmbeddedFirstPageToLimit() throws Exception {
+        FakeReader reader = new FakeReader("token-trim", 250);
+        Paging<PlaylistTrack> embedded = reader.getPlaylistItems("p", 0, 100);
+        reader.calls.set(0);
+
+        SpotifyPlaylistReader.PlaylistItemsResult result = reader.getAllPlaylistItems("p", 0, 30, page -> {}, embedded);
+
+        assertEquals(30, result.items().size());
+        assertEquals("t29", ids(result).get(29));
+        assertEquals(30, result.nextOffset());
+        assertTrue(result.hasMore());
+        assertEquals(0, reader.calls.get());
+    }
+
+    @Test
+    void returnsLoadedPrefixWhenThrottled() throws Exception {
+        FakeReader reader = new FakeReader("token-throttled", 500) {
+            @Override
+            void onRequest(int offset) throws Exception {
+                if (offset == 300) {
+                    throw new TooManyRequestsException("rate limited", 30);
+                }
+            }
+        };
+
+        SpotifyPlaylistReader.PlaylistItemsResult result = reader.getAllPlaylistItems("p", 0, -1);
+
+        assertTrue(result.incomplete());
+        assertEquals(300, result.items().size());
+        assertEquals("t299", ids(result).get(299));
+        assertEquals(300, result.nextOffset());
+        assertTrue(result.hasMore(), "The client can continue from where Spotify stopped");
+    }
+
+    @Test
+    void deliversPagesInPlaylistOrder() throws Exception {
+        FakeReader reader = new FakeReader("token-ordered", 400) {
+            @Override
+            void onRequest(int offset) throws Exception {
+                // Earlier pages answer last
+                Thread.sleep((400 - offset) / 2);
+            }
+        };
+        List<String> arrived = new CopyOnWriteArrayList<>();
+        List<String> inOrder = new ArrayList<>();
+
+        reader.getAllPlaylistItems("p", 0, -1, new SpotifyPlaylistReader.PageListener() {
+            @Override
+            public void onPageArrived(List<PlaylistTrack> items) {
+                arrived.add(((Track) items.get(0).getTrack()).getId());
+            }
+
+            @Override
+            public void onPageInOrder(List<PlaylistTrack> items, int total) {
+                assertEquals(400, total);
+                inOrder.add(((Track) items.get(0).getTrack()).getId());
+            }
+        }, null);
+
+        assertEquals(List.of("t0", "t100", "t200", "t300"), inOrder);
+        assertEquals(4, arrived.size());
+        assertNotEquals(inOrder, arrived, "Later pages arrived first");
+    }
+}
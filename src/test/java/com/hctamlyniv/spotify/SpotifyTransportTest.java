@@ -0,0 +1,248 @@
+package com.hctamlyniv.spotify;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.michaelthelin.spotify.SpotifyApi;
+import se.michaelthelin.spotify.exceptions.detailed.NotFoundException;
+import se.michaelthelin.spotify.exceptions.detailed.TooManyRequestsException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpotifyTransportTest {
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private volatile Responder responder;
+
+    @FunctionalInterface
+    private interface Responder {
+        void respond(HttpExchange exchange, int requestNumber) throws Exception;
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                responder.respond(exchange, requests.incrementAndGet());
+            } catch (Exception e) {
+                send(exchange, 500, "{}");
+            } finally {
+                active.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private SpotifyApi api(SpotifyTransport transport, String token) {
+        return transport.apiBuilder()
+                .setScheme("http")
+                .setHost("127.0.0.1")
+                .setPort(server.getAddress().getPort())
+                .setAccessToken(token)
+                .build();
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    @Test
+    void retriesAfterRateLimit() throws Exception {
+        SpotifyTransport transport = new SpotifyTransport(4, Duration.ofSeconds(5));
+        responder = (exchange, n) -> {
+            if (n == 1) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, "{\"error\":{\"status\":429,\"message\":\"API rate limit exceeded\"}}");
+            } else {
+                send(exchange, 200, "{\"snapshot_id\":\"s1\"}");
+            }
+        };
+
+        long started = System.nanoTime();
+        String snapshotId = api(transport, "token").getPlaylist("p").fields("snapshot_id").build().execute().getSnapshotId();
+
+        assertEquals("s1", snapshotId);
+        assertTrue(System.nanoTime() - started >= 1_000_000_000L, "Retry-After is honoured");
+        assertEquals(2, requests.get());
+        assertEquals(1L, transport.stats().get("retries"));
+        assertEquals(1L, transport.stats().get("throttledTokens"), "The 429 lowered the token's budget");
+    }
+
+    @Test
+    void longRetryAfterIsNotWaitedOut() {
+        SpotifyTransport transport = new SpotifyTransport(4, Duration.ofSeconds(5));
+        responder = (exchange, n) -> {
+            exchange.getResponseHeaders().set("Retry-After", "30");
+            send(exchange, 429, "{}");
+        };
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> api(transport, "token").getPlaylist("p").build().execute());
+
+        assertEquals(30, e.getRetryAfter());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void laterRequestsDoNotWaitOutLongPause() {
+        SpotifyTransport transport = new SpotifyTransport(4, Duration.ofSeconds(5));
+        responder = (exchange, n) -> {
+            exchange.getResponseHeaders().set("Retry-After", "3600");
+            send(exchange, 429, "{}");
+        };
+        SpotifyApi api = api(transport, "token");
+        assertThrows(TooManyRequestsException.class, () -> api.getPlaylist("p").build().execute());
+
+        long started = System.nanoTime();
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> api.getPlaylist("q").build().execute());
+
+        assertTrue(System.nanoTime() - started < 1_000_000_000L, "The paused token fails fast");
+        assertTrue(e.getRetryAfter() > 3500, "The remaining pause is reported");
+        assertEquals(1, requests.get(), "The second request never reached Spotify");
+    }
+
+    @Test
+    void sweepDropsIdleTokensOnlyOncePauseIsOver() throws Exception {
+        SpotifyTransport transport = new SpotifyTransport(4, Duration.ofSeconds(5));
+        responder = (exchange, n) -> {
+            if (n == 1) {
+                exchange.getResponseHeaders().set("Retry-After", "0");
+                send(exchange, 429, "{}");
+            } else if (n == 2) {
+                send(exchange, 200, "{\"snapshot_id\":\"s1\"}");
+            } else {
+                exchange.getResponseHeaders().set("Retry-After", "3600");
+                send(exchange, 429, "{}");
+            }
+        };
+        // Throttled, but its pause ends within the jitter.
+        api(transport, "short").getPlaylist("p").build().execute();
+        assertThrows(TooManyRequestsException.class, () -> api(transport, "long").getPlaylist("p").build().execute());
+        assertEquals(2, transport.stats().get("activeTokens"), "Throttled tokens outlive their last request");
+
+        Thread.sleep(1_000);
+        transport.sweepIdleTokens();
+
+        assertEquals(1, transport.stats().get("activeTokens"), "Only the still-paused token is kept");
+        assertEquals(2, transport.budgetFor("Bearer long"));
+    }
+
+    @Test
+    void burstOf429sHalvesBudgetOnce() throws Exception {
+        SpotifyTransport transport = new SpotifyTransport(4, Duration.ofSeconds(5));
+        CountDownLatch allArrived = new CountDownLatch(4);
+        responder = (exchange, n) -> {
+            allArrived.countDown();
+            allArrived.await();
+            exchange.getResponseHeaders().set("Retry-After", "30");
+            send(exchange, 429, "{}");
+        };
+        SpotifyApi api = api(transport, "token");
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> api.getPlaylist("p").build().execute()));
+            }
+            for (Future<?> result : results) {
+                ExecutionException e = assertThrows(ExecutionException.class, result::get);
+                assertInstanceOf(TooManyRequestsException.class, e.getCause());
+            }
+        }
+
+        assertEquals(2, transport.budgetFor("Bearer token"));
+    }
+
+    @Test
+    void errorResponsesDoNotRegrowBudget() throws Exception {
+        SpotifyTransport transport = new SpotifyTransport(4, Duration.ofSeconds(5));
+        responder = (exchange, n) -> {
+            if (n == 1) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, "{}");
+            } else if (n == 2) {
+                send(exchange, 200, "{\"snapshot_id\":\"s1\"}");
+            } else {
+                send(exchange, 404, "{}");
+            }
+        };
+        SpotifyApi api = api(transport, "token");
+        api.getPlaylist("p").build().execute();
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(NotFoundException.class, () -> api.getPlaylist("missing").build().execute());
+        }
+
+        assertEquals(2, transport.budgetFor("Bearer token"), "Only 2xx responses count as successes");
+    }
+
+    @Test
+    void mapsErrorResponsesToSpotifyExceptions() {
+        SpotifyTransport transport = new SpotifyTransport(4, Duration.ofSeconds(5));
+        responder = (exchange, n) -> send(exchange, 404, "{\"error\":{\"status\":404,\"message\":\"Resource not found\"}}");
+
+        NotFoundException e = assertThrows(NotFoundException.class,
+                () -> api(transport, "token").getPlaylist("missing").build().execute());
+
+        assertEquals("Resource not found", e.getMessage());
+        assertEquals(1L, transport.stats().get("errorResponses"));
+    }
+
+    @Test
+    void capsConcurrentRequestsPerToken() throws Exception {
+        SpotifyTransport transport = new SpotifyTransport(2, Duration.ofSeconds(5));
+        responder = (exchange, n) -> {
+            Thread.sleep(100);
+            send(exchange, 200, "{\"snapshot_id\":\"s" + n + "\"}");
+        };
+        SpotifyApi api = api(transport, "token");
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                results.add(executor.submit(() -> api.getPlaylist("p").build().execute().getSnapshotId()));
+            }
+            for (Future<String> result : results) {
+                assertNotNull(result.get());
+            }
+        }
+
+        assertEquals(6, requests.get());
+        assertTrue(maxActive.get() <= 2, "At most two requests per token are in flight");
+        assertEquals(0, transport.stats().get("activeTokens"));
+    }
+}